@@ -0,0 +1,183 @@
+package com.amazonaws.xray.opentelemetry.loadtest;
+
+import com.amazonaws.xray.opentelemetry.tracing.utils.TimeUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A UDP listener standing in for the X-Ray daemon. Every received document is checked for the
+ * daemon protocol header and the fields X-Ray requires, and the latency from the start of each
+ * segment to its arrival is recorded.
+ */
+class DaemonStandIn implements AutoCloseable {
+
+  private static final String PROTOCOL_HEADER = "{\"format\": \"json\", \"version\": 1}\n";
+  private static final int MAX_DATAGRAM_BYTES = 65535;
+  private static final int RECEIVE_BUFFER_BYTES = 16 * 1024 * 1024;
+  private static final int POLL_MILLIS = 100;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final DatagramSocket socket;
+  private final Thread receiver;
+  private final LatencyRecorder latencies = new LatencyRecorder();
+  private final AtomicLong segments = new AtomicLong();
+  private final AtomicLong subsegments = new AtomicLong();
+  private final AtomicLong spans = new AtomicLong();
+  private final AtomicLong invalid = new AtomicLong();
+  private volatile long lastReceivedNanos = System.nanoTime();
+  private volatile boolean running = true;
+
+  DaemonStandIn() throws SocketException {
+    socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+    socket.setReceiveBufferSize(RECEIVE_BUFFER_BYTES);
+    socket.setSoTimeout(POLL_MILLIS);
+    receiver = new Thread(this::receive, "xray-daemon-stand-in");
+    receiver.setDaemon(true);
+    receiver.start();
+  }
+
+  /**
+   * Return the address to configure the emitter with, in the daemon's "host:port" format.
+   *
+   * @return the address
+   */
+  String getAddress() {
+    return "127.0.0.1:" + socket.getLocalPort();
+  }
+
+  /**
+   * Wait until the expected number of segments has arrived or nothing has arrived for the quiet
+   * period.
+   *
+   * @param expectedSegments the number of segments sent
+   * @param quietMillis the quiet period
+   * @throws InterruptedException if interrupted while waiting
+   */
+  void awaitSegments(final long expectedSegments, final long quietMillis)
+      throws InterruptedException {
+    long quietNanos = quietMillis * 1000000L;
+    while (segments.get() < expectedSegments
+        && System.nanoTime() - lastReceivedNanos < quietNanos) {
+      Thread.sleep(10L);
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    running = false;
+    receiver.join();
+    socket.close();
+  }
+
+  long getSegmentCount() {
+    return segments.get();
+  }
+
+  long getSubsegmentCount() {
+    return subsegments.get();
+  }
+
+  long getSpanCount() {
+    return spans.get();
+  }
+
+  long getInvalidCount() {
+    return invalid.get();
+  }
+
+  /**
+   * Return the recorded latencies. Only safe to call once the stand-in is closed.
+   *
+   * @return the latencies
+   */
+  LatencyRecorder getLatencies() {
+    return latencies;
+  }
+
+  private void receive() {
+    DatagramPacket packet = new DatagramPacket(new byte[MAX_DATAGRAM_BYTES], MAX_DATAGRAM_BYTES);
+    while (running) {
+      try {
+        socket.receive(packet);
+      } catch (SocketTimeoutException e) {
+        continue;
+      } catch (IOException e) {
+        break;
+      }
+      long receivedAt = TimeUtils.currentEpochNanos();
+      lastReceivedNanos = System.nanoTime();
+      accept(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8),
+          receivedAt);
+    }
+  }
+
+  private void accept(final String document, final long receivedAt) {
+    if (!document.startsWith(PROTOCOL_HEADER)) {
+      invalid.incrementAndGet();
+      return;
+    }
+
+    JsonNode entity;
+    try {
+      entity = mapper.readTree(document.substring(PROTOCOL_HEADER.length()));
+    } catch (IOException e) {
+      invalid.incrementAndGet();
+      return;
+    }
+
+    boolean streamed = "subsegment".equals(entity.path("type").asText());
+    if (!isValid(entity, streamed)) {
+      invalid.incrementAndGet();
+      return;
+    }
+
+    spans.addAndGet(countEntities(entity));
+    if (streamed) {
+      subsegments.incrementAndGet();
+    } else {
+      segments.incrementAndGet();
+      latencies.record(receivedAt
+          - TimeUtils.xrayTimestampToNanoTime(entity.get("start_time").asDouble()));
+    }
+  }
+
+  private static boolean isValid(final JsonNode entity, final boolean streamed) {
+    return entity.hasNonNull("trace_id") && (!streamed || entity.hasNonNull("parent_id"))
+        && isValidEntity(entity);
+  }
+
+  private static boolean isValidEntity(final JsonNode entity) {
+    if (!entity.hasNonNull("name") || !entity.hasNonNull("id")) {
+      return false;
+    }
+
+    double start = entity.path("start_time").asDouble();
+    double end = entity.path("end_time").asDouble();
+    if (start <= 0 || end < start) {
+      return false;
+    }
+
+    for (JsonNode child : entity.path("subsegments")) {
+      if (!isValidEntity(child)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long countEntities(final JsonNode entity) {
+    long count = 1;
+    for (JsonNode child : entity.path("subsegments")) {
+      count += countEntities(child);
+    }
+    return count;
+  }
+}
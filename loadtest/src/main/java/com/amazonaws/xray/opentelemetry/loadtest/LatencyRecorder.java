@@ -0,0 +1,46 @@
+package com.amazonaws.xray.opentelemetry.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Records every latency sample so percentiles are exact rather than bucketed. Samples are only
+ * recorded by the daemon stand-in's receive thread, so no synchronization is needed until the
+ * run is over and the samples are read.
+ */
+class LatencyRecorder {
+
+  private long[] samples = new long[1 << 16];
+  private int count;
+
+  void record(final long nanos) {
+    if (count == samples.length) {
+      samples = Arrays.copyOf(samples, count * 2);
+    }
+    samples[count++] = nanos;
+  }
+
+  int getCount() {
+    return count;
+  }
+
+  /**
+   * Return the samples at the given percentiles using the nearest-rank method.
+   *
+   * @param percentiles the percentiles between 0 and 100
+   * @return the samples in nanoseconds, all 0 if nothing was recorded
+   */
+  long[] percentiles(final double... percentiles) {
+    long[] result = new long[percentiles.length];
+    if (count == 0) {
+      return result;
+    }
+
+    long[] sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+    for (int i = 0; i < percentiles.length; i++) {
+      int rank = (int) Math.ceil(percentiles[i] / 100.0 * count);
+      result[i] = sorted[Math.max(0, Math.min(count, rank) - 1)];
+    }
+    return result;
+  }
+}
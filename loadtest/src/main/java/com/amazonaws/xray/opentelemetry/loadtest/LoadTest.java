@@ -0,0 +1,126 @@
+package com.amazonaws.xray.opentelemetry.loadtest;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.config.DaemonConfiguration;
+import com.amazonaws.xray.emitters.UDPEmitter;
+import com.amazonaws.xray.opentelemetry.tracing.RecorderBackedTracer;
+import com.amazonaws.xray.opentelemetry.tracing.TracerOptions;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives {@link RecorderBackedTracer} from many threads against a local stand-in for the X-Ray
+ * daemon and reports throughput, latency, GC time and lost segments.
+ *
+ * <p>Run with {@code ./gradlew :aws-xray-sdk-opentelemetry-loadtest:run --args="--threads=16"}.
+ * See {@link LoadTestConfig#fromArgs(String[])} for the available options. The process exits
+ * with a non-zero status if any document was invalid or any propagated context was corrupted.
+ */
+public class LoadTest {
+
+  private final LoadTestConfig config;
+
+  private LoadTest(final LoadTestConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Create a load test with the given configuration.
+   *
+   * @param config the configuration
+   * @return the load test
+   */
+  public static LoadTest create(final LoadTestConfig config) {
+    return new LoadTest(config);
+  }
+
+  /**
+   * Run the load test from the command line.
+   *
+   * @param args options of the form {@code --name=value}
+   * @throws Exception if the run fails
+   */
+  public static void main(final String[] args) throws Exception {
+    LoadTestConfig config = LoadTestConfig.fromArgs(args);
+    System.out.println("Running load test with " + config);
+    LoadTestResult result = create(config).run();
+    System.out.print(result);
+    System.exit(result.isPassed() ? 0 : 1);
+  }
+
+  /**
+   * Run the load test to completion.
+   *
+   * @return the measurements
+   * @throws IOException if the daemon stand-in or emitter cannot be opened
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  public LoadTestResult run() throws IOException, InterruptedException {
+    try (DaemonStandIn daemon = new DaemonStandIn()) {
+      DaemonConfiguration daemonConfig = new DaemonConfiguration();
+      daemonConfig.setDaemonAddress(daemon.getAddress());
+      AWSXRayRecorder recorder = AWSXRayRecorderBuilder.standard()
+          .withEmitter(new UDPEmitter(daemonConfig))
+          .withSamplingStrategy(new AllSamplingStrategy())
+          .build();
+      TracerOptions options = TracerOptions.builder()
+          .withDeferredEntities(config.isDeferredEntities())
+          .build();
+
+      LongAdder trees = new LongAdder();
+      LongAdder spans = new LongAdder();
+      LongAdder propagationFailures = new LongAdder();
+
+      long gcMillisBefore = gcMillis();
+      long gcCountBefore = gcCount();
+      long start = System.nanoTime();
+      long deadline = start + config.getDurationMillis() * 1000000L;
+
+      List<Thread> workers = new ArrayList<>();
+      for (int i = 0; i < config.getThreads(); i++) {
+        // Tracers track the current span, so each thread gets its own over the shared recorder
+        SpanTreeWorker worker = new SpanTreeWorker(
+            RecorderBackedTracer.fromRecorder(recorder, options), config, deadline, trees, spans,
+            propagationFailures);
+        Thread thread = new Thread(worker, "load-worker-" + i);
+        workers.add(thread);
+        thread.start();
+      }
+      for (Thread thread : workers) {
+        thread.join();
+      }
+
+      long elapsed = System.nanoTime() - start;
+      long gcMillis = gcMillis() - gcMillisBefore;
+      long gcCount = gcCount() - gcCountBefore;
+
+      daemon.awaitSegments(trees.sum(), config.getDrainMillis());
+      daemon.close();
+
+      return new LoadTestResult(elapsed, trees.sum(), spans.sum(), daemon,
+          propagationFailures.sum(), gcMillis, gcCount);
+    }
+  }
+
+  private static long gcMillis() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, gc.getCollectionTime());
+    }
+    return total;
+  }
+
+  private static long gcCount() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, gc.getCollectionCount());
+    }
+    return total;
+  }
+}
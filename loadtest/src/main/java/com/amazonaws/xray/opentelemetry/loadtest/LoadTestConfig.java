@@ -0,0 +1,281 @@
+package com.amazonaws.xray.opentelemetry.loadtest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The shape and duration of a load test run.
+ */
+public class LoadTestConfig {
+
+  private final int threads;
+  private final long durationMillis;
+  private final long drainMillis;
+  private final int depth;
+  private final int fanout;
+  private final int attributes;
+  private final int events;
+  private final boolean propagation;
+  private final boolean deferredEntities;
+  private final int treesPerSecond;
+
+  private LoadTestConfig(final Builder builder) {
+    this.threads = builder.threads;
+    this.durationMillis = builder.durationMillis;
+    this.drainMillis = builder.drainMillis;
+    this.depth = builder.depth;
+    this.fanout = builder.fanout;
+    this.attributes = builder.attributes;
+    this.events = builder.events;
+    this.propagation = builder.propagation;
+    this.deferredEntities = builder.deferredEntities;
+    this.treesPerSecond = builder.treesPerSecond;
+  }
+
+  /**
+   * Create a builder for a load test configuration.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Parse a configuration from command line arguments of the form {@code --name=value}.
+   *
+   * @param args the arguments
+   * @return the configuration
+   * @throws IllegalArgumentException if an argument is not recognized
+   */
+  public static LoadTestConfig fromArgs(final String[] args) {
+    Builder builder = builder();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator < 0) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      String name = arg.substring(2, separator);
+      String value = arg.substring(separator + 1);
+      switch (name) {
+        case "threads":
+          builder.withThreads(Integer.parseInt(value));
+          break;
+        case "duration":
+          builder.withDuration(Long.parseLong(value), TimeUnit.SECONDS);
+          break;
+        case "drain":
+          builder.withDrain(Long.parseLong(value), TimeUnit.MILLISECONDS);
+          break;
+        case "depth":
+          builder.withDepth(Integer.parseInt(value));
+          break;
+        case "fanout":
+          builder.withFanout(Integer.parseInt(value));
+          break;
+        case "attributes":
+          builder.withAttributes(Integer.parseInt(value));
+          break;
+        case "events":
+          builder.withEvents(Integer.parseInt(value));
+          break;
+        case "propagation":
+          builder.withPropagation(Boolean.parseBoolean(value));
+          break;
+        case "deferred":
+          builder.withDeferredEntities(Boolean.parseBoolean(value));
+          break;
+        case "rate":
+          builder.withTreesPerSecond(Integer.parseInt(value));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option --" + name);
+      }
+    }
+    return builder.build();
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  public long getDrainMillis() {
+    return drainMillis;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public int getFanout() {
+    return fanout;
+  }
+
+  public int getAttributes() {
+    return attributes;
+  }
+
+  public int getEvents() {
+    return events;
+  }
+
+  public boolean isPropagation() {
+    return propagation;
+  }
+
+  public boolean isDeferredEntities() {
+    return deferredEntities;
+  }
+
+  /**
+   * Return the number of trees all workers together start per second, or 0 if unpaced.
+   *
+   * @return the tree rate
+   */
+  public int getTreesPerSecond() {
+    return treesPerSecond;
+  }
+
+  /**
+   * Return the number of spans in each generated tree.
+   *
+   * @return the span count
+   */
+  public int getSpansPerTree() {
+    int spans = 0;
+    int level = 1;
+    for (int i = 0; i < depth; i++) {
+      spans += level;
+      level *= fanout;
+    }
+    return spans;
+  }
+
+  @Override
+  public String toString() {
+    return "threads=" + threads + " duration=" + durationMillis + "ms depth=" + depth
+        + " fanout=" + fanout + " attributes=" + attributes + " events=" + events
+        + " propagation=" + propagation + " deferred=" + deferredEntities
+        + " rate=" + (treesPerSecond == 0 ? "unpaced" : treesPerSecond + "/s");
+  }
+
+  /**
+   * A builder for {@link LoadTestConfig}.
+   */
+  public static class Builder {
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long durationMillis = TimeUnit.SECONDS.toMillis(30);
+    private long drainMillis = 2000L;
+    private int depth = 3;
+    private int fanout = 3;
+    private int attributes = 4;
+    private int events = 1;
+    private boolean propagation = true;
+    private boolean deferredEntities;
+    private int treesPerSecond;
+
+    private Builder() {
+    }
+
+    public Builder withThreads(final int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    public Builder withDuration(final long duration, final TimeUnit unit) {
+      this.durationMillis = unit.toMillis(duration);
+      return this;
+    }
+
+    /**
+     * Wait this long without receiving a document before declaring the remaining segments lost.
+     *
+     * @param drain the quiet period
+     * @param unit the unit of the quiet period
+     * @return this builder
+     */
+    public Builder withDrain(final long drain, final TimeUnit unit) {
+      this.drainMillis = unit.toMillis(drain);
+      return this;
+    }
+
+    /**
+     * Generate span trees this many levels deep, counting the root.
+     *
+     * @param depth the depth
+     * @return this builder
+     */
+    public Builder withDepth(final int depth) {
+      this.depth = depth;
+      return this;
+    }
+
+    /**
+     * Give each span which is not a leaf this many children.
+     *
+     * @param fanout the number of children
+     * @return this builder
+     */
+    public Builder withFanout(final int fanout) {
+      this.fanout = fanout;
+      return this;
+    }
+
+    public Builder withAttributes(final int attributes) {
+      this.attributes = attributes;
+      return this;
+    }
+
+    public Builder withEvents(final int events) {
+      this.events = events;
+      return this;
+    }
+
+    /**
+     * Inject and extract the root span's context through the tracer's text format once per tree.
+     *
+     * @param propagation true to perform the round trip
+     * @return this builder
+     */
+    public Builder withPropagation(final boolean propagation) {
+      this.propagation = propagation;
+      return this;
+    }
+
+    public Builder withDeferredEntities(final boolean deferredEntities) {
+      this.deferredEntities = deferredEntities;
+      return this;
+    }
+
+    /**
+     * Pace the workers so that together they start this many trees per second. Unpaced workers
+     * can outrun the daemon stand-in's receive buffer, whose size the kernel caps.
+     *
+     * @param treesPerSecond the tree rate, or 0 to start trees as fast as possible
+     * @return this builder
+     */
+    public Builder withTreesPerSecond(final int treesPerSecond) {
+      this.treesPerSecond = treesPerSecond;
+      return this;
+    }
+
+    /**
+     * Build the configuration.
+     *
+     * @return the configuration
+     * @throws IllegalArgumentException if a value is out of range
+     */
+    public LoadTestConfig build() {
+      if (threads < 1 || depth < 1 || fanout < 0 || attributes < 0 || events < 0
+          || treesPerSecond < 0) {
+        throw new IllegalArgumentException("Threads and depth must be positive and counts must "
+            + "not be negative.");
+      }
+      return new LoadTestConfig(this);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.amazonaws.xray.opentelemetry.loadtest;
+
+import java.util.Locale;
+
+/**
+ * The measurements of a load test run.
+ */
+public class LoadTestResult {
+
+  private static final double NS_TO_MS = 1e6D;
+
+  private final long elapsedNanos;
+  private final long trees;
+  private final long spans;
+  private final long receivedSegments;
+  private final long receivedSubsegments;
+  private final long receivedSpans;
+  private final long invalidDocuments;
+  private final long propagationFailures;
+  private final long[] latencyPercentiles;
+  private final long gcMillis;
+  private final long gcCount;
+
+  LoadTestResult(final long elapsedNanos, final long trees, final long spans,
+      final DaemonStandIn daemon, final long propagationFailures, final long gcMillis,
+      final long gcCount) {
+    this.elapsedNanos = elapsedNanos;
+    this.trees = trees;
+    this.spans = spans;
+    this.receivedSegments = daemon.getSegmentCount();
+    this.receivedSubsegments = daemon.getSubsegmentCount();
+    this.receivedSpans = daemon.getSpanCount();
+    this.invalidDocuments = daemon.getInvalidCount();
+    this.propagationFailures = propagationFailures;
+    this.latencyPercentiles = daemon.getLatencies().percentiles(50, 99, 99.9);
+    this.gcMillis = gcMillis;
+    this.gcCount = gcCount;
+  }
+
+  public double getSpansPerSecond() {
+    return spans * 1e9D / elapsedNanos;
+  }
+
+  public long getTrees() {
+    return trees;
+  }
+
+  public long getSpans() {
+    return spans;
+  }
+
+  public long getReceivedSegments() {
+    return receivedSegments;
+  }
+
+  public long getReceivedSpans() {
+    return receivedSpans;
+  }
+
+  /**
+   * Return the number of segments which were ended but never reached the daemon stand-in.
+   *
+   * @return the lost segment count
+   */
+  public long getLostSegments() {
+    return Math.max(0, trees - receivedSegments);
+  }
+
+  public long getInvalidDocuments() {
+    return invalidDocuments;
+  }
+
+  public long getPropagationFailures() {
+    return propagationFailures;
+  }
+
+  /**
+   * Return the 50th, 99th and 99.9th percentile of the time from a segment starting to it
+   * arriving at the daemon stand-in.
+   *
+   * @return the percentiles in nanoseconds
+   */
+  public long[] getLatencyPercentiles() {
+    return latencyPercentiles.clone();
+  }
+
+  public long getGcMillis() {
+    return gcMillis;
+  }
+
+  public long getGcCount() {
+    return gcCount;
+  }
+
+  /**
+   * Return whether every document was valid and every propagated context survived its round
+   * trip. Lost segments are reported but do not fail the run since UDP may drop them.
+   *
+   * @return true if the run passed
+   */
+  public boolean isPassed() {
+    return invalidDocuments == 0 && propagationFailures == 0;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT,
+        "elapsed:              %.1f s%n"
+            + "spans/sec:            %.0f%n"
+            + "trees ended:          %d%n"
+            + "spans created:        %d%n"
+            + "segments received:    %d%n"
+            + "subsegments streamed: %d%n"
+            + "spans received:       %d%n"
+            + "segments lost:        %d%n"
+            + "invalid documents:    %d%n"
+            + "propagation failures: %d%n"
+            + "start-to-emit p50:    %.3f ms%n"
+            + "start-to-emit p99:    %.3f ms%n"
+            + "start-to-emit p999:   %.3f ms%n"
+            + "gc time:              %d ms in %d collections%n",
+        elapsedNanos / 1e9D, getSpansPerSecond(), trees, spans, receivedSegments,
+        receivedSubsegments, receivedSpans, getLostSegments(), invalidDocuments,
+        propagationFailures, latencyPercentiles[0] / NS_TO_MS, latencyPercentiles[1] / NS_TO_MS,
+        latencyPercentiles[2] / NS_TO_MS, gcMillis, gcCount);
+  }
+}
@@ -0,0 +1,130 @@
+package com.amazonaws.xray.opentelemetry.loadtest;
+
+import io.opentelemetry.context.propagation.HttpTextFormat;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.Tracer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Creates trees of nested spans on one thread until the deadline passes, optionally starting one
+ * tree per interval.
+ */
+class SpanTreeWorker implements Runnable {
+
+  private static final HttpTextFormat.Setter<Map<String, String>> SETTER = Map::put;
+  private static final HttpTextFormat.Getter<Map<String, String>> GETTER = Map::get;
+
+  private final Tracer tracer;
+  private final LoadTestConfig config;
+  private final long deadlineNanos;
+  private final long intervalNanos;
+  private final String[] attributeKeys;
+  private final LongAdder trees;
+  private final LongAdder spans;
+  private final LongAdder propagationFailures;
+
+  SpanTreeWorker(final Tracer tracer, final LoadTestConfig config, final long deadlineNanos,
+      final LongAdder trees, final LongAdder spans, final LongAdder propagationFailures) {
+    this.tracer = tracer;
+    this.config = config;
+    this.deadlineNanos = deadlineNanos;
+    // Each worker takes its share of the total rate
+    this.intervalNanos = config.getTreesPerSecond() == 0 ? 0
+        : 1000000000L * config.getThreads() / config.getTreesPerSecond();
+    this.trees = trees;
+    this.spans = spans;
+    this.propagationFailures = propagationFailures;
+
+    this.attributeKeys = new String[config.getAttributes()];
+    for (int i = 0; i < attributeKeys.length; i++) {
+      attributeKeys[i] = "load.attribute." + i;
+    }
+  }
+
+  @Override
+  public void run() {
+    long iteration = 0;
+    long nextStart = System.nanoTime();
+    while (System.nanoTime() - deadlineNanos < 0) {
+      if (intervalNanos > 0) {
+        long wait = nextStart - System.nanoTime();
+        if (wait > 0) {
+          LockSupport.parkNanos(wait);
+        }
+        nextStart += intervalNanos;
+      }
+
+      Span root = tracer.spanBuilder("load-root")
+          .setNoParent()
+          .setSpanKind(Span.Kind.SERVER)
+          .startSpan();
+      decorate(root, iteration);
+
+      if (config.isPropagation() && !roundTrip(root.getContext())) {
+        propagationFailures.increment();
+      }
+
+      createChildren(root, 1, iteration);
+      root.end();
+
+      trees.increment();
+      spans.add(config.getSpansPerTree());
+      iteration++;
+    }
+  }
+
+  private void createChildren(final Span parent, final int level, final long iteration) {
+    if (level >= config.getDepth()) {
+      return;
+    }
+
+    for (int i = 0; i < config.getFanout(); i++) {
+      Span child = tracer.spanBuilder("load-child-" + level)
+          .setParent(parent)
+          .setSpanKind(Span.Kind.CLIENT)
+          .startSpan();
+      decorate(child, iteration);
+      createChildren(child, level + 1, iteration);
+      child.end();
+    }
+  }
+
+  private void decorate(final Span span, final long iteration) {
+    for (int i = 0; i < attributeKeys.length; i++) {
+      switch (i % 4) {
+        case 0:
+          span.setAttribute(attributeKeys[i], "value-" + (iteration & 0xFF));
+          break;
+        case 1:
+          span.setAttribute(attributeKeys[i], iteration);
+          break;
+        case 2:
+          span.setAttribute(attributeKeys[i], iteration * 0.5D);
+          break;
+        default:
+          span.setAttribute(attributeKeys[i], (iteration & 1) == 0);
+          break;
+      }
+    }
+
+    for (int i = 0; i < config.getEvents(); i++) {
+      span.addEvent("load-event-" + i, Collections.singletonMap("iteration",
+          AttributeValue.longAttributeValue(iteration)));
+    }
+  }
+
+  private boolean roundTrip(final SpanContext context) {
+    Map<String, String> carrier = new HashMap<>();
+    HttpTextFormat<SpanContext> format = tracer.getHttpTextFormat();
+    format.inject(context, carrier, SETTER);
+    SpanContext extracted = format.extract(carrier, GETTER);
+    return context.getTraceId().equals(extracted.getTraceId())
+        && context.getSpanId().equals(extracted.getSpanId());
+  }
+}
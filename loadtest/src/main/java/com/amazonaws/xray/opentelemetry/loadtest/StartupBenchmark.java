@@ -0,0 +1,136 @@
+package com.amazonaws.xray.opentelemetry.loadtest;
+
+import com.amazonaws.xray.opentelemetry.tracing.RecorderBackedTracerFactory;
+import io.opentelemetry.OpenTelemetry;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Tracer;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures the cost of starting to trace in a fresh JVM, as paid on every cold start of a
+ * serverless function: the time and classes loaded to obtain a tracer, and then to start and end
+ * the first span.
+ *
+ * <p>Each sample runs in its own child JVM so that no class is already loaded. Two modes are
+ * compared: {@code spi}, which obtains the tracer through {@link OpenTelemetry} and so initializes
+ * the X-Ray recorder lazily, and {@code eager}, which creates a
+ * {@link RecorderBackedTracerFactory} directly and so initializes the recorder up front.
+ *
+ * <p>Run with {@code ./gradlew :aws-xray-sdk-opentelemetry-loadtest:startupBenchmark
+ * --args="--iterations=20"}.
+ */
+public class StartupBenchmark {
+
+  static final String[] MODES = {"spi", "eager"};
+
+  private static final String CHILD_ARG = "--child=";
+  private static final String ITERATIONS_ARG = "--iterations=";
+  private static final int DEFAULT_ITERATIONS = 10;
+
+  private StartupBenchmark() {
+  }
+
+  /**
+   * Run the benchmark from the command line.
+   *
+   * @param args {@code --iterations=N} for the number of JVMs per mode
+   * @throws Exception if a child JVM fails
+   */
+  public static void main(final String[] args) throws Exception {
+    int iterations = DEFAULT_ITERATIONS;
+    for (String arg : args) {
+      if (arg.startsWith(CHILD_ARG)) {
+        System.out.println(measure(arg.substring(CHILD_ARG.length())));
+        return;
+      } else if (arg.startsWith(ITERATIONS_ARG)) {
+        iterations = Integer.parseInt(arg.substring(ITERATIONS_ARG.length()));
+      } else {
+        throw new IllegalArgumentException("Expected --iterations=N but got " + arg);
+      }
+    }
+
+    System.out.println(String.format(Locale.ROOT, "%-6s %14s %14s %14s %14s",
+        "mode", "tracer (ms)", "tracer classes", "1st span (ms)", "1st span cls"));
+    for (String mode : MODES) {
+      long[][] samples = new long[4][iterations];
+      for (int i = 0; i < iterations; i++) {
+        long[] sample = fork(mode);
+        for (int j = 0; j < sample.length; j++) {
+          samples[j][i] = sample[j];
+        }
+      }
+      System.out.println(String.format(Locale.ROOT, "%-6s %14.2f %14d %14.2f %14d", mode,
+          median(samples[0]) / 1e6D, median(samples[1]), median(samples[2]) / 1e6D,
+          median(samples[3])));
+    }
+  }
+
+  /**
+   * Run one sample in a child JVM on the current class path.
+   *
+   * @param mode one of {@link #MODES}
+   * @return nanoseconds and classes loaded to obtain a tracer, then to start the first span
+   * @throws IOException if the child cannot be started or fails
+   * @throws InterruptedException if interrupted while waiting for the child
+   */
+  static long[] fork(final String mode) throws IOException, InterruptedException {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+        + "java";
+    Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+        StartupBenchmark.class.getName(), CHILD_ARG + mode)
+        .redirectErrorStream(true)
+        .start();
+
+    String result = null;
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        // The recorder may log on startup, the measurement is the last line
+        result = line;
+      }
+    }
+    if (process.waitFor() != 0 || result == null) {
+      throw new IOException("Startup benchmark child failed in mode " + mode + ": " + result);
+    }
+    return Arrays.stream(result.trim().split(" ")).mapToLong(Long::parseLong).toArray();
+  }
+
+  private static String measure(final String mode) {
+    ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+    long classesBefore = classLoading.getTotalLoadedClassCount();
+    long start = System.nanoTime();
+
+    Tracer tracer;
+    if ("spi".equals(mode)) {
+      tracer = OpenTelemetry.getTracerFactory().get("startup-benchmark");
+    } else if ("eager".equals(mode)) {
+      tracer = RecorderBackedTracerFactory.create().get("startup-benchmark");
+    } else {
+      throw new IllegalArgumentException("Unknown mode " + mode);
+    }
+    long tracerNanos = System.nanoTime() - start;
+    long tracerClasses = classLoading.getTotalLoadedClassCount() - classesBefore;
+
+    Span span = tracer.spanBuilder("first").startSpan();
+    span.end();
+    long spanNanos = System.nanoTime() - start - tracerNanos;
+    long spanClasses = classLoading.getTotalLoadedClassCount() - classesBefore - tracerClasses;
+
+    return tracerNanos + " " + tracerClasses + " " + spanNanos + " " + spanClasses;
+  }
+
+  private static long median(final long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
@@ -0,0 +1,46 @@
+package com.amazonaws.xray.opentelemetry.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class LoadTestTest {
+
+  @Test
+  public void when_argumentsAreParsed_then_theConfigReflectsThem() {
+    LoadTestConfig config = LoadTestConfig.fromArgs(new String[] {
+        "--threads=2", "--duration=5", "--depth=4", "--fanout=2", "--deferred=true",
+        "--rate=100"});
+
+    assertEquals(2, config.getThreads());
+    assertEquals(5000L, config.getDurationMillis());
+    assertEquals(15, config.getSpansPerTree());
+    assertTrue(config.isDeferredEntities());
+    assertEquals(100, config.getTreesPerSecond());
+    assertThrows(IllegalArgumentException.class,
+        () -> LoadTestConfig.fromArgs(new String[] {"--unknown=1"}));
+  }
+
+  @Test
+  public void when_aShortRunCompletes_then_everySpanReachesTheDaemon() throws Exception {
+    LoadTestConfig config = LoadTestConfig.builder()
+        .withThreads(2)
+        // Paced so that the stand-in's receive buffer never overflows, even where the kernel
+        // caps it at a couple of hundred kilobytes
+        .withTreesPerSecond(200)
+        .withDuration(500, TimeUnit.MILLISECONDS)
+        .withDrain(2, TimeUnit.SECONDS)
+        .build();
+
+    LoadTestResult result = LoadTest.create(config).run();
+
+    assertTrue(result.isPassed(), result.toString());
+    assertTrue(result.getTrees() > 0);
+    assertEquals(0, result.getLostSegments(), result.toString());
+    assertEquals(result.getSpans(), result.getReceivedSpans());
+    assertTrue(result.getLatencyPercentiles()[0] > 0);
+  }
+}
@@ -0,0 +1,22 @@
+package com.amazonaws.xray.opentelemetry.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class StartupBenchmarkTest {
+
+  @Test
+  public void when_theTracerComesFromTheSpi_then_theRecorderIsNotLoadedUntilTheFirstSpan()
+      throws Exception {
+    long[] spi = StartupBenchmark.fork("spi");
+    long[] eager = StartupBenchmark.fork("eager");
+
+    assertEquals(4, spi.length);
+    assertEquals(4, eager.length);
+    assertTrue(spi[1] < eager[1], "spi loaded " + spi[1] + " classes for a tracer, eager "
+        + eager[1]);
+    assertTrue(spi[3] > 0);
+  }
+}
@@ -0,0 +1,742 @@
+package com.amazonaws.xray.opentelemetry.tracing;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.AnnotationAllowList;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityAttributes;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadataEvent;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EventPool;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.ExceptionCapture;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.KeyInterner;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.SpanNameNormalizer;
+import com.amazonaws.xray.opentelemetry.tracing.overload.OverloadGovernor;
+import com.amazonaws.xray.opentelemetry.tracing.utils.IdGenerator;
+import com.amazonaws.xray.opentelemetry.tracing.utils.IdUtils;
+import com.amazonaws.xray.opentelemetry.tracing.utils.TimeUtils;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.EndSpanOptions;
+import io.opentelemetry.trace.Event;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceFlags;
+import io.opentelemetry.trace.Tracestate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A span which records into compact primitive fields and only materializes X-Ray entities when
+ * the root span of a sampled trace ends.
+ *
+ * <p>IDs are held as longs, timestamps as epoch nanoseconds and attributes in the typed columns
+ * of {@link EntityAttributes}. As with {@link EntitySpan}, the recorder's sampling strategy is not
+ * consulted; only traces shed by the {@link OverloadGovernor} are unsampled, and their spans
+ * record nothing beyond their IDs. When a sampled root ends its tree is replayed through
+ * {@link EntitySpan}, so the emitted segment is identical to one recorded directly. Children still
+ * in progress at that point are materialized as in-progress subsegments and delegate to their
+ * entity from then on; the X-Ray recorder emits the segment once they end.
+ *
+ * @see TracerOptions#isDeferredEntities()
+ */
+public class DeferredEntitySpan implements Span {
+
+  private static final int INITIAL_CHILDREN = 4;
+
+  private static final TraceFlags SAMPLED = TraceFlags.builder().setIsSampled(true).build();
+  private static final TraceFlags NOT_SAMPLED = TraceFlags.getDefault();
+
+  private final AWSXRayRecorder recorder;
+  private final IdGenerator idGenerator;
+  private final AnnotationAllowList annotationAllowList;
+  private final DeferredEntitySpan root;
+  private final Span.Kind kind;
+  private final int traceEpoch;
+  private final int traceIdHigh;
+  private final long traceIdLow;
+  private final long spanId;
+  private final boolean sampled;
+  private final long startTimestamp;
+
+  private String name;
+  private long endTimestamp;
+  private boolean ended;
+  private Status status;
+
+  private EntityAttributes attributes;
+  private List<EntityMetadataEvent> events;
+  private List<DeferredEntitySpan> children;
+  private List<Throwable> exceptions;
+  private EntitySpan materialized;
+  private OverloadGovernor overloadGovernor;
+  private KeyInterner keyInterner;
+  private SpanNameNormalizer spanNameNormalizer;
+  private ExceptionCapture exceptionCapture;
+  private EventPool eventPool;
+  private long coalescingThresholdNanos;
+  private SpanContext context;
+
+  private DeferredEntitySpan(final AWSXRayRecorder recorder,
+      final IdGenerator idGenerator,
+      final AnnotationAllowList annotationAllowList,
+      final DeferredEntitySpan root,
+      final String name,
+      final Span.Kind kind,
+      final int traceEpoch,
+      final int traceIdHigh,
+      final long traceIdLow,
+      final boolean sampled,
+      final long startTimestamp) {
+    this.recorder = recorder;
+    this.idGenerator = idGenerator;
+    this.annotationAllowList = annotationAllowList;
+    this.root = root == null ? this : root;
+    this.name = name;
+    this.kind = kind;
+    this.traceEpoch = traceEpoch;
+    this.traceIdHigh = traceIdHigh;
+    this.traceIdLow = traceIdLow;
+    this.spanId = idGenerator.generateSpanId();
+    this.sampled = sampled;
+    this.startTimestamp = startTimestamp;
+  }
+
+  /**
+   * Begin a deferred span at the root of a new sampled trace.
+   *
+   * @param recorder       the recorder which will emit the trace
+   * @param name           the span's name
+   * @param startTimestamp start time in nanoseconds
+   * @param kind           the OpenTelemetry span kind
+   * @return the span
+   */
+  public static DeferredEntitySpan beginRoot(final AWSXRayRecorder recorder,
+      final String name,
+      final long startTimestamp,
+      final Span.Kind kind) {
+    return beginRoot(recorder, name, startTimestamp, kind, IdGenerator.random());
+  }
+
+  /**
+   * Begin a deferred span at the root of a new sampled trace.
+   *
+   * @param recorder       the recorder which will emit the trace
+   * @param name           the span's name
+   * @param startTimestamp start time in nanoseconds
+   * @param kind           the OpenTelemetry span kind
+   * @param idGenerator    the generator for the trace's IDs
+   * @return the span
+   */
+  public static DeferredEntitySpan beginRoot(final AWSXRayRecorder recorder,
+      final String name,
+      final long startTimestamp,
+      final Span.Kind kind,
+      final IdGenerator idGenerator) {
+    return beginRoot(recorder, name, startTimestamp, kind, idGenerator, null);
+  }
+
+  /**
+   * Begin a deferred span at the root of a new sampled trace.
+   *
+   * @param recorder            the recorder which will emit the trace
+   * @param name                the span's name
+   * @param startTimestamp      start time in nanoseconds
+   * @param kind                the OpenTelemetry span kind
+   * @param idGenerator         the generator for the trace's IDs
+   * @param annotationAllowList the attributes to promote to annotations, or null for none
+   * @return the span
+   */
+  public static DeferredEntitySpan beginRoot(final AWSXRayRecorder recorder,
+      final String name,
+      final long startTimestamp,
+      final Span.Kind kind,
+      final IdGenerator idGenerator,
+      final AnnotationAllowList annotationAllowList) {
+    return newRoot(recorder, name, startTimestamp, kind, idGenerator, annotationAllowList, true);
+  }
+
+  /**
+   * Begin a deferred span at the root of a new trace which is not sampled. The span and its
+   * children record nothing beyond their IDs, which are still propagated.
+   *
+   * @param recorder       the recorder
+   * @param name           the span's name
+   * @param startTimestamp start time in nanoseconds
+   * @param kind           the OpenTelemetry span kind
+   * @param idGenerator    the generator for the trace's IDs
+   * @return the span
+   */
+  static DeferredEntitySpan beginUnsampledRoot(final AWSXRayRecorder recorder,
+      final String name,
+      final long startTimestamp,
+      final Span.Kind kind,
+      final IdGenerator idGenerator) {
+    return newRoot(recorder, name, startTimestamp, kind, idGenerator, null, false);
+  }
+
+  private static DeferredEntitySpan newRoot(final AWSXRayRecorder recorder,
+      final String name,
+      final long startTimestamp,
+      final Span.Kind kind,
+      final IdGenerator idGenerator,
+      final AnnotationAllowList annotationAllowList,
+      final boolean sampled) {
+    int epoch = (int) (startTimestamp / 1000000000L);
+    return new DeferredEntitySpan(recorder, idGenerator, annotationAllowList, null, name, kind,
+        epoch, idGenerator.generateTraceIdHigh(), idGenerator.generateTraceIdLow(), sampled,
+        startTimestamp);
+  }
+
+  /**
+   * Begin a child of this span. If this span has already been materialized the child is created
+   * directly as an {@link EntitySpan}.
+   *
+   * @param childName      the child's name
+   * @param childStart     start time in nanoseconds
+   * @param childKind      the OpenTelemetry span kind
+   * @return the span
+   */
+  public Span beginChild(final String childName, final long childStart,
+      final Span.Kind childKind) {
+    synchronized (root) {
+      if (materialized != null) {
+        return EntitySpan
+            .beginSubsegment(recorder, childName, materialized, childStart, childKind);
+      }
+
+      DeferredEntitySpan child = new DeferredEntitySpan(recorder, idGenerator,
+          annotationAllowList, root, childName, childKind, traceEpoch, traceIdHigh, traceIdLow,
+          sampled, childStart);
+      if (sampled) {
+        if (children == null) {
+          children = new ArrayList<>(INITIAL_CHILDREN);
+        }
+        children.add(child);
+      }
+      return child;
+    }
+  }
+
+  /**
+   * Begin several sibling children of this span at once, holding the trace's lock only once. If
+   * this span has already been materialized the children are created directly as
+   * {@link EntitySpan}s.
+   *
+   * @param childName      the children's name
+   * @param childStart     start time in nanoseconds, shared by all of the children
+   * @param childKind      the OpenTelemetry span kind
+   * @param count          the number of children
+   * @return the spans
+   */
+  public List<Span> beginChildren(final String childName, final long childStart,
+      final Span.Kind childKind, final int count) {
+    synchronized (root) {
+      if (materialized != null) {
+        return new ArrayList<>(EntitySpan
+            .beginSubsegments(recorder, childName, materialized, childStart, childKind, count));
+      }
+
+      List<Span> spans = new ArrayList<>(count);
+      if (sampled && children == null) {
+        children = new ArrayList<>(Math.max(INITIAL_CHILDREN, count));
+      }
+      for (int i = 0; i < count; i++) {
+        DeferredEntitySpan child = new DeferredEntitySpan(recorder, idGenerator,
+            annotationAllowList, root, childName, childKind, traceEpoch, traceIdHigh, traceIdLow,
+            sampled, childStart);
+        if (sampled) {
+          children.add(child);
+        }
+        spans.add(child);
+      }
+      return spans;
+    }
+  }
+
+  @Override
+  public void setAttribute(final String key, final String value) {
+    if (isRecording() && !isAttributeShed(key)) {
+      synchronized (root) {
+        if (materialized != null) {
+          materialized.setAttribute(key, value);
+        } else {
+          attributes().put(internKey(key), value);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void setAttribute(final String key, final long value) {
+    if (isRecording() && !isAttributeShed(key)) {
+      synchronized (root) {
+        if (materialized != null) {
+          materialized.setAttribute(key, value);
+        } else {
+          attributes().put(internKey(key), value);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void setAttribute(final String key, final double value) {
+    if (isRecording() && !isAttributeShed(key)) {
+      synchronized (root) {
+        if (materialized != null) {
+          materialized.setAttribute(key, value);
+        } else {
+          attributes().put(internKey(key), value);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void setAttribute(final String key, final boolean value) {
+    if (isRecording() && !isAttributeShed(key)) {
+      synchronized (root) {
+        if (materialized != null) {
+          materialized.setAttribute(key, value);
+        } else {
+          attributes().put(internKey(key), value);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void setAttribute(final String key, final AttributeValue value) {
+    switch (value.getType()) {
+      case STRING:
+        setAttribute(key, value.getStringValue());
+        break;
+      case LONG:
+        setAttribute(key, value.getLongValue());
+        break;
+      case DOUBLE:
+        setAttribute(key, value.getDoubleValue());
+        break;
+      case BOOLEAN:
+        setAttribute(key, value.getBooleanValue());
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Set an array-valued attribute. The array is copied.
+   *
+   * @param key the attribute key
+   * @param values the values
+   * @see EntitySpan#setAttribute(String, String[])
+   */
+  public void setAttribute(final String key, final String[] values) {
+    if (isRecording() && !isAttributeShed(key)) {
+      synchronized (root) {
+        if (materialized != null) {
+          materialized.setAttribute(key, values);
+        } else {
+          attributes().put(internKey(key), values);
+        }
+      }
+    }
+  }
+
+  /**
+   * Set an array-valued attribute. The array is copied.
+   *
+   * @param key the attribute key
+   * @param values the values
+   */
+  public void setAttribute(final String key, final long[] values) {
+    if (isRecording() && !isAttributeShed(key)) {
+      synchronized (root) {
+        if (materialized != null) {
+          materialized.setAttribute(key, values);
+        } else {
+          attributes().put(internKey(key), values);
+        }
+      }
+    }
+  }
+
+  /**
+   * Set an array-valued attribute. The array is copied.
+   *
+   * @param key the attribute key
+   * @param values the values
+   */
+  public void setAttribute(final String key, final double[] values) {
+    if (isRecording() && !isAttributeShed(key)) {
+      synchronized (root) {
+        if (materialized != null) {
+          materialized.setAttribute(key, values);
+        } else {
+          attributes().put(internKey(key), values);
+        }
+      }
+    }
+  }
+
+  /**
+   * Set an array-valued attribute. The array is copied.
+   *
+   * @param key the attribute key
+   * @param values the values
+   */
+  public void setAttribute(final String key, final boolean[] values) {
+    if (isRecording() && !isAttributeShed(key)) {
+      synchronized (root) {
+        if (materialized != null) {
+          materialized.setAttribute(key, values);
+        } else {
+          attributes().put(internKey(key), values);
+        }
+      }
+    }
+  }
+
+  private boolean isAttributeShed(final String key) {
+    OverloadGovernor governor = root.overloadGovernor;
+    return governor != null && !governor.shouldRecordAttribute(key);
+  }
+
+  private String internKey(final String key) {
+    KeyInterner interner = root.keyInterner;
+    return interner == null ? key : interner.intern(key);
+  }
+
+  private boolean isEventShed() {
+    OverloadGovernor governor = root.overloadGovernor;
+    return governor != null && !governor.shouldRecordEvent();
+  }
+
+  /** Must be called holding the root's lock. */
+  private EntityAttributes attributes() {
+    if (attributes == null) {
+      attributes = new EntityAttributes();
+    }
+    return attributes;
+  }
+
+  @Override
+  public void addEvent(final String name) {
+    if (isRecording() && !isEventShed()) {
+      recordEvent(newEvent(name, Collections.emptyMap(), TimeUtils.currentEpochNanos()));
+    }
+  }
+
+  @Override
+  public void addEvent(final String name, final long timestamp) {
+    if (isRecording() && !isEventShed()) {
+      recordEvent(newEvent(name, Collections.emptyMap(), timestamp));
+    }
+  }
+
+  @Override
+  public void addEvent(final String name, final Map<String, AttributeValue> attributes) {
+    if (isRecording() && !isEventShed()) {
+      recordEvent(newEvent(name, attributes, TimeUtils.currentEpochNanos()));
+    }
+  }
+
+  @Override
+  public void addEvent(final String name, final Map<String, AttributeValue> attributes,
+      final long timestamp) {
+    if (isRecording() && !isEventShed()) {
+      recordEvent(newEvent(name, attributes, timestamp));
+    }
+  }
+
+  @Override
+  public void addEvent(final Event event) {
+    if (isRecording() && !isEventShed()) {
+      recordEvent(newEvent(event.getName(), event.getAttributes(),
+          TimeUtils.currentEpochNanos()));
+    }
+  }
+
+  @Override
+  public void addEvent(final Event event, final long timestamp) {
+    if (isRecording() && !isEventShed()) {
+      recordEvent(newEvent(event.getName(), event.getAttributes(), timestamp));
+    }
+  }
+
+  private EntityMetadataEvent newEvent(final String name,
+      final Map<String, AttributeValue> attributes, final long timestamp) {
+    String eventName = internKey(name);
+    EventPool pool = root.eventPool;
+    if (pool != null) {
+      return pool.acquire(eventName, attributes, timestamp);
+    }
+    return EntityMetadataEvent.create(eventName, attributes, timestamp);
+  }
+
+  private void recordEvent(final EntityMetadataEvent event) {
+    synchronized (root) {
+      if (materialized != null) {
+        materialized.recordEvent(event);
+        return;
+      }
+      if (events == null) {
+        events = new ArrayList<>(INITIAL_CHILDREN);
+      }
+      events.add(event);
+    }
+  }
+
+  @Override
+  public void setStatus(final Status status) {
+    if (isRecording()) {
+      synchronized (root) {
+        if (materialized != null) {
+          materialized.setStatus(status);
+        } else {
+          this.status = status;
+        }
+      }
+    }
+  }
+
+  /**
+   * Record an exception into this span's entity once it is materialized.
+   *
+   * @param throwable the exception
+   * @see EntitySpan#recordException(Throwable)
+   */
+  public void recordException(final Throwable throwable) {
+    if (isRecording()) {
+      synchronized (root) {
+        if (materialized != null) {
+          materialized.recordException(throwable);
+        } else {
+          if (exceptions == null) {
+            exceptions = new ArrayList<>(1);
+          }
+          exceptions.add(throwable);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void updateName(final String name) {
+    synchronized (root) {
+      if (materialized == null) {
+        SpanNameNormalizer normalizer = root.spanNameNormalizer;
+        this.name = internKey(normalizer == null ? name : normalizer.normalize(name));
+      }
+    }
+  }
+
+  @Override
+  public void end() {
+    end(TimeUtils.currentEpochNanos());
+  }
+
+  @Override
+  public void end(final EndSpanOptions endOptions) {
+    if (endOptions != null && endOptions.getEndTimestamp() != 0) {
+      end(endOptions.getEndTimestamp());
+    } else {
+      end();
+    }
+  }
+
+  private void end(final long timestamp) {
+    synchronized (root) {
+      if (ended) {
+        return;
+      }
+      ended = true;
+      endTimestamp = timestamp;
+
+      if (materialized != null) {
+        materialized.end(EndSpanOptions.builder().setEndTimestamp(endTimestamp).build());
+      } else if (sampled && root == this) {
+        materialize(null);
+      }
+    }
+  }
+
+  /**
+   * Create X-Ray entities for this span and its children, replay everything recorded so far and
+   * end the entities of spans which have already ended. Must be called holding the root's lock.
+   */
+  private void materialize(final EntitySpan parent) {
+    EntitySpan span;
+    if (parent == null) {
+      span = EntitySpan.beginSegment(recorder, name,
+          IdUtils.toTraceID(traceEpoch, traceIdHigh, traceIdLow), startTimestamp, kind);
+      span.setAnnotationAllowList(annotationAllowList);
+      span.setOverloadGovernor(overloadGovernor);
+      span.setKeyInterner(keyInterner);
+      span.setExceptionCapture(exceptionCapture);
+      span.setEventPool(eventPool);
+      span.setCoalescingThreshold(coalescingThresholdNanos);
+    } else {
+      span = EntitySpan.beginSubsegment(recorder, name, parent, startTimestamp, kind);
+    }
+
+    Entity entity = span.getXrayEntity();
+    entity.setId(IdUtils.toHex(spanId));
+
+    if (attributes != null) {
+      span.setAttributes(attributes);
+    }
+    if (events != null) {
+      for (EntityMetadataEvent event : events) {
+        span.recordEvent(event);
+      }
+    }
+    if (exceptions != null) {
+      for (Throwable exception : exceptions) {
+        span.recordException(exception);
+      }
+    }
+    // The status goes last so that it decides the fault and error flags
+    if (status != null) {
+      span.setStatus(status);
+    }
+
+    attributes = null;
+    events = null;
+    exceptions = null;
+    materialized = span;
+
+    if (children != null) {
+      for (DeferredEntitySpan child : children) {
+        child.materialize(span);
+      }
+      children = null;
+    }
+
+    if (ended) {
+      span.end(EndSpanOptions.builder().setEndTimestamp(endTimestamp).build());
+    }
+  }
+
+  @Override
+  public SpanContext getContext() {
+    if (context == null) {
+      context = SpanContext.create(
+          IdUtils.toOtTraceId(traceEpoch, traceIdHigh, traceIdLow), new SpanId(spanId),
+          sampled ? SAMPLED : NOT_SAMPLED, Tracestate.getDefault());
+    }
+    return context;
+  }
+
+  @Override
+  public boolean isRecording() {
+    return sampled && !ended;
+  }
+
+  /**
+   * Return the start time of this span.
+   *
+   * @return the start time in epoch nanoseconds
+   */
+  public long getStartEpochNanos() {
+    return startTimestamp;
+  }
+
+  /**
+   * Return the end time of this span.
+   *
+   * @return the end time in epoch nanoseconds, or 0 if the span has not ended
+   */
+  public long getEndEpochNanos() {
+    synchronized (root) {
+      return endTimestamp;
+    }
+  }
+
+  /**
+   * Return the exact duration of this span, or the time elapsed so far if it has not ended.
+   *
+   * @return the duration in nanoseconds
+   */
+  public long getDurationNanos() {
+    long end = getEndEpochNanos();
+    if (end == 0) {
+      end = TimeUtils.currentEpochNanos();
+    }
+    return end - startTimestamp;
+  }
+
+  /**
+   * Return the X-Ray entity backing this span, or null if it has not been materialized.
+   *
+   * @return the entity or null
+   */
+  public Entity getXrayEntity() {
+    synchronized (root) {
+      return materialized == null ? null : materialized.getXrayEntity();
+    }
+  }
+
+  /**
+   * Shed events and attributes of this trace as directed by the governor. Must be called on the
+   * root before the span is published.
+   *
+   * @param overloadGovernor the governor or null to record everything
+   */
+  void setOverloadGovernor(final OverloadGovernor overloadGovernor) {
+    this.overloadGovernor = overloadGovernor;
+  }
+
+  /**
+   * Store attribute keys, event names and span names of this trace as their canonical instances
+   * from the interner. Must be called on the root before the span is published.
+   *
+   * @param keyInterner the interner or null to store keys as given
+   */
+  void setKeyInterner(final KeyInterner keyInterner) {
+    this.keyInterner = keyInterner;
+  }
+
+  /**
+   * Normalize names this trace's spans are renamed to. Must be called on the root before the span
+   * is published.
+   *
+   * @param spanNameNormalizer the normalizer or null to keep names as given
+   */
+  void setSpanNameNormalizer(final SpanNameNormalizer spanNameNormalizer) {
+    this.spanNameNormalizer = spanNameNormalizer;
+  }
+
+  /**
+   * Record exceptions of this trace through the given capture. Must be called on the root before
+   * the span is published.
+   *
+   * @param exceptionCapture the capture or null to describe every exception in full
+   */
+  void setExceptionCapture(final ExceptionCapture exceptionCapture) {
+    this.exceptionCapture = exceptionCapture;
+  }
+
+  /**
+   * Take this trace's events from the given pool, before and after it is materialized. Must be
+   * called on the root before the span is published.
+   *
+   * @param eventPool the pool or null to allocate events
+   */
+  void setEventPool(final EventPool eventPool) {
+    this.eventPool = eventPool;
+  }
+
+  /**
+   * Fold short internal spans of this trace into aggregates when it is materialized. Must be
+   * called on the root before the span is published.
+   *
+   * @param thresholdNanos the threshold in nanoseconds, or 0 to record every span
+   */
+  void setCoalescingThreshold(final long thresholdNanos) {
+    this.coalescingThresholdNanos = thresholdNanos;
+  }
+}
@@ -5,20 +5,38 @@ import com.amazonaws.xray.entities.DummySegment;
 import com.amazonaws.xray.entities.Entity;
 import com.amazonaws.xray.entities.Segment;
 import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.entities.SubsegmentImpl;
 import com.amazonaws.xray.entities.TraceID;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.AnnotationAllowList;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityAttributes;
 import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadata;
 import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadataEvent;
 import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadataFactory;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EventPool;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.ExceptionCapture;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.KeyInterner;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.SpanAggregate;
+import com.amazonaws.xray.opentelemetry.tracing.overload.OverloadGovernor;
 import com.amazonaws.xray.opentelemetry.tracing.utils.ContextUtils;
+import com.amazonaws.xray.opentelemetry.tracing.utils.HttpAttribute;
+import com.amazonaws.xray.opentelemetry.tracing.utils.IdGenerator;
+import com.amazonaws.xray.opentelemetry.tracing.utils.IdUtils;
+import com.amazonaws.xray.opentelemetry.tracing.utils.StatusUtils;
 import com.amazonaws.xray.opentelemetry.tracing.utils.TimeUtils;
 import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.AttributeValue.Type;
 import io.opentelemetry.trace.EndSpanOptions;
 import io.opentelemetry.trace.Event;
 import io.opentelemetry.trace.Span;
 import io.opentelemetry.trace.SpanContext;
 import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.Status.CanonicalCode;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -35,10 +53,19 @@ public class EntitySpan<T extends Entity> implements Span {
   private final T entity;
   private final EntityMetadata metadata;
   private SpanContext context;
-
-  private EntitySpan(final T entity, final Span.Kind kind) {
+  private long startTimestamp;
+  private long endTimestamp;
+  private EventPool eventPool;
+  private AnnotationAllowList annotationAllowList;
+  private OverloadGovernor overloadGovernor;
+  private KeyInterner keyInterner;
+  private ExceptionCapture exceptionCapture;
+  private long coalescingThresholdNanos;
+
+  private EntitySpan(final T entity, final Span.Kind kind, final long startTimestamp) {
     this.entity = entity;
     this.metadata = EntityMetadataFactory.getOrCreate(entity, kind);
+    this.startTimestamp = startTimestamp;
   }
 
   /**
@@ -63,8 +90,35 @@ public class EntitySpan<T extends Entity> implements Span {
       recorder.setTraceEntity(currentEntity);
     }
 
-    newSegment.setStartTime(TimeUtils.nanoTimeToXrayTimestamp(startTimestamp));
-    return fromEntity(newSegment, kind);
+    return new EntitySpan<>(newSegment, kind, startTimestamp);
+  }
+
+  /**
+   * Begin a span backed by a segment of an existing trace without updating the active Entity in
+   * the X-Ray recorder.
+   *
+   * @param recorder       create the span against this recorder
+   * @param name           the span's name
+   * @param traceId        the ID of the trace the segment belongs to
+   * @param startTimestamp start time in nanoseconds
+   * @param kind           the OpenTelemetry span kind
+   * @return the span
+   */
+  public static EntitySpan beginSegment(final AWSXRayRecorder recorder,
+      final String name,
+      final TraceID traceId,
+      final long startTimestamp,
+      final Span.Kind kind) {
+
+    Entity currentEntity = recorder.getTraceEntity();
+    Segment newSegment = recorder.beginSegment(name, traceId, null);
+    if (currentEntity == null) {
+      recorder.clearTraceEntity();
+    } else {
+      recorder.setTraceEntity(currentEntity);
+    }
+
+    return new EntitySpan<>(newSegment, kind, startTimestamp);
   }
 
   /**
@@ -86,7 +140,6 @@ public class EntitySpan<T extends Entity> implements Span {
     recorder.setTraceEntity(parent.getXrayEntity());
 
     Subsegment newSubsegment = recorder.beginSubsegment(name);
-    newSubsegment.setStartTime(TimeUtils.nanoTimeToXrayTimestamp(startTimestamp));
 
     if (currentEntity == null) {
       recorder.clearTraceEntity();
@@ -94,7 +147,63 @@ public class EntitySpan<T extends Entity> implements Span {
       recorder.setTraceEntity(currentEntity);
     }
 
-    return fromEntity(newSubsegment, kind);
+    return inheritFrom(parent, new EntitySpan<>(newSubsegment, kind, startTimestamp));
+  }
+
+  /**
+   * Begin several sibling spans backed by subsegments of the same parent, without going through
+   * the active Entity in the X-Ray recorder at all. The subsegments are created as the recorder's
+   * thread local context would create them and are added to the parent under a single
+   * acquisition of its subsegment lock.
+   *
+   * @param recorder       create the spans against this recorder
+   * @param name           the spans' name
+   * @param parent         the parent span
+   * @param startTimestamp start time in nanoseconds, shared by all of the spans
+   * @param kind           the OpenTelemetry span kind
+   * @param count          the number of spans
+   * @return the spans
+   */
+  public static List<EntitySpan> beginSubsegments(final AWSXRayRecorder recorder,
+      final String name,
+      final EntitySpan parent,
+      final long startTimestamp,
+      final Span.Kind kind,
+      final int count) {
+    Entity parentEntity = parent.getXrayEntity();
+    Segment parentSegment = parentEntity.getParentSegment();
+
+    Subsegment[] subsegments = new Subsegment[count];
+    for (int i = 0; i < count; i++) {
+      subsegments[i] = new SubsegmentImpl(recorder, name, parentSegment);
+      subsegments[i].setParent(parentEntity);
+    }
+
+    ReentrantLock lock = parentEntity.getSubsegmentsLock();
+    lock.lock();
+    try {
+      for (Subsegment subsegment : subsegments) {
+        parentEntity.addSubsegment(subsegment);
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    List<EntitySpan> spans = new ArrayList<>(count);
+    for (Subsegment subsegment : subsegments) {
+      spans.add(inheritFrom(parent, new EntitySpan<>(subsegment, kind, startTimestamp)));
+    }
+    return spans;
+  }
+
+  private static EntitySpan inheritFrom(final EntitySpan parent, final EntitySpan span) {
+    span.annotationAllowList = parent.annotationAllowList;
+    span.overloadGovernor = parent.overloadGovernor;
+    span.keyInterner = parent.keyInterner;
+    span.exceptionCapture = parent.exceptionCapture;
+    span.eventPool = parent.eventPool;
+    span.coalescingThresholdNanos = parent.coalescingThresholdNanos;
+    return span;
   }
 
   /**
@@ -108,9 +217,24 @@ public class EntitySpan<T extends Entity> implements Span {
   public static EntitySpan beginDummySegment(final AWSXRayRecorder recorder,
       final long startTimestamp,
       final Span.Kind kind) {
-    DummySegment dummySegment = new DummySegment(recorder, new TraceID());
-    dummySegment.setStartTime(TimeUtils.nanoTimeToXrayTimestamp(startTimestamp));
-    return fromEntity(dummySegment, kind);
+    return beginDummySegment(recorder, startTimestamp, kind, IdGenerator.random());
+  }
+
+  /**
+   * Begin a span backed by a dummy segment whose trace ID comes from the given generator.
+   *
+   * @param recorder       create the span against this recorders
+   * @param startTimestamp start time in nanoseconds
+   * @param kind           the OpenTelemetry span kind
+   * @param idGenerator    the generator for the trace ID
+   * @return the span
+   */
+  public static EntitySpan beginDummySegment(final AWSXRayRecorder recorder,
+      final long startTimestamp,
+      final Span.Kind kind,
+      final IdGenerator idGenerator) {
+    DummySegment dummySegment = new DummySegment(recorder, IdUtils.newTraceID(idGenerator));
+    return new EntitySpan<>(dummySegment, kind, startTimestamp);
   }
 
   /**
@@ -131,73 +255,201 @@ public class EntitySpan<T extends Entity> implements Span {
    * @return the span
    */
   public static EntitySpan fromEntity(final Entity entity, final Span.Kind kind) {
-    return new EntitySpan<>(entity, kind);
+    return new EntitySpan<>(entity, kind, 0L);
   }
 
   @Override
   public void setAttribute(final String key, final String value) {
-    setAttributeMetadata(key, value);
+    if (isAttributeShed(key)) {
+      return;
+    }
+    HttpAttribute http = HttpAttribute.forKey(key, Type.STRING);
+    if (http != null) {
+      putHttpAttribute(http, value);
+    }
+    String annotationKey = annotationKey(key);
+    if (annotationKey != null) {
+      entity.putAnnotation(annotationKey, value);
+    }
+    metadata.putAttribute(internKey(key), value);
   }
 
   @Override
   public void setAttribute(final String key, final long value) {
-    setAttributeMetadata(key, value);
+    if (isAttributeShed(key)) {
+      return;
+    }
+    HttpAttribute http = HttpAttribute.forKey(key, Type.LONG);
+    if (http != null) {
+      putHttpAttribute(http, value);
+    }
+    String annotationKey = annotationKey(key);
+    if (annotationKey != null) {
+      entity.putAnnotation(annotationKey, value);
+    }
+    metadata.putAttribute(internKey(key), value);
   }
 
   @Override
   public void setAttribute(final String key, final double value) {
-    setAttributeMetadata(key, value);
+    if (isAttributeShed(key)) {
+      return;
+    }
+    String annotationKey = annotationKey(key);
+    if (annotationKey != null) {
+      entity.putAnnotation(annotationKey, value);
+    }
+    metadata.putAttribute(internKey(key), value);
   }
 
   @Override
   public void setAttribute(final String key, final boolean value) {
-    setAttributeMetadata(key, value);
+    if (isAttributeShed(key)) {
+      return;
+    }
+    String annotationKey = annotationKey(key);
+    if (annotationKey != null) {
+      entity.putAnnotation(annotationKey, value);
+    }
+    metadata.putAttribute(internKey(key), value);
   }
 
   @Override
   public void setAttribute(final String key, final AttributeValue value) {
-    if (AttributeValue.Type.BOOLEAN.equals(value.getType())) {
-      setAttributeMetadata(key, value.getBooleanValue());
+    switch (value.getType()) {
+      case STRING:
+        setAttribute(key, value.getStringValue());
+        break;
+      case LONG:
+        setAttribute(key, value.getLongValue());
+        break;
+      case DOUBLE:
+        setAttribute(key, value.getDoubleValue());
+        break;
+      case BOOLEAN:
+        setAttribute(key, value.getBooleanValue());
+        break;
+      default:
+        break;
     }
+  }
 
-    if (AttributeValue.Type.DOUBLE.equals(value.getType())) {
-      setAttributeMetadata(key, value.getDoubleValue());
+  /**
+   * Set an array-valued attribute. The OpenTelemetry API has no array attribute type yet, so
+   * array values are set through this span directly. The array is copied. Array values are never
+   * promoted to annotations since X-Ray annotations are scalar.
+   *
+   * @param key the attribute key
+   * @param values the values
+   */
+  public void setAttribute(final String key, final String[] values) {
+    if (isAttributeShed(key)) {
+      return;
     }
+    metadata.putAttribute(internKey(key), values);
+  }
 
-    if (AttributeValue.Type.STRING.equals(value.getType())) {
-      setAttributeMetadata(key, value.getStringValue());
+  /**
+   * Set an array-valued attribute. The array is copied.
+   *
+   * @param key the attribute key
+   * @param values the values
+   */
+  public void setAttribute(final String key, final long[] values) {
+    if (isAttributeShed(key)) {
+      return;
     }
+    metadata.putAttribute(internKey(key), values);
+  }
 
-    if (AttributeValue.Type.LONG.equals(value.getType())) {
-      setAttributeMetadata(key, value.getLongValue());
+  /**
+   * Set an array-valued attribute. The array is copied.
+   *
+   * @param key the attribute key
+   * @param values the values
+   */
+  public void setAttribute(final String key, final double[] values) {
+    if (isAttributeShed(key)) {
+      return;
     }
+    metadata.putAttribute(internKey(key), values);
   }
 
-  private void setAttributeMetadata(final String key, final Object value) {
-    switch (key) {
-      case "http.method":
-        if (value instanceof String) {
-          putHttpAttribute("request","method", value);
-        }
-        break;
-      case "http.status_code":
-        if (value instanceof Long) {
-          putHttpAttribute("response","status", value);
-        }
-        break;
-      case "http.url":
-        if (value instanceof String) {
-          putHttpAttribute("request","url", value);
-        }
-        break;
-      default:
-        break;
+  /**
+   * Set an array-valued attribute. The array is copied.
+   *
+   * @param key the attribute key
+   * @param values the values
+   */
+  public void setAttribute(final String key, final boolean[] values) {
+    if (isAttributeShed(key)) {
+      return;
     }
+    metadata.putAttribute(internKey(key), values);
+  }
+
+  /**
+   * Set every attribute in the given columns, applying the same X-Ray mappings as the individual
+   * setters.
+   */
+  void setAttributes(final EntityAttributes attributes) {
+    attributes.forEach(new EntityAttributes.Visitor<RuntimeException>() {
+      @Override
+      public void visitString(final String key, final String value) {
+        setAttribute(key, value);
+      }
+
+      @Override
+      public void visitLong(final String key, final long value) {
+        setAttribute(key, value);
+      }
+
+      @Override
+      public void visitDouble(final String key, final double value) {
+        setAttribute(key, value);
+      }
 
-    metadata.putAttribute(key, value);
+      @Override
+      public void visitBoolean(final String key, final boolean value) {
+        setAttribute(key, value);
+      }
+
+      @Override
+      public void visitStringArray(final String key, final String[] values) {
+        setAttribute(key, values);
+      }
+
+      @Override
+      public void visitLongArray(final String key, final long[] values) {
+        setAttribute(key, values);
+      }
+
+      @Override
+      public void visitDoubleArray(final String key, final double[] values) {
+        setAttribute(key, values);
+      }
+
+      @Override
+      public void visitBooleanArray(final String key, final boolean[] values) {
+        setAttribute(key, values);
+      }
+    });
   }
 
-  private void putHttpAttribute(final String section, final String key, final Object value) {
+  private boolean isAttributeShed(final String key) {
+    return overloadGovernor != null && !overloadGovernor.shouldRecordAttribute(key);
+  }
+
+  private String internKey(final String key) {
+    return keyInterner == null ? key : keyInterner.intern(key);
+  }
+
+  private String annotationKey(final String key) {
+    return annotationAllowList == null ? null : annotationAllowList.annotationKey(key);
+  }
+
+  private void putHttpAttribute(final HttpAttribute attribute, final Object value) {
+    String section = attribute.getSection();
     Map<String,Object> http = entity.getHttp();
 
     @SuppressWarnings(value = "unchecked")
@@ -210,55 +462,101 @@ public class EntitySpan<T extends Entity> implements Span {
       entity.putHttp(section, sectionMap);
     }
 
-    sectionMap.put(key, value);
+    sectionMap.put(attribute.getField(), value);
   }
 
   @Override
   public void addEvent(final String name) {
-    if (isRecording()) {
-      metadata.addEvent(EntityMetadataEvent.create(name));
+    if (isRecording() && !isEventShed()) {
+      metadata.addEvent(newEvent(name, Collections.emptyMap(), TimeUtils.currentEpochNanos()));
     }
   }
 
   @Override
   public void addEvent(final String name, final long timestamp) {
-    if (isRecording()) {
-      metadata.addEvent(EntityMetadataEvent.create(name, timestamp));
+    if (isRecording() && !isEventShed()) {
+      metadata.addEvent(newEvent(name, Collections.emptyMap(), timestamp));
     }
   }
 
   @Override
   public void addEvent(final String name, final Map<String, AttributeValue> attributes) {
-    if (isRecording()) {
-      metadata.addEvent(EntityMetadataEvent.create(name, attributes));
+    if (isRecording() && !isEventShed()) {
+      metadata.addEvent(newEvent(name, attributes, TimeUtils.currentEpochNanos()));
     }
   }
 
   @Override
   public void addEvent(final String name, final Map<String, AttributeValue> attributes,
       final long timestamp) {
-    if (isRecording()) {
-      metadata.addEvent(EntityMetadataEvent.create(name, attributes, timestamp));
+    if (isRecording() && !isEventShed()) {
+      metadata.addEvent(newEvent(name, attributes, timestamp));
     }
   }
 
   @Override
   public void addEvent(final Event event) {
-    if (isRecording()) {
-      metadata.addEvent(EntityMetadataEvent.create(event));
+    if (isRecording() && !isEventShed()) {
+      metadata.addEvent(newEvent(event.getName(), event.getAttributes(),
+          TimeUtils.currentEpochNanos()));
     }
   }
 
   @Override
   public void addEvent(final Event event, final long timestamp) {
+    if (isRecording() && !isEventShed()) {
+      metadata.addEvent(newEvent(event.getName(), event.getAttributes(), timestamp));
+    }
+  }
+
+  private boolean isEventShed() {
+    return overloadGovernor != null && !overloadGovernor.shouldRecordEvent();
+  }
+
+  private EntityMetadataEvent newEvent(final String name,
+      final Map<String, AttributeValue> attributes, final long timestamp) {
+    String eventName = internKey(name);
+    if (eventPool != null) {
+      return eventPool.acquire(eventName, attributes, timestamp);
+    }
+    return EntityMetadataEvent.create(eventName, attributes, timestamp);
+  }
+
+  void recordEvent(final EntityMetadataEvent event) {
     if (isRecording()) {
-      metadata.addEvent(EntityMetadataEvent.create(event, timestamp));
+      metadata.addEvent(event);
     }
   }
 
   @Override
   public void setStatus(final Status status) {
     metadata.setStatus(status);
+
+    // Reflect failures in the flags the X-Ray service map is drawn from
+    CanonicalCode code = status.getCanonicalCode();
+    if (code != CanonicalCode.OK && isRecording()) {
+      boolean fault = StatusUtils.isFault(code);
+      entity.setFault(fault);
+      entity.setError(!fault);
+      entity.setThrottle(StatusUtils.isThrottle(code));
+    }
+  }
+
+  /**
+   * Record an exception into this span's entity and mark the entity as a fault. Descriptions are
+   * cached and throttled by the tracer's {@link ExceptionCapture}, if it has one.
+   *
+   * @param throwable the exception
+   */
+  public void recordException(final Throwable throwable) {
+    if (!isRecording()) {
+      return;
+    }
+    if (exceptionCapture == null) {
+      entity.addException(throwable);
+    } else {
+      exceptionCapture.record(entity, throwable);
+    }
   }
 
   @Override
@@ -269,10 +567,12 @@ public class EntitySpan<T extends Entity> implements Span {
   @Override
   public void end() {
     if (isRecording()) {
-      if (entity.getEndTime() == 0) {
-        entity.setEndTime(TimeUtils.currentXrayNanoTimestamp());
+      if (endTimestamp == 0 && entity.getEndTime() == 0) {
+        endTimestamp = TimeUtils.currentEpochNanos();
       }
+      writeTimestamps();
 
+      long endStart = overloadGovernor == null ? 0L : System.nanoTime();
       AWSXRayRecorder recorder = entity.getCreator();
       Entity previous = recorder.getTraceEntity();
       recorder.setTraceEntity(entity);
@@ -280,24 +580,120 @@ public class EntitySpan<T extends Entity> implements Span {
       if (entity instanceof Segment) {
         recorder.endSegment();
       } else if (entity instanceof Subsegment) {
+        if (isCoalescible()) {
+          coalesce((Subsegment) entity);
+        }
         recorder.endSubsegment();
       }
       if (!entity.equals(previous)) {
         recorder.setTraceEntity(previous);
       }
+      if (overloadGovernor != null) {
+        overloadGovernor.recordSpanEnd(System.nanoTime() - endStart);
+      }
     }
   }
 
   @Override
   public void end(final EndSpanOptions endOptions) {
-    if (endOptions != null) {
-      long endTime = endOptions.getEndTimestamp();
+    if (endOptions != null && isRecording()) {
       //EndTime values are in nanoseconds
-      entity.setEndTime(TimeUtils.nanoTimeToXrayTimestamp(endTime));
+      endTimestamp = endOptions.getEndTimestamp();
     }
     end();
   }
 
+  /**
+   * Return whether this span is short and plain enough to be folded into an aggregate.
+   */
+  private boolean isCoalescible() {
+    return coalescingThresholdNanos > 0
+        && metadata.getKind() == Span.Kind.INTERNAL
+        && metadata.getStatus().isOk()
+        && !entity.isFault() && !entity.isError() && !entity.isThrottle()
+        && entity.getSubsegments().isEmpty()
+        && getDurationNanos() < coalescingThresholdNanos;
+  }
+
+  /**
+   * Fold this span into its parent's aggregate of children with the same name and detach its
+   * subsegment from the parent. The subsegment is still ended through the recorder, so the
+   * segment's reference count and emission are unaffected.
+   */
+  private void coalesce(final Subsegment subsegment) {
+    Entity parent = subsegment.getParent();
+    EntityMetadata parentMetadata = parent == null ? null : EntityMetadataFactory.get(parent);
+    if (parentMetadata == null) {
+      return;
+    }
+    SpanAggregate aggregate = parentMetadata
+        .aggregateFor(subsegment.getName(), () -> beginAggregate(subsegment, parent));
+    parent.removeSubsegment(subsegment);
+    aggregate.add(getStartEpochNanos(), getEndEpochNanos());
+  }
+
+  private static SpanAggregate beginAggregate(final Subsegment folded, final Entity parent) {
+    Subsegment subsegment = new SubsegmentImpl(folded.getCreator(), folded.getName(),
+        folded.getParentSegment());
+    subsegment.setParent(parent);
+    subsegment.setStartTime(folded.getStartTime());
+    subsegment.setEndTime(folded.getEndTime());
+    parent.addSubsegment(subsegment);
+    // Releases the reference the constructor took, the folded span still holds one of its own
+    subsegment.end();
+    return SpanAggregate.create(subsegment);
+  }
+
+  /**
+   * Convert the nanosecond timestamps into X-Ray's double epoch seconds. This is deferred until
+   * the entity is about to be serialized so the span keeps full precision until then.
+   */
+  private void writeTimestamps() {
+    if (startTimestamp != 0) {
+      entity.setStartTime(TimeUtils.toXrayTimestamp(startTimestamp));
+    }
+    if (endTimestamp != 0) {
+      entity.setEndTime(TimeUtils.toXrayTimestamp(endTimestamp));
+    }
+  }
+
+  /**
+   * Return the start time of this span.
+   *
+   * @return the start time in epoch nanoseconds
+   */
+  public long getStartEpochNanos() {
+    if (startTimestamp == 0) {
+      startTimestamp = TimeUtils.xrayTimestampToNanoTime(entity.getStartTime());
+    }
+    return startTimestamp;
+  }
+
+  /**
+   * Return the end time of this span.
+   *
+   * @return the end time in epoch nanoseconds, or 0 if the span has not ended
+   */
+  public long getEndEpochNanos() {
+    if (endTimestamp == 0 && entity.getEndTime() != 0) {
+      endTimestamp = TimeUtils.xrayTimestampToNanoTime(entity.getEndTime());
+    }
+    return endTimestamp;
+  }
+
+  /**
+   * Return the exact duration of this span, or the time elapsed so far if it has not ended.
+   *
+   * @return the duration in nanoseconds
+   */
+  public long getDurationNanos() {
+    long end = getEndEpochNanos();
+    if (end == 0) {
+      end = TimeUtils.currentEpochNanos();
+    }
+    return end - getStartEpochNanos();
+  }
+
   @Override
   public SpanContext getContext() {
     if (context == null) {
@@ -311,6 +707,65 @@ public class EntitySpan<T extends Entity> implements Span {
     return entity.isInProgress();
   }
 
+  /**
+   * Take this span's events from the given pool.
+   *
+   * @param eventPool the pool or null to allocate events
+   */
+  void setEventPool(final EventPool eventPool) {
+    this.eventPool = eventPool;
+  }
+
+  /**
+   * Promote attributes matching the allow-list to annotations on this span's entity. Subsegment
+   * spans begun under this span inherit the allow-list.
+   *
+   * @param annotationAllowList the allow-list or null to promote nothing
+   */
+  void setAnnotationAllowList(final AnnotationAllowList annotationAllowList) {
+    this.annotationAllowList = annotationAllowList;
+  }
+
+  /**
+   * Shed events and attributes as directed by the governor and report the time spent ending this
+   * span to it. Subsegment spans begun under this span inherit the governor.
+   *
+   * @param overloadGovernor the governor or null to record everything
+   */
+  void setOverloadGovernor(final OverloadGovernor overloadGovernor) {
+    this.overloadGovernor = overloadGovernor;
+  }
+
+  /**
+   * Store attribute keys and event names as their canonical instances from the interner.
+   * Subsegment spans begun under this span inherit the interner.
+   *
+   * @param keyInterner the interner or null to store keys as given
+   */
+  void setKeyInterner(final KeyInterner keyInterner) {
+    this.keyInterner = keyInterner;
+  }
+
+  /**
+   * Record exceptions through the given capture. Subsegment spans begun under this span inherit
+   * the capture.
+   *
+   * @param exceptionCapture the capture or null to describe every exception in full
+   */
+  void setExceptionCapture(final ExceptionCapture exceptionCapture) {
+    this.exceptionCapture = exceptionCapture;
+  }
+
+  /**
+   * Fold internal child spans shorter than the threshold into one aggregate subsegment per name.
+   * Subsegment spans begun under this span inherit the threshold.
+   *
+   * @param thresholdNanos the threshold in nanoseconds, or 0 to record every span
+   */
+  void setCoalescingThreshold(final long thresholdNanos) {
+    this.coalescingThresholdNanos = thresholdNanos;
+  }
+
   public Entity getXrayEntity() {
     return entity;
   }
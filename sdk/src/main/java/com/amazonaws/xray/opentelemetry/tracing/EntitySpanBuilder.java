@@ -1,12 +1,15 @@
 package com.amazonaws.xray.opentelemetry.tracing;
 
 import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.opentelemetry.tracing.overload.OverloadGovernor;
 import com.amazonaws.xray.opentelemetry.tracing.utils.TimeUtils;
 import io.opentelemetry.trace.AttributeValue;
 import io.opentelemetry.trace.Link;
 import io.opentelemetry.trace.Span;
 import io.opentelemetry.trace.SpanContext;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,10 +19,9 @@ import java.util.Map;
  */
 public class EntitySpanBuilder implements Span.Builder {
 
-
-
   private final AWSXRayRecorder recorder;
   private final String name;
+  private final TracerOptions options;
 
   private SpanContext parentContext;
   private Span parentSpan;
@@ -27,10 +29,14 @@ public class EntitySpanBuilder implements Span.Builder {
   private long startTimestamp;
 
   private EntitySpanBuilder(final String name, final AWSXRayRecorder recorder,
-      final Span currentSpan) {
-    this.name = name;
+      final Span currentSpan, final TracerOptions options) {
+    String normalized = options.getSpanNameNormalizer() == null
+        ? name : options.getSpanNameNormalizer().normalize(name);
+    this.name = options.getKeyInterner() == null
+        ? normalized : options.getKeyInterner().intern(normalized);
     this.recorder = recorder;
     this.parentSpan = currentSpan;
+    this.options = options;
   }
 
   /**
@@ -43,25 +49,39 @@ public class EntitySpanBuilder implements Span.Builder {
    */
   public static EntitySpanBuilder create(final String name, final AWSXRayRecorder recorder,
       final Span currentSpan) {
-    return new EntitySpanBuilder(name, recorder, currentSpan);
+    return create(name, recorder, currentSpan, TracerOptions.defaults());
+  }
+
+  /**
+   * Create a factory using the given recorder and options.
+   *
+   * @param name        the name of the span to create
+   * @param recorder    the recorder to use
+   * @param currentSpan the current span or null
+   * @param options     the tracer options
+   * @return the builder
+   */
+  public static EntitySpanBuilder create(final String name, final AWSXRayRecorder recorder,
+      final Span currentSpan, final TracerOptions options) {
+    return new EntitySpanBuilder(name, recorder, currentSpan, options);
   }
 
   @Override
-  public Span.Builder setParent(final Span span) {
+  public EntitySpanBuilder setParent(final Span span) {
     this.parentSpan = span;
     this.parentContext = null;
     return this;
   }
 
   @Override
-  public Span.Builder setParent(final SpanContext spanContext) {
+  public EntitySpanBuilder setParent(final SpanContext spanContext) {
     this.parentContext = spanContext;
     this.parentSpan = null;
     return this;
   }
 
   @Override
-  public Span.Builder setNoParent() {
+  public EntitySpanBuilder setNoParent() {
     parentContext = null;
     parentSpan = null;
     return this;
@@ -71,29 +91,29 @@ public class EntitySpanBuilder implements Span.Builder {
    * Segment linking is not supported by X-Ray
    */
   @Override
-  public Span.Builder addLink(final SpanContext spanContext) {
+  public EntitySpanBuilder addLink(final SpanContext spanContext) {
     return this;
   }
 
   @Override
-  public Span.Builder addLink(final SpanContext spanContext,
+  public EntitySpanBuilder addLink(final SpanContext spanContext,
       final Map<String, AttributeValue> map) {
     return this;
   }
 
   @Override
-  public Span.Builder addLink(final Link link) {
+  public EntitySpanBuilder addLink(final Link link) {
     return this;
   }
 
   @Override
-  public Span.Builder setSpanKind(final Span.Kind kind) {
+  public EntitySpanBuilder setSpanKind(final Span.Kind kind) {
     this.kind = kind;
     return this;
   }
 
   @Override
-  public Span.Builder setStartTimestamp(final long startTimestamp) {
+  public EntitySpanBuilder setStartTimestamp(final long startTimestamp) {
     this.startTimestamp = startTimestamp;
     return this;
   }
@@ -101,14 +121,96 @@ public class EntitySpanBuilder implements Span.Builder {
   @Override
   public Span startSpan() {
     if (startTimestamp == 0) {
-      startTimestamp = TimeUtils.getCurrentNanoTime();
+      startTimestamp = TimeUtils.currentEpochNanos();
+    }
+
+    OverloadGovernor governor = options.getOverloadGovernor();
+    if (governor != null) {
+      governor.recordSpanStart();
     }
 
-    if (parentContext != null || parentSpan == null) {
-      return EntitySpan.beginSegment(recorder, name, startTimestamp, kind);
+    if (parentContext == null && parentSpan instanceof DeferredEntitySpan) {
+      return ((DeferredEntitySpan) parentSpan).beginChild(name, startTimestamp, kind);
+    } else if (parentContext == null && parentSpan instanceof EntitySpan) {
+      return withEventPool(EntitySpan
+          .beginSubsegment(recorder, name, (EntitySpan) parentSpan, startTimestamp, kind));
+    } else if (governor != null && !governor.shouldSampleTrace()) {
+      // A shed trace still propagates its IDs but records nothing, whatever the entity mode
+      return DeferredEntitySpan
+          .beginUnsampledRoot(recorder, name, startTimestamp, kind, options.getIdGenerator());
+    } else if (options.isDeferredEntities()) {
+      DeferredEntitySpan span = DeferredEntitySpan
+          .beginRoot(recorder, name, startTimestamp, kind, options.getIdGenerator(),
+              options.getAnnotationAllowList());
+      span.setOverloadGovernor(governor);
+      span.setKeyInterner(options.getKeyInterner());
+      span.setSpanNameNormalizer(options.getSpanNameNormalizer());
+      span.setExceptionCapture(options.getExceptionCapture());
+      span.setEventPool(options.getEventPool());
+      span.setCoalescingThreshold(options.getCoalescingThresholdNanos());
+      return span;
     } else {
-      return EntitySpan
-          .beginSubsegment(recorder, name, (EntitySpan) parentSpan, startTimestamp, kind);
+      EntitySpan span = EntitySpan.beginSegment(recorder, name, startTimestamp, kind);
+      span.setAnnotationAllowList(options.getAnnotationAllowList());
+      span.setOverloadGovernor(governor);
+      span.setKeyInterner(options.getKeyInterner());
+      span.setExceptionCapture(options.getExceptionCapture());
+      span.setCoalescingThreshold(options.getCoalescingThresholdNanos());
+      return withEventPool(span);
+    }
+  }
+
+  /**
+   * Start several sibling spans with this builder's name and kind under the same parent, as a
+   * scatter-gather handler does for each shard it calls. Under an X-Ray or deferred parent the
+   * children are created and attached in one operation rather than one by one. Every child starts
+   * at this builder's start timestamp, or at the time of this call if none was set.
+   *
+   * @param count the number of spans
+   * @return the spans in creation order
+   */
+  public List<Span> startSpans(final int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("The number of spans must not be negative.");
+    }
+    if (startTimestamp == 0) {
+      startTimestamp = TimeUtils.currentEpochNanos();
+    }
+
+    if (parentContext == null && parentSpan instanceof DeferredEntitySpan) {
+      recordSpanStarts(count);
+      return ((DeferredEntitySpan) parentSpan)
+          .beginChildren(name, startTimestamp, kind, count);
+    } else if (parentContext == null && parentSpan instanceof EntitySpan) {
+      recordSpanStarts(count);
+      List<EntitySpan> children = EntitySpan
+          .beginSubsegments(recorder, name, (EntitySpan) parentSpan, startTimestamp, kind, count);
+      List<Span> spans = new ArrayList<>(count);
+      for (EntitySpan child : children) {
+        spans.add(withEventPool(child));
+      }
+      return spans;
+    }
+
+    // Without a local parent each span is a root of its own
+    List<Span> spans = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      spans.add(startSpan());
+    }
+    return spans;
+  }
+
+  private void recordSpanStarts(final int count) {
+    OverloadGovernor governor = options.getOverloadGovernor();
+    if (governor != null) {
+      for (int i = 0; i < count; i++) {
+        governor.recordSpanStart();
+      }
     }
   }
+
+  private EntitySpan withEventPool(final EntitySpan span) {
+    span.setEventPool(options.getEventPool());
+    return span;
+  }
 }
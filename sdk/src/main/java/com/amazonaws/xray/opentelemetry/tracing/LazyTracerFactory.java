@@ -0,0 +1,114 @@
+package com.amazonaws.xray.opentelemetry.tracing;
+
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.BinaryFormat;
+import io.opentelemetry.context.propagation.HttpTextFormat;
+import io.opentelemetry.trace.DefaultSpan;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.Tracer;
+import io.opentelemetry.trace.TracerFactory;
+import java.util.function.Supplier;
+
+/**
+ * A tracer factory which creates its delegate, and with it the X-Ray recorder, only once a span
+ * is about to be started.
+ *
+ * <p>Until then the tracer reports no current span and propagates context with the shared
+ * {@link com.amazonaws.xray.opentelemetry.tracing.propagation.HttpTraceContext}, neither of
+ * which needs a recorder. This keeps sampling rules, the emitter socket, plugins and Jackson off
+ * the startup path of processes which may never trace, such as short-lived serverless functions.
+ *
+ * @see TracingProvider
+ */
+class LazyTracerFactory implements TracerFactory {
+
+  private final Supplier<TracerFactory> factory;
+  private final LazyTracer tracer = new LazyTracer();
+  private volatile Tracer delegate;
+  private String instrumentationName;
+  private String instrumentationVersion;
+
+  LazyTracerFactory(final Supplier<TracerFactory> factory) {
+    this.factory = factory;
+  }
+
+  @Override
+  public Tracer get(final String instrumentationName) {
+    return get(instrumentationName, null);
+  }
+
+  @Override
+  public synchronized Tracer get(final String instrumentationName,
+      final String instrumentationVersion) {
+    if (this.instrumentationName == null) {
+      this.instrumentationName = instrumentationName;
+      this.instrumentationVersion = instrumentationVersion;
+    }
+    return tracer;
+  }
+
+  /**
+   * Return whether the delegate factory has been created.
+   *
+   * @return true if the recorder has been initialized
+   */
+  boolean isInitialized() {
+    return delegate != null;
+  }
+
+  private Tracer delegate() {
+    Tracer result = delegate;
+    if (result == null) {
+      synchronized (this) {
+        result = delegate;
+        if (result == null) {
+          result = factory.get().get(instrumentationName, instrumentationVersion);
+          delegate = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private class LazyTracer implements Tracer {
+
+    @Override
+    public Span getCurrentSpan() {
+      Tracer result = delegate;
+      return result == null ? DefaultSpan.getInvalid() : result.getCurrentSpan();
+    }
+
+    @Override
+    public Scope withSpan(final Span span) {
+      // Spans of this SDK can exist before the first span builder, e.g. from EntitySpan.fromEntity
+      if (delegate != null || span instanceof EntitySpan || span instanceof DeferredEntitySpan) {
+        return delegate().withSpan(span);
+      }
+      return NoopScope.INSTANCE;
+    }
+
+    @Override
+    public Span.Builder spanBuilder(final String name) {
+      return delegate().spanBuilder(name);
+    }
+
+    @Override
+    public BinaryFormat<SpanContext> getBinaryFormat() {
+      return null;
+    }
+
+    @Override
+    public HttpTextFormat<SpanContext> getHttpTextFormat() {
+      return RecorderBackedTracer.HTTP_TRACE_CONTEXT;
+    }
+  }
+
+  private enum NoopScope implements Scope {
+    INSTANCE;
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.amazonaws.xray.opentelemetry.tracing;
 
 import com.amazonaws.xray.AWSXRayRecorder;
 import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EventPool;
 import com.amazonaws.xray.opentelemetry.tracing.propagation.HttpTraceContext;
 import io.opentelemetry.context.Scope;
 import io.opentelemetry.context.propagation.BinaryFormat;
@@ -18,13 +19,16 @@ import io.opentelemetry.trace.Tracer;
  */
 public class RecorderBackedTracer implements Tracer {
 
-  private static final HttpTraceContext HTTP_TRACE_CONTEXT = new HttpTraceContext();
+  static final HttpTraceContext HTTP_TRACE_CONTEXT = new HttpTraceContext();
+
   private AWSXRayRecorder recorder;
+  private final TracerOptions options;
   private Span currentSpan = null;
   private Entity currentEntity = null;
 
-  private RecorderBackedTracer(AWSXRayRecorder recorder) {
+  private RecorderBackedTracer(AWSXRayRecorder recorder, TracerOptions options) {
     this.recorder = recorder;
+    this.options = options;
   }
 
   /**
@@ -34,7 +38,27 @@ public class RecorderBackedTracer implements Tracer {
    * @return a tracer
    */
   public static RecorderBackedTracer fromRecorder(AWSXRayRecorder recorder) {
-    return new RecorderBackedTracer(recorder);
+    return fromRecorder(recorder, TracerOptions.defaults());
+  }
+
+  /**
+   * Create a tracer using a given recorder and options.
+   *
+   * @param recorder the recorder
+   * @param options the tracer options
+   * @return a tracer
+   */
+  public static RecorderBackedTracer fromRecorder(AWSXRayRecorder recorder,
+      TracerOptions options) {
+    EventPool eventPool = options.getEventPool();
+    if (eventPool != null) {
+      synchronized (recorder) {
+        if (!recorder.getSegmentListeners().contains(eventPool)) {
+          recorder.addSegmentListener(eventPool);
+        }
+      }
+    }
+    return new RecorderBackedTracer(recorder, options);
   }
 
   /**
@@ -62,6 +86,8 @@ public class RecorderBackedTracer implements Tracer {
       final EntitySpan adapter = (EntitySpan) span;
       currentSpan = span;
       recorder.setTraceEntity(adapter.getXrayEntity());
+    } else if (span instanceof DeferredEntitySpan) {
+      currentSpan = span;
     }
 
     //Just a rough implementation. There's some talk of separating scope management from
@@ -75,8 +101,8 @@ public class RecorderBackedTracer implements Tracer {
   }
 
   @Override
-  public Span.Builder spanBuilder(final String name) {
-    return EntitySpanBuilder.create(name, recorder, getCurrentSpan());
+  public EntitySpanBuilder spanBuilder(final String name) {
+    return EntitySpanBuilder.create(name, recorder, getCurrentSpan(), options);
   }
 
   @Override
@@ -2,8 +2,16 @@ package com.amazonaws.xray.opentelemetry.tracing;
 
 import com.amazonaws.xray.AWSXRay;
 import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.config.DaemonConfiguration;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.emitters.UDPEmitter;
 import io.opentelemetry.trace.Tracer;
 import io.opentelemetry.trace.TracerFactory;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * A factory for creating RecorderBackedTracers.
@@ -12,11 +20,13 @@ import io.opentelemetry.trace.TracerFactory;
  */
 public class RecorderBackedTracerFactory implements TracerFactory {
 
-  private final AWSXRayRecorder recorder;
-  private RecorderBackedTracer tracer = null;
+  private final List<AWSXRayRecorder> recorders;
+  private final TracerOptions options;
+  private Tracer tracer = null;
 
-  private RecorderBackedTracerFactory(AWSXRayRecorder recorder) {
-    this.recorder = recorder;
+  private RecorderBackedTracerFactory(List<AWSXRayRecorder> recorders, TracerOptions options) {
+    this.recorders = recorders;
+    this.options = options;
   }
 
   /**
@@ -25,7 +35,104 @@ public class RecorderBackedTracerFactory implements TracerFactory {
    * @return the factory
    */
   public static final RecorderBackedTracerFactory create() {
-    return new RecorderBackedTracerFactory(AWSXRay.getGlobalRecorder());
+    return create(AWSXRay.getGlobalRecorder(), TracerOptions.defaults());
+  }
+
+  /**
+   * Create a new tracer factory using the given recorder and options.
+   *
+   * @param recorder the recorder
+   * @param options the tracer options
+   * @return the factory
+   */
+  public static final RecorderBackedTracerFactory create(AWSXRayRecorder recorder,
+      TracerOptions options) {
+    return new RecorderBackedTracerFactory(Collections.singletonList(recorder), options);
+  }
+
+  /**
+   * Create a new tracer factory spreading threads across several copies of the global recorder,
+   * each sending through its own UDP emitter to the daemon address configured in the
+   * environment.
+   *
+   * @param shards the number of recorders
+   * @return the factory
+   * @see #createSharded(AWSXRayRecorder, int, DaemonConfiguration, TracerOptions)
+   */
+  public static final RecorderBackedTracerFactory createSharded(int shards) {
+    return createSharded(shards, TracerOptions.defaults());
+  }
+
+  /**
+   * Create a new tracer factory spreading threads across several copies of the global recorder,
+   * each sending through its own UDP emitter to the daemon address configured in the
+   * environment.
+   *
+   * @param shards the number of recorders
+   * @param options the tracer options
+   * @return the factory
+   * @see #createSharded(AWSXRayRecorder, int, DaemonConfiguration, TracerOptions)
+   */
+  public static final RecorderBackedTracerFactory createSharded(int shards,
+      TracerOptions options) {
+    // Each recorder already opens a UDP emitter for the environment's address, so it is kept
+    return createShards(AWSXRay.getGlobalRecorder(), shards, null, options);
+  }
+
+  /**
+   * Create a new tracer factory spreading threads across several copies of the template, each
+   * sending to the given daemon through its own UDP emitter.
+   *
+   * @param template the recorder whose configuration is copied
+   * @param shards the number of recorders
+   * @param daemon the address of the daemon the recorders send to
+   * @param options the tracer options
+   * @return the factory
+   * @see #createSharded(AWSXRayRecorder, int, Supplier, TracerOptions)
+   */
+  public static final RecorderBackedTracerFactory createSharded(AWSXRayRecorder template,
+      int shards, DaemonConfiguration daemon, TracerOptions options) {
+    return createSharded(template, shards, () -> {
+      try {
+        return new UDPEmitter(daemon);
+      } catch (SocketException e) {
+        throw new IllegalStateException("Unable to create an emitter for a recorder shard.", e);
+      }
+    }, options);
+  }
+
+  /**
+   * Create a new tracer factory spreading threads across several recorders. Every recorder is
+   * configured like the template and shares its sampling strategy, so the sampling budget is
+   * the same as for a single recorder, but each has its own emitter and internal locks. Each
+   * thread is bound to one recorder the first time it uses the tracer.
+   *
+   * <p>A recorder opens a UDP emitter for the environment's daemon address when it is created,
+   * which the given emitter replaces. The X-Ray SDK offers no way to close it, so its socket is
+   * only closed once it is garbage collected.
+   *
+   * @param template the recorder whose configuration is copied
+   * @param shards the number of recorders
+   * @param emitters supplies a new emitter for each recorder
+   * @param options the tracer options
+   * @return the factory
+   */
+  public static final RecorderBackedTracerFactory createSharded(AWSXRayRecorder template,
+      int shards, Supplier<Emitter> emitters, TracerOptions options) {
+    return createShards(template, shards, emitters, options);
+  }
+
+  private static RecorderBackedTracerFactory createShards(AWSXRayRecorder template, int shards,
+      Supplier<Emitter> emitters, TracerOptions options) {
+    if (shards < 1) {
+      throw new IllegalArgumentException("At least one recorder shard is required.");
+    }
+
+    List<AWSXRayRecorder> recorders = new ArrayList<>(shards);
+    for (int i = 0; i < shards; i++) {
+      recorders.add(copyOf(template, emitters == null ? null : emitters.get()));
+    }
+    return new RecorderBackedTracerFactory(Collections.unmodifiableList(recorders), options);
   }
 
   @Override
@@ -38,11 +145,31 @@ public class RecorderBackedTracerFactory implements TracerFactory {
     if (tracer == null) {
       synchronized (this) {
         if (tracer == null) {
-          tracer = RecorderBackedTracer.fromRecorder(recorder);
+          tracer = recorders.size() == 1
+              ? RecorderBackedTracer.fromRecorder(recorders.get(0), options)
+              : new ShardedTracer(recorders, options);
         }
       }
     }
 
     return tracer;
   }
+
+  private static AWSXRayRecorder copyOf(AWSXRayRecorder template, Emitter emitter) {
+    AWSXRayRecorder shard = new AWSXRayRecorder();
+    if (emitter != null) {
+      shard.setEmitter(emitter);
+    }
+    shard.setSamplingStrategy(template.getSamplingStrategy());
+    shard.setStreamingStrategy(template.getStreamingStrategy());
+    shard.setPrioritizationStrategy(template.getPrioritizationStrategy());
+    shard.setThrowableSerializationStrategy(template.getThrowableSerializationStrategy());
+    shard.setContextMissingStrategy(template.getContextMissingStrategy());
+    shard.setSegmentContextResolverChain(template.getSegmentContextResolverChain());
+    shard.addAllSegmentListeners(template.getSegmentListeners());
+    shard.setOrigin(template.getOrigin());
+    shard.getAwsRuntimeContext().putAll(template.getAwsRuntimeContext());
+    shard.getServiceRuntimeContext().putAll(template.getServiceRuntimeContext());
+    return shard;
+  }
 }
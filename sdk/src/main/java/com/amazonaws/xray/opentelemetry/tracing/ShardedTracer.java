@@ -0,0 +1,62 @@
+package com.amazonaws.xray.opentelemetry.tracing;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.BinaryFormat;
+import io.opentelemetry.context.propagation.HttpTextFormat;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.Tracer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A tracer which spreads threads across several recorders. Each thread is assigned a recorder
+ * round-robin the first time it uses the tracer and keeps its own {@link RecorderBackedTracer}
+ * over that recorder, so spans started on a thread are always recorded by the same recorder.
+ *
+ * @see RecorderBackedTracerFactory#createSharded(AWSXRayRecorder, int, java.util.function.Supplier,
+ *     TracerOptions)
+ */
+class ShardedTracer implements Tracer {
+
+  private final List<AWSXRayRecorder> recorders;
+  private final TracerOptions options;
+  private final AtomicInteger nextShard = new AtomicInteger();
+  private final ThreadLocal<RecorderBackedTracer> tracers = ThreadLocal.withInitial(this::assign);
+
+  ShardedTracer(final List<AWSXRayRecorder> recorders, final TracerOptions options) {
+    this.recorders = recorders;
+    this.options = options;
+  }
+
+  @Override
+  public Span getCurrentSpan() {
+    return tracers.get().getCurrentSpan();
+  }
+
+  @Override
+  public Scope withSpan(final Span span) {
+    return tracers.get().withSpan(span);
+  }
+
+  @Override
+  public EntitySpanBuilder spanBuilder(final String name) {
+    return tracers.get().spanBuilder(name);
+  }
+
+  @Override
+  public BinaryFormat<SpanContext> getBinaryFormat() {
+    return tracers.get().getBinaryFormat();
+  }
+
+  @Override
+  public HttpTextFormat<SpanContext> getHttpTextFormat() {
+    return tracers.get().getHttpTextFormat();
+  }
+
+  private RecorderBackedTracer assign() {
+    int shard = Math.floorMod(nextShard.getAndIncrement(), recorders.size());
+    return RecorderBackedTracer.fromRecorder(recorders.get(shard), options);
+  }
+}
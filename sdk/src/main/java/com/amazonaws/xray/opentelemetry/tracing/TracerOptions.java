@@ -0,0 +1,281 @@
+package com.amazonaws.xray.opentelemetry.tracing;
+
+import com.amazonaws.xray.opentelemetry.tracing.metadata.AnnotationAllowList;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EventPool;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.ExceptionCapture;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.KeyInterner;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.SpanNameNormalizer;
+import com.amazonaws.xray.opentelemetry.tracing.overload.OverloadGovernor;
+import com.amazonaws.xray.opentelemetry.tracing.utils.IdGenerator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options controlling how a {@link RecorderBackedTracer} creates and records spans.
+ */
+public class TracerOptions {
+
+  private static final TracerOptions DEFAULTS = builder().build();
+
+  private final boolean deferredEntities;
+  private final IdGenerator idGenerator;
+  private final EventPool eventPool;
+  private final AnnotationAllowList annotationAllowList;
+  private final OverloadGovernor overloadGovernor;
+  private final KeyInterner keyInterner;
+  private final SpanNameNormalizer spanNameNormalizer;
+  private final ExceptionCapture exceptionCapture;
+  private final long coalescingThresholdNanos;
+
+  private TracerOptions(final Builder builder) {
+    this.deferredEntities = builder.deferredEntities;
+    this.idGenerator = builder.idGenerator;
+    this.eventPool = builder.eventPool;
+    this.annotationAllowList = builder.annotationAllowList;
+    this.overloadGovernor = builder.overloadGovernor;
+    this.keyInterner = builder.keyInterner;
+    this.spanNameNormalizer = builder.spanNameNormalizer;
+    this.exceptionCapture = builder.exceptionCapture;
+    this.coalescingThresholdNanos = builder.coalescingThresholdNanos;
+  }
+
+  /**
+   * Return the default options.
+   *
+   * @return the options
+   */
+  public static TracerOptions defaults() {
+    return DEFAULTS;
+  }
+
+  /**
+   * Create a builder for tracer options.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Return whether new traces are recorded into compact span records which are only materialized
+   * as X-Ray entities when the trace is sampled and its root span ends.
+   *
+   * @return true if entity creation is deferred
+   * @see DeferredEntitySpan
+   */
+  public boolean isDeferredEntities() {
+    return deferredEntities;
+  }
+
+  /**
+   * Return the generator used for the IDs of traces and spans created by the SDK.
+   *
+   * @return the ID generator
+   */
+  public IdGenerator getIdGenerator() {
+    return idGenerator;
+  }
+
+  /**
+   * Return the pool span events are taken from, or null if events are not recycled.
+   *
+   * @return the event pool or null
+   */
+  public EventPool getEventPool() {
+    return eventPool;
+  }
+
+  /**
+   * Return the attributes which are promoted to X-Ray annotations, or null if none are.
+   *
+   * @return the allow-list or null
+   */
+  public AnnotationAllowList getAnnotationAllowList() {
+    return annotationAllowList;
+  }
+
+  /**
+   * Return the governor which sheds tracing work under overload, or null if nothing is shed.
+   *
+   * @return the governor or null
+   */
+  public OverloadGovernor getOverloadGovernor() {
+    return overloadGovernor;
+  }
+
+  /**
+   * Return the interner for attribute keys, event names and span names, or null if they are
+   * stored as given.
+   *
+   * @return the interner or null
+   */
+  public KeyInterner getKeyInterner() {
+    return keyInterner;
+  }
+
+  /**
+   * Return the normalizer applied to span names, or null if names are recorded as given.
+   *
+   * @return the normalizer or null
+   */
+  public SpanNameNormalizer getSpanNameNormalizer() {
+    return spanNameNormalizer;
+  }
+
+  /**
+   * Return the capture which records exceptions into entities, or null if every exception is
+   * described in full.
+   *
+   * @return the capture or null
+   */
+  public ExceptionCapture getExceptionCapture() {
+    return exceptionCapture;
+  }
+
+  /**
+   * Return the duration below which internal child spans are folded into aggregates, or 0 if
+   * every span is recorded.
+   *
+   * @return the threshold in nanoseconds
+   */
+  public long getCoalescingThresholdNanos() {
+    return coalescingThresholdNanos;
+  }
+
+  /**
+   * A builder for {@link TracerOptions}.
+   */
+  public static class Builder {
+
+    private boolean deferredEntities;
+    private IdGenerator idGenerator = IdGenerator.random();
+    private EventPool eventPool;
+    private AnnotationAllowList annotationAllowList;
+    private OverloadGovernor overloadGovernor;
+    private KeyInterner keyInterner = KeyInterner.shared();
+    private SpanNameNormalizer spanNameNormalizer;
+    private ExceptionCapture exceptionCapture = ExceptionCapture.shared();
+    private long coalescingThresholdNanos;
+
+    private Builder() {
+    }
+
+    /**
+     * Defer creation of X-Ray entities until the root span of a sampled trace ends.
+     *
+     * @param deferredEntities true to defer entity creation
+     * @return this builder
+     */
+    public Builder withDeferredEntities(final boolean deferredEntities) {
+      this.deferredEntities = deferredEntities;
+      return this;
+    }
+
+    /**
+     * Use the given generator for trace and span IDs.
+     *
+     * @param idGenerator the ID generator
+     * @return this builder
+     */
+    public Builder withIdGenerator(final IdGenerator idGenerator) {
+      this.idGenerator = idGenerator;
+      return this;
+    }
+
+    /**
+     * Take span events from the given pool and return them to it once their segment has been
+     * emitted. See {@link EventPool} for the lifecycle rules this imposes.
+     *
+     * @param eventPool the event pool, or null to allocate every event
+     * @return this builder
+     */
+    public Builder withEventPool(final EventPool eventPool) {
+      this.eventPool = eventPool;
+      return this;
+    }
+
+    /**
+     * Promote attributes matching the allow-list to X-Ray annotations, which can be used in trace
+     * filter expressions. Attributes which do not match cost no more than without an allow-list.
+     *
+     * @param annotationAllowList the allow-list, or null to promote nothing
+     * @return this builder
+     */
+    public Builder withAnnotationAllowList(final AnnotationAllowList annotationAllowList) {
+      this.annotationAllowList = annotationAllowList == null || annotationAllowList.isEmpty()
+          ? null : annotationAllowList;
+      return this;
+    }
+
+    /**
+     * Report span starts and end times to the governor and shed events, attributes and new
+     * traces at the level it sets. A governor may be shared by several tracers.
+     *
+     * @param overloadGovernor the governor, or null to record everything
+     * @return this builder
+     */
+    public Builder withOverloadGovernor(final OverloadGovernor overloadGovernor) {
+      this.overloadGovernor = overloadGovernor;
+      return this;
+    }
+
+    /**
+     * Intern attribute keys, event names and span names with the given interner. Tracers use
+     * {@link KeyInterner#shared()} by default.
+     *
+     * @param keyInterner the interner, or null to store keys as given
+     * @return this builder
+     */
+    public Builder withKeyInterner(final KeyInterner keyInterner) {
+      this.keyInterner = keyInterner;
+      return this;
+    }
+
+    /**
+     * Normalize span names with the given normalizer before they become segment and subsegment
+     * names, which bounds the number of distinct names a tracer records. Off by default.
+     *
+     * @param spanNameNormalizer the normalizer, or null to record names as given
+     * @return this builder
+     */
+    public Builder withSpanNameNormalizer(final SpanNameNormalizer spanNameNormalizer) {
+      this.spanNameNormalizer = spanNameNormalizer;
+      return this;
+    }
+
+    /**
+     * Record exceptions through the given capture, which caches and throttles their descriptions.
+     * Tracers use {@link ExceptionCapture#shared()} by default.
+     *
+     * @param exceptionCapture the capture, or null to describe every exception in full
+     * @return this builder
+     */
+    public Builder withExceptionCapture(final ExceptionCapture exceptionCapture) {
+      this.exceptionCapture = exceptionCapture;
+      return this;
+    }
+
+    /**
+     * Fold {@link io.opentelemetry.trace.Span.Kind#INTERNAL} child spans which end within the
+     * threshold into a single aggregate subsegment per parent and name, which records their
+     * count and total, minimum and maximum duration. Spans with a failing status, a fault, error
+     * or throttle flag, or children of their own are always recorded. Off by default.
+     *
+     * @param threshold the duration, or 0 to record every span
+     * @param unit the unit of the duration
+     * @return this builder
+     * @see com.amazonaws.xray.opentelemetry.tracing.metadata.SpanAggregate
+     */
+    public Builder withSpanCoalescing(final long threshold, final TimeUnit unit) {
+      if (threshold < 0) {
+        throw new IllegalArgumentException("The coalescing threshold must not be negative.");
+      }
+      this.coalescingThresholdNanos = unit.toNanos(threshold);
+      return this;
+    }
+
+    public TracerOptions build() {
+      return new TracerOptions(this);
+    }
+  }
+}
@@ -1,18 +1,56 @@
 package com.amazonaws.xray.opentelemetry.tracing;
 
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.AnnotationAllowList;
 import io.opentelemetry.trace.TracerFactory;
 import io.opentelemetry.trace.spi.TracerFactoryProvider;
 
 /**
  * SPI implementation for making this SDK available via OpenTelemetry.
  *
+ * <p>Set the {@value #RECORDER_SHARDS_PROPERTY} system property to spread threads across that
+ * many copies of the global recorder. Set the {@value #ANNOTATION_ATTRIBUTES_PROPERTY} system
+ * property to a comma separated list of attribute keys, or prefixes ending in {@code *}, to
+ * promote those attributes to X-Ray annotations.
+ *
+ * <p>The global recorder, and with it the sampling rules, emitter and JSON serialization, is only
+ * initialized when the first span is started, which keeps it off the cold start of processes
+ * that may never trace.
+ *
  * @see io.opentelemetry.OpenTelemetry
+ * @see RecorderBackedTracerFactory#createSharded(int)
+ * @see AnnotationAllowList#of(String...)
  */
 public class TracingProvider implements TracerFactoryProvider {
 
+  public static final String RECORDER_SHARDS_PROPERTY =
+      "com.amazonaws.xray.opentelemetry.recorderShards";
+  public static final String ANNOTATION_ATTRIBUTES_PROPERTY =
+      "com.amazonaws.xray.opentelemetry.annotationAttributes";
+
+  /**
+   * Return a tracer factory which initializes the global X-Ray recorder when the first span is
+   * started rather than when the factory is created.
+   *
+   * @return the factory
+   */
   @Override
   public TracerFactory create() {
-    return RecorderBackedTracerFactory.create();
+    return new LazyTracerFactory(TracingProvider::createFactory);
+  }
+
+  private static TracerFactory createFactory() {
+    TracerOptions.Builder options = TracerOptions.builder();
+    String annotationAttributes = System.getProperty(ANNOTATION_ATTRIBUTES_PROPERTY);
+    if (annotationAttributes != null) {
+      options.withAnnotationAllowList(AnnotationAllowList.of(annotationAttributes.split(",")));
+    }
+
+    int shards = Integer.getInteger(RECORDER_SHARDS_PROPERTY, 1);
+    if (shards > 1) {
+      return RecorderBackedTracerFactory.createSharded(shards, options.build());
+    }
+    return RecorderBackedTracerFactory.create(AWSXRay.getGlobalRecorder(), options.build());
   }
 
 }
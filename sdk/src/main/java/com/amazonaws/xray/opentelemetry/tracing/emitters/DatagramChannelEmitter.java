@@ -0,0 +1,295 @@
+package com.amazonaws.xray.opentelemetry.tracing.emitters;
+
+import com.amazonaws.xray.config.DaemonConfiguration;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.opentelemetry.tracing.serializers.EntityWriters;
+import com.amazonaws.xray.opentelemetry.tracing.serializers.ParallelSegmentSerializer;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An emitter which serializes documents straight into a direct buffer reused by each sending
+ * thread and sends them through a connected, non-blocking datagram channel, instead of building a
+ * string, copying it into a new array and handing that to a datagram socket for every document.
+ *
+ * <p>Each thread which sends keeps one buffer the size of the largest datagram. A segment whose
+ * document does not fit is split as the recorder's streaming strategy would split it: its
+ * subsegments are sent as documents of their own, themselves split further if still too large,
+ * and the segment follows without them. Documents which cannot be split, or for which the socket
+ * has no room, are dropped and counted rather than blocking the thread which ended the segment.
+ *
+ * <p>Segments with very large subsegment trees are serialized in parallel by a
+ * {@link ParallelSegmentSerializer} and sent as one document if it fits into a datagram, and split
+ * as above otherwise.
+ */
+public class DatagramChannelEmitter extends Emitter {
+
+  /**
+   * The protocol header and delimiter which precede every document sent to the daemon.
+   */
+  public static final String DOCUMENT_HEADER = PROTOCOL_HEADER + PROTOCOL_DELIMITER;
+
+  private static final Log logger = LogFactory.getLog(DatagramChannelEmitter.class);
+
+  private static final int MAX_DATAGRAM_BYTES = 65507;
+  private static final byte[] DOCUMENT_PREFIX =
+      DOCUMENT_HEADER.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] PARENT_ID_FIELD =
+      ",\"type\":\"subsegment\",\"parent_id\":\"".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] TRACE_ID_FIELD =
+      "\",\"trace_id\":\"".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] DOCUMENT_END = "\"}".getBytes(StandardCharsets.UTF_8);
+
+  private static final ThreadLocal<DocumentBuffer> BUFFERS =
+      ThreadLocal.withInitial(DocumentBuffer::new);
+
+  private final DatagramChannel channel;
+  private final ParallelSegmentSerializer serializer;
+  private final LongAdder split = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  private DatagramChannelEmitter(final DaemonConfiguration config,
+      final ParallelSegmentSerializer serializer) throws IOException {
+    this.serializer = serializer;
+    this.channel = DatagramChannel.open();
+    this.channel.configureBlocking(false);
+    this.channel.connect(config.getAddressForEmitter());
+  }
+
+  /**
+   * Create an emitter for the default daemon address.
+   *
+   * @return the emitter
+   * @throws IOException if the channel cannot be opened
+   */
+  public static DatagramChannelEmitter create() throws IOException {
+    return create(new DaemonConfiguration());
+  }
+
+  /**
+   * Create an emitter for the configured daemon address, which serializes segments with at least
+   * 256 subsegments in parallel on the common pool.
+   *
+   * @param config the daemon configuration
+   * @return the emitter
+   * @throws IOException if the channel cannot be opened
+   */
+  public static DatagramChannelEmitter create(final DaemonConfiguration config)
+      throws IOException {
+    return create(config, ParallelSegmentSerializer.create());
+  }
+
+  /**
+   * Create an emitter for the configured daemon address.
+   *
+   * @param config the daemon configuration
+   * @param serializer the serializer for large segments, or null to serialize every document on
+   *     the thread which sends it
+   * @return the emitter
+   * @throws IOException if the channel cannot be opened
+   */
+  public static DatagramChannelEmitter create(final DaemonConfiguration config,
+      final ParallelSegmentSerializer serializer) throws IOException {
+    return new DatagramChannelEmitter(config, serializer);
+  }
+
+  @Override
+  public boolean sendSegment(final Segment segment) {
+    if (serializer != null && serializer.isParallel(segment)) {
+      byte[] document = serializer.serialize(segment);
+      if (document.length == 0) {
+        dropped.increment();
+        return false;
+      }
+      DocumentBuffer buffer = BUFFERS.get();
+      buffer.reset();
+      try {
+        buffer.write(document);
+        return transmit(buffer);
+      } catch (IOException e) {
+        // Too large for one datagram, so it is split below like any other oversized segment
+      }
+    }
+    return emit(segment, false);
+  }
+
+  @Override
+  public boolean sendSubsegment(final Subsegment subsegment) {
+    return emit(subsegment, true);
+  }
+
+  /**
+   * Return the number of entities whose documents were too large for a datagram and were sent
+   * split into their subsegments.
+   *
+   * @return the split count
+   */
+  public long getSplitCount() {
+    return split.sum();
+  }
+
+  /**
+   * Return the number of documents which could not be serialized or sent.
+   *
+   * @return the dropped count
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  /**
+   * Close the channel.
+   */
+  public void shutdown() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.debug("Unable to close the datagram channel.", e);
+    }
+  }
+
+  private boolean emit(final Entity entity, final boolean subsegment) {
+    DocumentBuffer buffer = BUFFERS.get();
+    if (write(buffer, entity, EntityWriters.full(), subsegment)) {
+      return transmit(buffer);
+    }
+
+    if (buffer.isOverflowed() && !entity.getSubsegments().isEmpty()) {
+      // The children are sent first, leaving the buffer free to write the entity afterwards
+      split.increment();
+      boolean sent = true;
+      for (Subsegment child : entity.getSubsegments()) {
+        sent &= emit(child, true);
+      }
+      if (write(buffer, entity, EntityWriters.withoutSubsegments(), subsegment)) {
+        return transmit(buffer) && sent;
+      }
+    }
+
+    if (buffer.isOverflowed()) {
+      logger.warn("Dropping entity " + entity.getName() + " whose document exceeds the datagram "
+          + "size and cannot be split further.");
+    }
+    dropped.increment();
+    return false;
+  }
+
+  private static boolean write(final DocumentBuffer buffer, final Entity entity,
+      final ObjectWriter writer, final boolean subsegment) {
+    buffer.reset();
+    try {
+      writer.writeValue(buffer, entity);
+      if (subsegment) {
+        // Streamed subsegments name their parent and trace, as Subsegment#streamSerialize does
+        buffer.unwrite(1);
+        buffer.write(PARENT_ID_FIELD);
+        buffer.writeAscii(entity.getParent().getId());
+        buffer.write(TRACE_ID_FIELD);
+        buffer.writeAscii(entity.getParentSegment().getTraceId().toString());
+        buffer.write(DOCUMENT_END);
+      }
+      return true;
+    } catch (IOException e) {
+      if (!buffer.isOverflowed()) {
+        logger.error("Exception while serializing entity.", e);
+      }
+      return false;
+    }
+  }
+
+  private boolean transmit(final DocumentBuffer buffer) {
+    ByteBuffer document = buffer.flip();
+    try {
+      // A non-blocking send writes nothing when the socket buffer is full
+      if (channel.write(document) > 0) {
+        return true;
+      }
+      logger.debug("The socket send buffer is full, dropping document.");
+    } catch (IOException e) {
+      logger.debug("Unable to send document to the X-Ray daemon.", e);
+    }
+    dropped.increment();
+    return false;
+  }
+
+  /**
+   * A stream over a direct buffer holding one datagram, which fails once the datagram is full.
+   */
+  private static final class DocumentBuffer extends OutputStream {
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_BYTES);
+    private boolean overflowed;
+
+    void reset() {
+      buffer.clear();
+      buffer.put(DOCUMENT_PREFIX);
+      overflowed = false;
+    }
+
+    ByteBuffer flip() {
+      buffer.flip();
+      return buffer;
+    }
+
+    boolean isOverflowed() {
+      return overflowed;
+    }
+
+    void unwrite(final int count) {
+      buffer.position(buffer.position() - count);
+    }
+
+    void writeAscii(final String value) throws IOException {
+      ensureRemaining(value.length());
+      for (int i = 0; i < value.length(); i++) {
+        buffer.put((byte) value.charAt(i));
+      }
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      ensureRemaining(1);
+      buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      ensureRemaining(len);
+      buffer.put(b, off, len);
+    }
+
+    private void ensureRemaining(final int length) throws IOException {
+      if (buffer.remaining() < length) {
+        overflowed = true;
+        throw new DocumentTooLargeException();
+      }
+    }
+  }
+
+  /**
+   * Thrown into the JSON generator when a document outgrows its datagram.
+   */
+  private static final class DocumentTooLargeException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private DocumentTooLargeException() {
+      super("The document exceeds the datagram size.");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,297 @@
+package com.amazonaws.xray.opentelemetry.tracing.emitters;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A segmented, append-only log of documents stored in memory-mapped files.
+ *
+ * <p>Each record is laid out as {@code [int length][int crc32][payload]}. Writers reserve space in
+ * the active file with a single atomic add, copy the payload and CRC, and publish the record by
+ * writing its length last. Nothing on the append path forces the mapping to disk, so request
+ * threads never wait on an fsync; the operating system writes dirty pages back on its own and the
+ * data survives a process crash.
+ *
+ * <p>When the active file is full it is sealed and a new file is started. Sealed files are drained
+ * oldest first and deleted once every record has been consumed. If the number of files exceeds
+ * the limit the oldest sealed file is discarded. Files left behind by a previous process are
+ * picked up as sealed files when the log is opened; a torn record ends the replay of its file.
+ * The mapping of a deleted file is released once the garbage collector reclaims its buffer.
+ */
+class SpoolLog {
+
+  private static final Log logger = LogFactory.getLog(SpoolLog.class);
+
+  static final int HEADER_BYTES = 8;
+  private static final String FILE_PREFIX = "spool-";
+  private static final String FILE_SUFFIX = ".log";
+
+  private final Path directory;
+  private final int fileBytes;
+  private final int maxFiles;
+  private final AtomicLong nextSequence = new AtomicLong();
+  private final ConcurrentLinkedDeque<SpoolFile> sealed = new ConcurrentLinkedDeque<>();
+  private final LongAdder discarded = new LongAdder();
+  private final LongAdder corrupt = new LongAdder();
+  private volatile SpoolFile active;
+
+  SpoolLog(final Path directory, final int fileBytes, final int maxFiles) throws IOException {
+    this.directory = directory;
+    this.fileBytes = fileBytes;
+    this.maxFiles = maxFiles;
+
+    Files.createDirectories(directory);
+    recoverExistingFiles();
+    this.active = SpoolFile.create(directory, nextSequence.getAndIncrement(), fileBytes);
+  }
+
+  /**
+   * Append a document to the log.
+   * @param payload the document
+   * @return false if the document does not fit into a spool file or no new file could be created
+   */
+  boolean append(final byte[] payload) {
+    int recordBytes = HEADER_BYTES + payload.length;
+    if (recordBytes > fileBytes) {
+      return false;
+    }
+
+    while (true) {
+      SpoolFile file = active;
+      file.writers.incrementAndGet();
+      // Overflowing writers and rotation keep adding to the reservation, so it is kept as a long
+      // to stay past the end of the file instead of wrapping around
+      long offset = file.reserved.getAndAdd(recordBytes);
+      if (offset + recordBytes <= fileBytes) {
+        try {
+          file.write((int) offset, payload);
+        } finally {
+          file.writers.decrementAndGet();
+        }
+        return true;
+      }
+      file.writers.decrementAndGet();
+      if (!rotate(file)) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Seal the active file so that everything appended so far becomes available to {@link #drain}.
+   */
+  void seal() {
+    SpoolFile file = active;
+    if (file.reserved.get() > 0) {
+      rotate(file);
+    }
+  }
+
+  /**
+   * Offer each record of the sealed files to the consumer, oldest first, deleting files which
+   * have been fully consumed.
+   * @param consumer returns false to stop draining and retry the same record later
+   * @return the number of records consumed
+   */
+  int drain(final Predicate<byte[]> consumer) {
+    return drain(consumer, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Offer at most the given number of records of the sealed files to the consumer, oldest first,
+   * deleting files which have been fully consumed.
+   * @param consumer returns false to stop draining and retry the same record later
+   * @param maxRecords the number of records after which draining stops
+   * @return the number of records consumed
+   */
+  int drain(final Predicate<byte[]> consumer, final int maxRecords) {
+    int consumed = 0;
+    SpoolFile file;
+    while ((file = sealed.peekFirst()) != null) {
+      if (file.writers.get() > 0) {
+        break;
+      }
+
+      byte[] record;
+      while ((record = file.next()) != null) {
+        if (record.length == 0) {
+          corrupt.increment();
+          file.advance();
+          continue;
+        }
+        if (consumed >= maxRecords || !consumer.test(record)) {
+          return consumed;
+        }
+        file.advance();
+        consumed++;
+      }
+
+      sealed.remove(file);
+      file.delete();
+    }
+    return consumed;
+  }
+
+  boolean hasSealed() {
+    return !sealed.isEmpty();
+  }
+
+  boolean isEmpty() {
+    return sealed.isEmpty() && active.reserved.get() == 0;
+  }
+
+  long getDiscardedFileCount() {
+    return discarded.sum();
+  }
+
+  long getCorruptRecordCount() {
+    return corrupt.sum();
+  }
+
+  private synchronized boolean rotate(final SpoolFile full) {
+    if (active != full) {
+      return true;
+    }
+
+    SpoolFile next;
+    try {
+      next = SpoolFile.create(directory, nextSequence.getAndIncrement(), fileBytes);
+    } catch (IOException e) {
+      logger.error("Unable to create spool file in " + directory + ".", e);
+      return false;
+    }
+    // Any writer reserving space after this point overflows and moves on to the next file, and
+    // any writer which reserved space before it is still counted in the file's writers.
+    full.reserved.getAndAdd(fileBytes);
+    active = next;
+    sealed.addLast(full);
+
+    while (sealed.size() + 1 > maxFiles) {
+      SpoolFile oldest = sealed.pollFirst();
+      if (oldest == null) {
+        break;
+      }
+      discarded.increment();
+      oldest.delete();
+    }
+    return true;
+  }
+
+  private void recoverExistingFiles() throws IOException {
+    List<Path> existing = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+        FILE_PREFIX + "*" + FILE_SUFFIX)) {
+      for (Path path : stream) {
+        existing.add(path);
+      }
+    }
+    Collections.sort(existing);
+
+    for (Path path : existing) {
+      String name = path.getFileName().toString();
+      long sequence = Long.parseLong(
+          name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+      nextSequence.set(Math.max(nextSequence.get(), sequence + 1));
+      sealed.addLast(SpoolFile.open(path));
+    }
+  }
+
+  private static class SpoolFile {
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicInteger writers = new AtomicInteger();
+    private int readOffset;
+
+    private SpoolFile(final Path path, final MappedByteBuffer buffer) {
+      this.path = path;
+      this.buffer = buffer;
+    }
+
+    static SpoolFile create(final Path directory, final long sequence, final int bytes)
+        throws IOException {
+      Path path = directory.resolve(String.format("%s%020d%s", FILE_PREFIX, sequence,
+          FILE_SUFFIX));
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        return new SpoolFile(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes));
+      }
+    }
+
+    static SpoolFile open(final Path path) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        return new SpoolFile(path, channel.map(FileChannel.MapMode.READ_WRITE, 0,
+            channel.size()));
+      }
+    }
+
+    void write(final int offset, final byte[] payload) {
+      CRC32 crc = new CRC32();
+      crc.update(payload, 0, payload.length);
+
+      ByteBuffer view = buffer.duplicate();
+      view.position(offset + HEADER_BYTES);
+      view.put(payload);
+      view.putInt(offset + 4, (int) crc.getValue());
+      // Publishing the length last marks the record as complete
+      view.putInt(offset, payload.length);
+    }
+
+    /**
+     * Read the record at the read offset without consuming it.
+     * @return the payload, an empty array for a record failing its CRC check, or null at the end
+     */
+    byte[] next() {
+      if (readOffset + HEADER_BYTES > buffer.capacity()) {
+        return null;
+      }
+      int length = buffer.getInt(readOffset);
+      if (length <= 0 || readOffset + HEADER_BYTES + length > buffer.capacity()) {
+        return null;
+      }
+
+      byte[] payload = new byte[length];
+      ByteBuffer view = buffer.duplicate();
+      view.position(readOffset + HEADER_BYTES);
+      view.get(payload);
+
+      CRC32 crc = new CRC32();
+      crc.update(payload, 0, payload.length);
+      if ((int) crc.getValue() != buffer.getInt(readOffset + 4)) {
+        return new byte[0];
+      }
+      return payload;
+    }
+
+    void advance() {
+      readOffset += HEADER_BYTES + buffer.getInt(readOffset);
+    }
+
+    void delete() {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        logger.warn("Unable to delete spool file " + path, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,264 @@
+package com.amazonaws.xray.opentelemetry.tracing.emitters;
+
+import com.amazonaws.xray.config.DaemonConfiguration;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.opentelemetry.tracing.serializers.ParallelSegmentSerializer;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An emitter which sends documents to the X-Ray daemon over UDP and spools them to a local
+ * append-only log while the daemon is unreachable.
+ *
+ * <p>The daemon is considered unreachable once a send fails or its TCP endpoint stops accepting
+ * connections. From then on documents are appended to the spool instead of the socket, and a
+ * background thread probes the daemon every second. When the daemon answers again the spooled
+ * documents are replayed in order and direct sends resume once the spool is empty. The replay is
+ * paced in batches of 100 documents every 10 milliseconds, so that a daemon which has just
+ * restarted is not flooded with more datagrams than its receive buffer holds. Documents spooled
+ * by a previous process in the same directory are replayed as well.
+ *
+ * <p>Segments with very large subsegment trees are serialized in parallel by a
+ * {@link ParallelSegmentSerializer} on the common fork-join pool.
+ *
+ * <p>UDP gives no delivery guarantee, so documents sent in the short window between the daemon
+ * stopping and the next failed send or probe are still lost.
+ */
+public class SpoolingEmitter extends Emitter {
+
+  private static final Log logger = LogFactory.getLog(SpoolingEmitter.class);
+
+  private static final int DEFAULT_FILE_BYTES = 16 * 1024 * 1024;
+  private static final int DEFAULT_MAX_FILES = 16;
+  private static final int MAX_FILE_BYTES = 1 << 30;
+  private static final int PROBE_TIMEOUT_MILLIS = 200;
+  private static final long PROBE_INTERVAL_MILLIS = 1000L;
+  static final int REPLAY_BATCH_RECORDS = 100;
+  private static final long REPLAY_PAUSE_MILLIS = 10L;
+  private static final byte[] DOCUMENT_PREFIX =
+      (PROTOCOL_HEADER + PROTOCOL_DELIMITER).getBytes(StandardCharsets.UTF_8);
+
+  private final DatagramSocket socket;
+  private final InetSocketAddress daemonTcpAddress;
+  private final SpoolLog spool;
+  private final ParallelSegmentSerializer serializer = ParallelSegmentSerializer.create();
+  private final ScheduledExecutorService replayer;
+  private final LongAdder spooled = new LongAdder();
+  private final LongAdder replayed = new LongAdder();
+  private final LongAdder lost = new LongAdder();
+  private volatile boolean healthy;
+  // Only accessed on the replay thread
+  private boolean batchPending;
+
+  private SpoolingEmitter(final DaemonConfiguration config, final SpoolLog spool,
+      final long probeIntervalMillis) throws IOException {
+    this.socket = new DatagramSocket();
+    this.socket.connect(config.getAddressForEmitter());
+    this.daemonTcpAddress = parseAddress(config.getTCPAddress());
+    this.spool = spool;
+    this.healthy = spool.isEmpty();
+
+    this.replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "xray-spool-replayer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.replayer.scheduleWithFixedDelay(this::replay, probeIntervalMillis, probeIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Create an emitter for the default daemon address, spooling to the given directory.
+   *
+   * @param directory the spool directory, created if missing
+   * @return the emitter
+   * @throws IOException if the socket or spool cannot be opened
+   */
+  public static SpoolingEmitter create(final Path directory) throws IOException {
+    return create(new DaemonConfiguration(), directory, DEFAULT_FILE_BYTES, DEFAULT_MAX_FILES);
+  }
+
+  /**
+   * Create an emitter for the configured daemon address, spooling to the given directory.
+   *
+   * @param config the daemon configuration
+   * @param directory the spool directory, created if missing
+   * @param fileBytes the size of each spool file
+   * @param maxFiles the number of spool files kept before the oldest is discarded
+   * @return the emitter
+   * @throws IOException if the socket or spool cannot be opened
+   */
+  public static SpoolingEmitter create(final DaemonConfiguration config, final Path directory,
+      final int fileBytes, final int maxFiles) throws IOException {
+    return create(config, directory, fileBytes, maxFiles, PROBE_INTERVAL_MILLIS);
+  }
+
+  static SpoolingEmitter create(final DaemonConfiguration config, final Path directory,
+      final int fileBytes, final int maxFiles, final long probeIntervalMillis) throws IOException {
+    if (fileBytes <= SpoolLog.HEADER_BYTES || fileBytes > MAX_FILE_BYTES) {
+      throw new IllegalArgumentException("Spool files must be between " + SpoolLog.HEADER_BYTES
+          + " and " + MAX_FILE_BYTES + " bytes.");
+    }
+    if (maxFiles < 2) {
+      throw new IllegalArgumentException("At least two spool files are required.");
+    }
+    return new SpoolingEmitter(config, new SpoolLog(directory, fileBytes, maxFiles),
+        probeIntervalMillis);
+  }
+
+  @Override
+  public boolean sendSegment(final Segment segment) {
+    return send(serializer.serialize(segment));
+  }
+
+  @Override
+  public boolean sendSubsegment(final Subsegment subsegment) {
+    return send(subsegment.streamSerialize().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Return the number of documents written to the spool.
+   *
+   * @return the spooled count
+   */
+  public long getSpooledCount() {
+    return spooled.sum();
+  }
+
+  /**
+   * Return the number of spooled documents sent to the daemon.
+   *
+   * @return the replayed count
+   */
+  public long getReplayedCount() {
+    return replayed.sum();
+  }
+
+  /**
+   * Return the number of documents which could neither be sent nor spooled.
+   *
+   * @return the lost count
+   */
+  public long getLostCount() {
+    return lost.sum();
+  }
+
+  /**
+   * Return the number of spool files discarded because the spool was full.
+   *
+   * @return the discarded file count
+   */
+  public long getDiscardedFileCount() {
+    return spool.getDiscardedFileCount();
+  }
+
+  /**
+   * Return the number of spooled records skipped on replay because their checksum did not match.
+   *
+   * @return the corrupt record count
+   */
+  public long getCorruptRecordCount() {
+    return spool.getCorruptRecordCount();
+  }
+
+  /**
+   * Stop the replay thread and close the socket. Documents still in the spool are replayed by the
+   * next emitter opened on the same directory.
+   */
+  public void shutdown() {
+    replayer.shutdownNow();
+    socket.close();
+  }
+
+  private boolean send(final byte[] document) {
+    byte[] bytes = Arrays.copyOf(DOCUMENT_PREFIX, DOCUMENT_PREFIX.length + document.length);
+    System.arraycopy(document, 0, bytes, DOCUMENT_PREFIX.length, document.length);
+
+    if (healthy && spool.isEmpty()) {
+      if (sendPacket(bytes)) {
+        return true;
+      }
+      healthy = false;
+    }
+
+    if (spool.append(bytes)) {
+      spooled.increment();
+      return true;
+    }
+    lost.increment();
+    return false;
+  }
+
+  private boolean sendPacket(final byte[] bytes) {
+    try {
+      socket.send(new DatagramPacket(bytes, bytes.length));
+      return true;
+    } catch (IOException e) {
+      logger.debug("Unable to send document to the X-Ray daemon, spooling instead.", e);
+      return false;
+    }
+  }
+
+  private void replay() {
+    if (batchPending) {
+      return;
+    }
+    try {
+      if (!isDaemonReachable()) {
+        healthy = false;
+        return;
+      }
+
+      spool.seal();
+      replayBatch();
+    } catch (RuntimeException e) {
+      logger.error("Unable to replay spooled documents.", e);
+    }
+  }
+
+  private void replayBatch() {
+    batchPending = false;
+    try {
+      int count = spool.drain(this::sendPacket, REPLAY_BATCH_RECORDS);
+      replayed.add(count);
+      if (count == REPLAY_BATCH_RECORDS && spool.hasSealed()) {
+        // Probes are skipped until the spool is caught up, so only one batch is ever pending
+        replayer.schedule(this::replayBatch, REPLAY_PAUSE_MILLIS, TimeUnit.MILLISECONDS);
+        batchPending = true;
+        return;
+      }
+      healthy = !spool.hasSealed();
+    } catch (RuntimeException e) {
+      logger.error("Unable to replay spooled documents.", e);
+    }
+  }
+
+  private boolean isDaemonReachable() {
+    try (Socket probe = new Socket()) {
+      probe.connect(daemonTcpAddress, PROBE_TIMEOUT_MILLIS);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static InetSocketAddress parseAddress(final String address) {
+    int separator = address.lastIndexOf(':');
+    return new InetSocketAddress(address.substring(0, separator),
+        Integer.parseInt(address.substring(separator + 1)));
+  }
+}
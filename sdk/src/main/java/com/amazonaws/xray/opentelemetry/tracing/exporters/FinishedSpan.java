@@ -0,0 +1,47 @@
+package com.amazonaws.xray.opentelemetry.tracing.exporters;
+
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Event;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The recorded data of a span which has ended, as handed to a {@link SpanDocumentExporter}.
+ * Tracers which do not record through the X-Ray recorder, such as an OpenTelemetry SDK with a
+ * batch span processor, export to X-Ray by adapting their span data to this interface.
+ */
+public interface FinishedSpan {
+
+  SpanContext getContext();
+
+  /**
+   * Return the ID of the span's parent.
+   * @return the parent span ID, or an invalid ID if the span is a root
+   */
+  SpanId getParentSpanId();
+
+  /**
+   * Return whether the span's parent was propagated from another process, in which case the span
+   * is exported as a segment rather than as a subsegment of its parent.
+   * @return true if the parent is remote
+   */
+  boolean hasRemoteParent();
+
+  String getName();
+
+  Span.Kind getKind();
+
+  long getStartEpochNanos();
+
+  long getEndEpochNanos();
+
+  Status getStatus();
+
+  Map<String, AttributeValue> getAttributes();
+
+  List<? extends Event> getEvents();
+}
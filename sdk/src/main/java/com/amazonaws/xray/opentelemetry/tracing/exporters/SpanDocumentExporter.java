@@ -0,0 +1,149 @@
+package com.amazonaws.xray.opentelemetry.tracing.exporters;
+
+import com.amazonaws.xray.config.DaemonConfiguration;
+import com.amazonaws.xray.opentelemetry.tracing.emitters.DatagramChannelEmitter;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.AnnotationAllowList;
+import com.amazonaws.xray.opentelemetry.tracing.serializers.SpanDocumentSerializer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An exporter which sends finished spans to the X-Ray daemon over UDP as segment documents,
+ * written by a {@link SpanDocumentSerializer} without building X-Ray entities for them.
+ *
+ * <p>Each span is sent as its own document, in the packet format the recorder's emitters use, so
+ * spans of one trace may arrive in separate batches. Batches are written through a single reused
+ * buffer, which makes the exporter suited to being driven by one thread such as that of a batch
+ * span processor. Documents too large for a datagram are dropped and counted.
+ */
+public class SpanDocumentExporter {
+
+  private static final Log logger = LogFactory.getLog(SpanDocumentExporter.class);
+
+  private static final byte[] DOCUMENT_PREFIX =
+      DatagramChannelEmitter.DOCUMENT_HEADER.getBytes(StandardCharsets.UTF_8);
+  private static final int MAX_DATAGRAM_BYTES = 65507;
+  private static final int INITIAL_BUFFER_BYTES = 4096;
+
+  private final DatagramSocket socket;
+  private final SpanDocumentSerializer serializer;
+  private final DocumentBuffer buffer = new DocumentBuffer();
+  private final DatagramPacket packet = new DatagramPacket(new byte[0], 0);
+  private final LongAdder exported = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  private SpanDocumentExporter(final DaemonConfiguration config,
+      final AnnotationAllowList annotationAllowList) throws SocketException {
+    this.socket = new DatagramSocket();
+    this.socket.connect(config.getAddressForEmitter());
+    this.serializer = SpanDocumentSerializer.create(annotationAllowList);
+  }
+
+  /**
+   * Create an exporter for the default daemon address which records no annotations.
+   *
+   * @return the exporter
+   * @throws SocketException if the socket cannot be opened
+   */
+  public static SpanDocumentExporter create() throws SocketException {
+    return create(new DaemonConfiguration(), AnnotationAllowList.empty());
+  }
+
+  /**
+   * Create an exporter for the configured daemon address.
+   *
+   * @param config the daemon configuration
+   * @param annotationAllowList the attributes promoted to annotations
+   * @return the exporter
+   * @throws SocketException if the socket cannot be opened
+   */
+  public static SpanDocumentExporter create(final DaemonConfiguration config,
+      final AnnotationAllowList annotationAllowList) throws SocketException {
+    return new SpanDocumentExporter(config, annotationAllowList);
+  }
+
+  /**
+   * Send a batch of finished spans, one document each.
+   *
+   * @param spans the spans
+   * @return true if every span was sent
+   */
+  public synchronized boolean export(final Collection<? extends FinishedSpan> spans) {
+    boolean sent = true;
+    for (FinishedSpan span : spans) {
+      if (send(span)) {
+        exported.increment();
+      } else {
+        dropped.increment();
+        sent = false;
+      }
+    }
+    return sent;
+  }
+
+  private boolean send(final FinishedSpan span) {
+    try {
+      buffer.reset();
+      buffer.write(DOCUMENT_PREFIX);
+      serializer.serialize(span, buffer);
+      if (buffer.size() > MAX_DATAGRAM_BYTES) {
+        logger.warn("Dropping span " + span.getName() + " whose document of " + buffer.size()
+            + " bytes exceeds the datagram size.");
+        return false;
+      }
+      packet.setData(buffer.array(), 0, buffer.size());
+      socket.send(packet);
+      return true;
+    } catch (IOException e) {
+      logger.error("Failed to send span " + span.getName() + " to the X-Ray daemon.", e);
+      return false;
+    }
+  }
+
+  /**
+   * Return the number of spans sent to the daemon.
+   *
+   * @return the exported count
+   */
+  public long getExportedCount() {
+    return exported.sum();
+  }
+
+  /**
+   * Return the number of spans which could not be serialized or sent.
+   *
+   * @return the dropped count
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  /**
+   * Close the socket.
+   */
+  public void shutdown() {
+    socket.close();
+  }
+
+  /**
+   * A byte array stream exposing its array, so datagrams are sent without copying it.
+   */
+  private static final class DocumentBuffer extends ByteArrayOutputStream {
+
+    private DocumentBuffer() {
+      super(INITIAL_BUFFER_BYTES);
+    }
+
+    byte[] array() {
+      return buf;
+    }
+  }
+}
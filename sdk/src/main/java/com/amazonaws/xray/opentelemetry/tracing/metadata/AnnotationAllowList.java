@@ -0,0 +1,184 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A set of attribute keys which are promoted to X-Ray annotations so that traces can be filtered
+ * by them. Every attribute is still recorded in the span's metadata as well.
+ *
+ * <p>Keys are matched exactly or by prefix. The list is compiled once: exact keys go into a hash
+ * map holding their annotation key, and prefixes are reduced to a sorted array in which no entry
+ * is a prefix of another, so a single binary search finds the only candidate. Keys whose first
+ * character begins no entry are rejected before either lookup.
+ *
+ * <p>X-Ray annotation keys may only contain letters, digits and underscores, so any other
+ * character in a promoted key is replaced with an underscore, e.g. {@code tenant.id} is annotated
+ * as {@code tenant_id}.
+ */
+public class AnnotationAllowList {
+
+  private static final String PREFIX_WILDCARD = "*";
+
+  private final Map<String, String> exact;
+  private final String[] prefixes;
+  private final long[] firstChars = new long[2];
+  private boolean matchesNonAscii;
+
+  private AnnotationAllowList(final Collection<String> keys, final Collection<String> prefixes) {
+    this.exact = new HashMap<>();
+    for (String key : keys) {
+      exact.put(key, toAnnotationKey(key));
+      addFirstChar(key);
+    }
+
+    List<String> reduced = new ArrayList<>();
+    for (String prefix : new TreeSet<>(prefixes)) {
+      // Sorted order puts a prefix directly before any longer prefixes it covers
+      if (reduced.isEmpty() || !prefix.startsWith(reduced.get(reduced.size() - 1))) {
+        reduced.add(prefix);
+        addFirstChar(prefix);
+      }
+    }
+    this.prefixes = reduced.toArray(new String[0]);
+  }
+
+  /**
+   * Compile an allow-list from patterns. A pattern ending in {@code *} matches every key starting
+   * with the rest of the pattern, any other pattern matches only that exact key.
+   *
+   * @param patterns the patterns
+   * @return the allow-list
+   */
+  public static AnnotationAllowList of(final String... patterns) {
+    return of(Arrays.asList(patterns));
+  }
+
+  /**
+   * Compile an allow-list from patterns.
+   *
+   * @param patterns the patterns
+   * @return the allow-list
+   * @see #of(String...)
+   */
+  public static AnnotationAllowList of(final Collection<String> patterns) {
+    List<String> keys = new ArrayList<>();
+    List<String> prefixes = new ArrayList<>();
+    for (String pattern : patterns) {
+      String trimmed = pattern.trim();
+      if (trimmed.endsWith(PREFIX_WILDCARD)) {
+        prefixes.add(trimmed.substring(0, trimmed.length() - PREFIX_WILDCARD.length()));
+      } else if (!trimmed.isEmpty()) {
+        keys.add(trimmed);
+      }
+    }
+    return create(keys, prefixes);
+  }
+
+  /**
+   * Compile an allow-list from exact keys and prefixes.
+   *
+   * @param keys the keys to match exactly
+   * @param prefixes the prefixes to match
+   * @return the allow-list
+   */
+  public static AnnotationAllowList create(final Collection<String> keys,
+      final Collection<String> prefixes) {
+    return new AnnotationAllowList(keys, prefixes);
+  }
+
+  /**
+   * Return an allow-list which promotes nothing.
+   *
+   * @return the allow-list
+   */
+  public static AnnotationAllowList empty() {
+    return create(Collections.emptyList(), Collections.emptyList());
+  }
+
+  /**
+   * Return the annotation key for an attribute key.
+   *
+   * @param attributeKey the attribute key
+   * @return the annotation key, or null if the attribute is not promoted
+   */
+  public String annotationKey(final String attributeKey) {
+    if (attributeKey.isEmpty()) {
+      return prefixes.length > 0 && prefixes[0].isEmpty() ? "" : null;
+    }
+    if (!mayMatch(attributeKey.charAt(0))) {
+      return null;
+    }
+
+    String annotationKey = exact.get(attributeKey);
+    if (annotationKey != null) {
+      return annotationKey;
+    }
+
+    int index = Arrays.binarySearch(prefixes, attributeKey);
+    if (index < 0) {
+      // The greatest prefix not after the key is the only one which can match it
+      index = -index - 2;
+    }
+    if (index >= 0 && attributeKey.startsWith(prefixes[index])) {
+      return toAnnotationKey(attributeKey);
+    }
+    return null;
+  }
+
+  /**
+   * Return whether this allow-list promotes nothing.
+   *
+   * @return true if the allow-list is empty
+   */
+  public boolean isEmpty() {
+    return exact.isEmpty() && prefixes.length == 0;
+  }
+
+  private void addFirstChar(final String pattern) {
+    if (pattern.isEmpty()) {
+      // An empty prefix matches everything
+      firstChars[0] = -1L;
+      firstChars[1] = -1L;
+      matchesNonAscii = true;
+      return;
+    }
+    char c = pattern.charAt(0);
+    if (c < 128) {
+      firstChars[c >>> 6] |= 1L << c;
+    } else {
+      matchesNonAscii = true;
+    }
+  }
+
+  private boolean mayMatch(final char c) {
+    if (c < 128) {
+      return (firstChars[c >>> 6] & (1L << c)) != 0;
+    }
+    return matchesNonAscii;
+  }
+
+  private static String toAnnotationKey(final String key) {
+    char[] chars = null;
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (!isAnnotationChar(c)) {
+        if (chars == null) {
+          chars = key.toCharArray();
+        }
+        chars[i] = '_';
+      }
+    }
+    return chars == null ? key : new String(chars);
+  }
+
+  private static boolean isAnnotationChar(final char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+  }
+}
@@ -0,0 +1,234 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import java.util.Arrays;
+
+/**
+ * Span attributes stored in parallel typed columns rather than as boxed map values.
+ *
+ * <p>Keys, type tags and primitive values live in plain arrays: long, double and boolean values
+ * share a single {@code long[]} column, and strings and arrays share an object column. Lookups
+ * scan the keys, which beats hashing for the handful of attributes a span usually carries.
+ * Values are read back through a {@link Visitor} so that consumers such as serializers never box
+ * them. Instances are not thread safe.
+ */
+public class EntityAttributes {
+
+  private static final byte TYPE_STRING = 0;
+  private static final byte TYPE_LONG = 1;
+  private static final byte TYPE_DOUBLE = 2;
+  private static final byte TYPE_BOOLEAN = 3;
+  private static final byte TYPE_STRING_ARRAY = 4;
+  private static final byte TYPE_LONG_ARRAY = 5;
+  private static final byte TYPE_DOUBLE_ARRAY = 6;
+  private static final byte TYPE_BOOLEAN_ARRAY = 7;
+  private static final int INITIAL_CAPACITY = 8;
+
+  private String[] keys;
+  private byte[] types;
+  private long[] primitives;
+  private Object[] objects;
+  private int size;
+
+  /**
+   * Receives each attribute with its value in its stored type.
+   *
+   * @param <E> the exception thrown by the visitor
+   */
+  public interface Visitor<E extends Exception> {
+
+    void visitString(String key, String value) throws E;
+
+    void visitLong(String key, long value) throws E;
+
+    void visitDouble(String key, double value) throws E;
+
+    void visitBoolean(String key, boolean value) throws E;
+
+    void visitStringArray(String key, String[] values) throws E;
+
+    void visitLongArray(String key, long[] values) throws E;
+
+    void visitDoubleArray(String key, double[] values) throws E;
+
+    void visitBooleanArray(String key, boolean[] values) throws E;
+  }
+
+  public void put(final String key, final String value) {
+    put(key, TYPE_STRING, 0L, value);
+  }
+
+  public void put(final String key, final long value) {
+    put(key, TYPE_LONG, value, null);
+  }
+
+  public void put(final String key, final double value) {
+    put(key, TYPE_DOUBLE, Double.doubleToRawLongBits(value), null);
+  }
+
+  public void put(final String key, final boolean value) {
+    put(key, TYPE_BOOLEAN, value ? 1L : 0L, null);
+  }
+
+  public void put(final String key, final String[] values) {
+    put(key, TYPE_STRING_ARRAY, 0L, values.clone());
+  }
+
+  public void put(final String key, final long[] values) {
+    put(key, TYPE_LONG_ARRAY, 0L, values.clone());
+  }
+
+  public void put(final String key, final double[] values) {
+    put(key, TYPE_DOUBLE_ARRAY, 0L, values.clone());
+  }
+
+  public void put(final String key, final boolean[] values) {
+    put(key, TYPE_BOOLEAN_ARRAY, 0L, values.clone());
+  }
+
+  /**
+   * Store a value of any supported type. Values of other types are stored as their string form.
+   *
+   * @param key the attribute key
+   * @param value the value
+   */
+  public void putObject(final String key, final Object value) {
+    if (value instanceof String) {
+      put(key, (String) value);
+    } else if (value instanceof Long || value instanceof Integer
+        || value instanceof Short || value instanceof Byte) {
+      put(key, ((Number) value).longValue());
+    } else if (value instanceof Number) {
+      put(key, ((Number) value).doubleValue());
+    } else if (value instanceof Boolean) {
+      put(key, ((Boolean) value).booleanValue());
+    } else if (value instanceof String[]) {
+      put(key, (String[]) value);
+    } else if (value instanceof long[]) {
+      put(key, (long[]) value);
+    } else if (value instanceof double[]) {
+      put(key, (double[]) value);
+    } else if (value instanceof boolean[]) {
+      put(key, (boolean[]) value);
+    } else if (value != null) {
+      put(key, value.toString());
+    }
+  }
+
+  /**
+   * Return a value as an object, boxing primitives. Arrays are returned as copies.
+   *
+   * @param key the attribute key
+   * @return the value or null if there is no such attribute
+   */
+  public Object get(final String key) {
+    int index = indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+
+    switch (types[index]) {
+      case TYPE_LONG:
+        return primitives[index];
+      case TYPE_DOUBLE:
+        return Double.longBitsToDouble(primitives[index]);
+      case TYPE_BOOLEAN:
+        return primitives[index] != 0L;
+      case TYPE_STRING_ARRAY:
+        return ((String[]) objects[index]).clone();
+      case TYPE_LONG_ARRAY:
+        return ((long[]) objects[index]).clone();
+      case TYPE_DOUBLE_ARRAY:
+        return ((double[]) objects[index]).clone();
+      case TYPE_BOOLEAN_ARRAY:
+        return ((boolean[]) objects[index]).clone();
+      default:
+        return objects[index];
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Pass every attribute to the visitor in insertion order. Array values are passed without
+   * copying and must not be modified.
+   *
+   * @param visitor the visitor
+   * @param <E> the exception thrown by the visitor
+   * @throws E if the visitor throws
+   */
+  public <E extends Exception> void forEach(final Visitor<E> visitor) throws E {
+    for (int i = 0; i < size; i++) {
+      String key = keys[i];
+      switch (types[i]) {
+        case TYPE_STRING:
+          visitor.visitString(key, (String) objects[i]);
+          break;
+        case TYPE_LONG:
+          visitor.visitLong(key, primitives[i]);
+          break;
+        case TYPE_DOUBLE:
+          visitor.visitDouble(key, Double.longBitsToDouble(primitives[i]));
+          break;
+        case TYPE_BOOLEAN:
+          visitor.visitBoolean(key, primitives[i] != 0L);
+          break;
+        case TYPE_STRING_ARRAY:
+          visitor.visitStringArray(key, (String[]) objects[i]);
+          break;
+        case TYPE_LONG_ARRAY:
+          visitor.visitLongArray(key, (long[]) objects[i]);
+          break;
+        case TYPE_DOUBLE_ARRAY:
+          visitor.visitDoubleArray(key, (double[]) objects[i]);
+          break;
+        case TYPE_BOOLEAN_ARRAY:
+          visitor.visitBooleanArray(key, (boolean[]) objects[i]);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private void put(final String key, final byte type, final long primitive, final Object object) {
+    int index = indexOf(key);
+    if (index < 0) {
+      ensureCapacity();
+      index = size++;
+      keys[index] = key;
+    }
+    types[index] = type;
+    primitives[index] = primitive;
+    objects[index] = object;
+  }
+
+  private int indexOf(final String key) {
+    for (int i = 0; i < size; i++) {
+      if (keys[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void ensureCapacity() {
+    if (keys == null) {
+      keys = new String[INITIAL_CAPACITY];
+      types = new byte[INITIAL_CAPACITY];
+      primitives = new long[INITIAL_CAPACITY];
+      objects = new Object[INITIAL_CAPACITY];
+    } else if (size == keys.length) {
+      int capacity = size * 2;
+      keys = Arrays.copyOf(keys, capacity);
+      types = Arrays.copyOf(types, capacity);
+      primitives = Arrays.copyOf(primitives, capacity);
+      objects = Arrays.copyOf(objects, capacity);
+    }
+  }
+}
@@ -1,19 +1,31 @@
 package com.amazonaws.xray.opentelemetry.tracing.metadata;
 
+import com.amazonaws.xray.opentelemetry.tracing.serializers.EntityMetadataSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.opentelemetry.trace.Span.Kind;
 import io.opentelemetry.trace.Status;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * The OpenTelemetry data of a span which has no X-Ray equivalent, stored in the entity's metadata.
+ *
+ * <p>Attributes are kept in typed columns by {@link EntityAttributes} and written to JSON by
+ * {@link EntityMetadataSerializer} without boxing.
+ */
+@JsonSerialize(using = EntityMetadataSerializer.class)
 public class EntityMetadata {
 
   private final List<EntityMetadataEvent> events;
-  private final Map<String, Object> attributes;
+  private final EntityAttributes attributes;
   private final Kind kind;
   private Status status;
+  private Map<String, SpanAggregate> aggregates;
 
   public static EntityMetadata create(final Kind kind) {
     return new EntityMetadata(kind);
@@ -22,7 +34,7 @@ public class EntityMetadata {
   private EntityMetadata(final Kind kind) {
     this.kind = kind;
     events = new ArrayList<>();
-    attributes = new ConcurrentHashMap<>();
+    attributes = new EntityAttributes();
     status = Status.OK;
   }
 
@@ -30,10 +42,49 @@ public class EntityMetadata {
     this.status = status;
   }
 
-  public void putAttribute(final String name, final Object value) {
+  /**
+   * Store an attribute of any type, dispatching to the matching typed column. Prefer the typed
+   * overloads where the type is known.
+   *
+   * @param name the attribute key
+   * @param value the value
+   */
+  public synchronized void putAttribute(final String name, final Object value) {
+    attributes.putObject(name, value);
+  }
+
+  public synchronized void putAttribute(final String name, final String value) {
+    attributes.put(name, value);
+  }
+
+  public synchronized void putAttribute(final String name, final long value) {
     attributes.put(name, value);
   }
 
+  public synchronized void putAttribute(final String name, final double value) {
+    attributes.put(name, value);
+  }
+
+  public synchronized void putAttribute(final String name, final boolean value) {
+    attributes.put(name, value);
+  }
+
+  public synchronized void putAttribute(final String name, final String[] values) {
+    attributes.put(name, values);
+  }
+
+  public synchronized void putAttribute(final String name, final long[] values) {
+    attributes.put(name, values);
+  }
+
+  public synchronized void putAttribute(final String name, final double[] values) {
+    attributes.put(name, values);
+  }
+
+  public synchronized void putAttribute(final String name, final boolean[] values) {
+    attributes.put(name, values);
+  }
+
   public void addEvent(final EntityMetadataEvent event) {
     events.add(event);
     Collections.sort(events);
@@ -43,8 +94,82 @@ public class EntityMetadata {
     return status;
   }
 
-  public Map<String, Object> getAttributes() {
-    return attributes;
+  /**
+   * Return a single attribute, boxing primitive values.
+   *
+   * @param name the attribute key
+   * @return the value or null if there is no such attribute
+   */
+  public synchronized Object getAttribute(final String name) {
+    return attributes.get(name);
+  }
+
+  public synchronized int getAttributeCount() {
+    return attributes.size();
+  }
+
+  /**
+   * Pass every attribute to the visitor in its stored type without boxing.
+   *
+   * @param visitor the visitor
+   * @param <E> the exception thrown by the visitor
+   * @throws E if the visitor throws
+   */
+  public synchronized <E extends Exception> void forEachAttribute(
+      final EntityAttributes.Visitor<E> visitor) throws E {
+    attributes.forEach(visitor);
+  }
+
+  /**
+   * Return a snapshot of the attributes with primitive values boxed. Prefer
+   * {@link #getAttribute(String)} or {@link #forEachAttribute(EntityAttributes.Visitor)}.
+   *
+   * @return the attributes in insertion order
+   */
+  public synchronized Map<String, Object> getAttributes() {
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    attributes.forEach(new EntityAttributes.Visitor<RuntimeException>() {
+      @Override
+      public void visitString(final String key, final String value) {
+        snapshot.put(key, value);
+      }
+
+      @Override
+      public void visitLong(final String key, final long value) {
+        snapshot.put(key, value);
+      }
+
+      @Override
+      public void visitDouble(final String key, final double value) {
+        snapshot.put(key, value);
+      }
+
+      @Override
+      public void visitBoolean(final String key, final boolean value) {
+        snapshot.put(key, value);
+      }
+
+      @Override
+      public void visitStringArray(final String key, final String[] values) {
+        snapshot.put(key, values.clone());
+      }
+
+      @Override
+      public void visitLongArray(final String key, final long[] values) {
+        snapshot.put(key, values.clone());
+      }
+
+      @Override
+      public void visitDoubleArray(final String key, final double[] values) {
+        snapshot.put(key, values.clone());
+      }
+
+      @Override
+      public void visitBooleanArray(final String key, final boolean[] values) {
+        snapshot.put(key, values.clone());
+      }
+    });
+    return snapshot;
   }
 
   public Kind getKind() {
@@ -54,4 +179,25 @@ public class EntityMetadata {
   public List<EntityMetadataEvent> getEvents() {
     return events;
   }
+
+  /**
+   * Return the aggregate into which this span's short children of the given name are folded,
+   * creating one if there is none yet or the current one has already been emitted.
+   *
+   * @param name the children's name
+   * @param factory creates a new aggregate
+   * @return the aggregate
+   */
+  public synchronized SpanAggregate aggregateFor(final String name,
+      final Supplier<SpanAggregate> factory) {
+    if (aggregates == null) {
+      aggregates = new HashMap<>(4);
+    }
+    SpanAggregate aggregate = aggregates.get(name);
+    if (aggregate == null || aggregate.isEmitted()) {
+      aggregate = factory.get();
+      aggregates.put(name, aggregate);
+    }
+    return aggregate;
+  }
 }
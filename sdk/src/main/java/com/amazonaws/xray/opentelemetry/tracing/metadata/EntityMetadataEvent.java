@@ -13,20 +13,22 @@ public class EntityMetadataEvent implements Event, Comparable<EntityMetadataEven
   private String name;
   private Map<String, AttributeValue> attributes;
   private long timestamp;
+  private boolean checkReleased;
+  private volatile boolean released;
 
   public static EntityMetadataEvent create(final String name) {
     return new EntityMetadataEvent(name,
-        Collections.unmodifiableMap(Collections.emptyMap()), TimeUtils.getCurrentNanoTime());
+        Collections.emptyMap(), TimeUtils.currentEpochNanos());
   }
 
   public static EntityMetadataEvent create(final String name,
       final Map<String, AttributeValue> attributes) {
-    return new EntityMetadataEvent(name, attributes, TimeUtils.getCurrentNanoTime());
+    return new EntityMetadataEvent(name, attributes, TimeUtils.currentEpochNanos());
   }
 
   public static EntityMetadataEvent create(final String name, final long timestamp) {
     return new EntityMetadataEvent(name,
-        Collections.unmodifiableMap(Collections.emptyMap()), timestamp);
+        Collections.emptyMap(), timestamp);
   }
 
   public static EntityMetadataEvent create(final String name,
@@ -36,7 +38,7 @@ public class EntityMetadataEvent implements Event, Comparable<EntityMetadataEven
 
   public static EntityMetadataEvent create(final Event event) {
     return new EntityMetadataEvent(event.getName(), event.getAttributes(),
-        TimeUtils.getCurrentNanoTime());
+        TimeUtils.currentEpochNanos());
   }
 
   public static EntityMetadataEvent create(final Event event, final long timestamp) {
@@ -50,13 +52,42 @@ public class EntityMetadataEvent implements Event, Comparable<EntityMetadataEven
     this.timestamp = timestamp;
   }
 
+  /**
+   * Reinitialize an event taken from a pool.
+   * @param checkReleased throw on access once the event is released again
+   */
+  void reuse(final String name, final Map<String, AttributeValue> attributes,
+      final long timestamp, final boolean checkReleased) {
+    this.name = name;
+    this.attributes = attributes;
+    this.timestamp = timestamp;
+    this.checkReleased = checkReleased;
+    this.released = false;
+  }
+
+  /**
+   * Mark the event released.
+   * @return false if it was already released
+   */
+  boolean release() {
+    if (released) {
+      return false;
+    }
+    name = null;
+    attributes = Collections.emptyMap();
+    released = true;
+    return true;
+  }
+
   @Override
   public String getName() {
+    checkNotReleased();
     return name;
   }
 
   @Override
   public Map<String, AttributeValue> getAttributes() {
+    checkNotReleased();
     return attributes;
   }
 
@@ -64,4 +95,10 @@ public class EntityMetadataEvent implements Event, Comparable<EntityMetadataEven
   public int compareTo(EntityMetadataEvent o) {
     return Long.compare(timestamp, o.timestamp);
   }
+
+  private void checkNotReleased() {
+    if (checkReleased && released) {
+      throw new IllegalStateException("Event used after it was released to its pool.");
+    }
+  }
 }
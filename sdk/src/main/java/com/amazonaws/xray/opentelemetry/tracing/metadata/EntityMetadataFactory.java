@@ -6,8 +6,8 @@ import java.util.Map;
 
 public class EntityMetadataFactory {
 
-  private static final String OT_METADATA_NAMESPACE = "sdk";
-  private static final String OT_METADATA_KEY = "open_telemetry";
+  public static final String OT_METADATA_NAMESPACE = "sdk";
+  public static final String OT_METADATA_KEY = "open_telemetry";
 
   /**
    * Return metadata from an Entity initializing it if it isn't already.
@@ -16,7 +16,22 @@ public class EntityMetadataFactory {
    * @return the metadata
    */
   public static EntityMetadata getOrCreate(final Entity entity, final Span.Kind kind) {
+    EntityMetadata existing = get(entity);
+    if (existing != null) {
+      return existing;
+    } else {
+      EntityMetadata metadata = EntityMetadata.create(kind);
+      entity.putMetadata(OT_METADATA_NAMESPACE, OT_METADATA_KEY, metadata);
+      return metadata;
+    }
+  }
 
+  /**
+   * Return metadata from an Entity without initializing it.
+   * @param entity the entity
+   * @return the metadata or null if the entity has none
+   */
+  public static EntityMetadata get(final Entity entity) {
     Map<String, Object> otNamespace = entity.getMetadata().get(OT_METADATA_NAMESPACE);
     Object otMetadataObject = null;
     if (otNamespace != null) {
@@ -25,10 +40,7 @@ public class EntityMetadataFactory {
 
     if (otMetadataObject instanceof EntityMetadata) {
       return (EntityMetadata) otMetadataObject;
-    } else {
-      EntityMetadata metadata = EntityMetadata.create(kind);
-      entity.putMetadata(OT_METADATA_NAMESPACE, OT_METADATA_KEY, metadata);
-      return metadata;
     }
+    return null;
   }
 }
@@ -0,0 +1,154 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.listeners.SegmentListener;
+import io.opentelemetry.trace.AttributeValue;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-thread pools of {@link EntityMetadataEvent}s which are reused once their segment has been
+ * emitted.
+ *
+ * <p>The pool is registered as a listener on the recorder. After a segment ends and has been
+ * handed to the emitter, every event in the segment and its subsegments is released back to the
+ * pool of the thread which ended the segment. Subsegments which were streamed earlier and
+ * segments which are emitted later, because a subsegment was still open, are left to the garbage
+ * collector. Lifecycle rules for callers:
+ * <ul>
+ *   <li>Do not hold on to events obtained from {@link EntityMetadata#getEvents()} after the
+ *   span's segment has ended.</li>
+ *   <li>Only use a pool with emitters which serialize the segment before returning from
+ *   {@code sendSegment}. Emitters which buffer segments, such as the tail sampling emitter, would
+ *   read released events.</li>
+ * </ul>
+ *
+ * <p>In debug mode, reading a released event or releasing an event twice throws an
+ * {@link IllegalStateException}.
+ */
+public class EventPool implements SegmentListener {
+
+  private static final int DEFAULT_CAPACITY = 256;
+
+  private final int capacity;
+  private final boolean debug;
+  private final ThreadLocal<ArrayDeque<EntityMetadataEvent>> pools =
+      ThreadLocal.withInitial(ArrayDeque::new);
+  private final LongAdder created = new LongAdder();
+  private final LongAdder reused = new LongAdder();
+
+  private EventPool(final int capacity, final boolean debug) {
+    this.capacity = capacity;
+    this.debug = debug;
+  }
+
+  /**
+   * Create a pool keeping up to 256 released events per thread.
+   *
+   * @return the pool
+   */
+  public static EventPool create() {
+    return new EventPool(DEFAULT_CAPACITY, false);
+  }
+
+  /**
+   * Create a pool.
+   *
+   * @param capacity the number of released events kept per thread
+   * @param debug detect use of events after their release
+   * @return the pool
+   */
+  public static EventPool create(final int capacity, final boolean debug) {
+    return new EventPool(capacity, debug);
+  }
+
+  /**
+   * Take an event from the current thread's pool, creating one if the pool is empty.
+   *
+   * @param name the event name
+   * @param attributes the event attributes
+   * @param timestamp the event time in epoch nanoseconds
+   * @return the event
+   */
+  public EntityMetadataEvent acquire(final String name,
+      final Map<String, AttributeValue> attributes, final long timestamp) {
+    EntityMetadataEvent event = pools.get().pollFirst();
+    if (event == null) {
+      created.increment();
+      event = EntityMetadataEvent.create(name, attributes, timestamp);
+    } else {
+      reused.increment();
+    }
+    event.reuse(name, attributes, timestamp, debug);
+    return event;
+  }
+
+  /**
+   * Return an event to the current thread's pool.
+   *
+   * @param event the event
+   * @throws IllegalStateException in debug mode, if the event was already released
+   */
+  public void release(final EntityMetadataEvent event) {
+    if (!event.release()) {
+      if (debug) {
+        throw new IllegalStateException("Event released twice.");
+      }
+      return;
+    }
+
+    ArrayDeque<EntityMetadataEvent> pool = pools.get();
+    if (pool.size() < capacity) {
+      pool.addFirst(event);
+    }
+  }
+
+  /**
+   * Release the events of an entity and all of its subsegments.
+   *
+   * @param entity the entity
+   */
+  public void releaseAll(final Entity entity) {
+    EntityMetadata metadata = EntityMetadataFactory.get(entity);
+    if (metadata != null) {
+      List<EntityMetadataEvent> events = metadata.getEvents();
+      for (int i = 0; i < events.size(); i++) {
+        release(events.get(i));
+      }
+      events.clear();
+    }
+
+    for (Entity child : entity.getSubsegments()) {
+      releaseAll(child);
+    }
+  }
+
+  @Override
+  public void afterEndSegment(final Segment segment) {
+    // Segments with open subsegments are emitted later, when the last subsegment ends
+    if (segment.getReferenceCount() == 0) {
+      releaseAll(segment);
+    }
+  }
+
+  /**
+   * Return the number of events created because a pool was empty.
+   *
+   * @return the created count
+   */
+  public long getCreatedCount() {
+    return created.sum();
+  }
+
+  /**
+   * Return the number of events taken from a pool.
+   *
+   * @return the reused count
+   */
+  public long getReusedCount() {
+    return reused.sum();
+  }
+}
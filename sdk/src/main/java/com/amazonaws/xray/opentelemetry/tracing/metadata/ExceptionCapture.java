@@ -0,0 +1,269 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.ThrowableDescription;
+import com.amazonaws.xray.opentelemetry.tracing.utils.IdUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records exceptions into the cause of X-Ray entities while bounding what an error storm costs.
+ *
+ * <p>Descriptions are cached per exception type and throwing site, the top frames and the depth of
+ * the stack trace, so exceptions thrown by a shared helper are told apart by their callers. The
+ * first exception from a site is described by the recorder's throwable serialization strategy as
+ * usual. Later exceptions from the same site share the cached frames and take their own messages
+ * and new IDs for every description in their cause chain, so identical stack traces are not
+ * described again.
+ *
+ * <p>Each exception type may also have its stack trace read at most a configured number of times
+ * per second. Beyond that, exceptions of the type are recorded with their type and message but no
+ * frames, without reading their stack trace at all, and are counted.
+ */
+public class ExceptionCapture {
+
+  private static final int DEFAULT_CAPTURES_PER_SECOND = 10;
+  private static final int DEFAULT_MAX_TYPES = 256;
+  private static final int MAX_SITES_PER_TYPE = 16;
+  private static final int SITE_FRAMES = 4;
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static final ExceptionCapture SHARED =
+      create(DEFAULT_CAPTURES_PER_SECOND, DEFAULT_MAX_TYPES);
+
+  private final int capturesPerSecond;
+  private final int maxTypes;
+  private final ConcurrentHashMap<Class<?>, TypeState> types = new ConcurrentHashMap<>();
+  private final LongAdder described = new LongAdder();
+  private final LongAdder reused = new LongAdder();
+  private final LongAdder throttled = new LongAdder();
+
+  private ExceptionCapture(final int capturesPerSecond, final int maxTypes) {
+    this.capturesPerSecond = capturesPerSecond;
+    this.maxTypes = maxTypes;
+  }
+
+  /**
+   * Return the capture shared by tracers by default, which reads the stack trace of each
+   * exception type at most ten times per second.
+   *
+   * @return the shared capture
+   */
+  public static ExceptionCapture shared() {
+    return SHARED;
+  }
+
+  /**
+   * Create an exception capture.
+   *
+   * @param capturesPerSecond the number of stack traces read per exception type and second
+   * @param maxTypes the number of exception types tracked, beyond which exceptions are throttled
+   * @return the capture
+   */
+  public static ExceptionCapture create(final int capturesPerSecond, final int maxTypes) {
+    if (capturesPerSecond < 0 || maxTypes < 0) {
+      throw new IllegalArgumentException("Capture limits must not be negative.");
+    }
+    return new ExceptionCapture(capturesPerSecond, maxTypes);
+  }
+
+  /**
+   * Record an exception into an entity's cause and mark the entity as a fault, as
+   * {@link Entity#addException(Throwable)} does.
+   *
+   * @param entity the entity
+   * @param throwable the exception
+   */
+  public void record(final Entity entity, final Throwable throwable) {
+    entity.setFault(true);
+    entity.getCause().addExceptions(describe(entity, throwable));
+  }
+
+  private List<ThrowableDescription> describe(final Entity entity, final Throwable throwable) {
+    TypeState state = stateFor(throwable.getClass());
+    if (state == null || !state.tryAcquire(System.nanoTime())) {
+      throttled.increment();
+      return Collections.singletonList(withoutFrames(throwable));
+    }
+
+    Site site = new Site(throwable.getStackTrace());
+    List<ThrowableDescription> cached = state.sites.get(site);
+    if (cached != null) {
+      reused.increment();
+      return copyOf(cached, throwable);
+    }
+
+    List<ThrowableDescription> descriptions = entity.getCreator()
+        .getThrowableSerializationStrategy()
+        .describeInContext(throwable, entity.getSubsegments());
+    described.increment();
+    // A description referring to an exception already recorded on a subsegment only makes sense
+    // within this trace, so only chains which are complete in themselves are cached
+    if (!descriptions.isEmpty() && descriptions.get(0).getStack() != null
+        && isSelfContained(descriptions) && state.sites.size() < MAX_SITES_PER_TYPE) {
+      state.sites.putIfAbsent(site, new ArrayList<>(descriptions));
+    }
+    return descriptions;
+  }
+
+  private TypeState stateFor(final Class<?> type) {
+    TypeState state = types.get(type);
+    if (state == null && types.size() < maxTypes) {
+      state = types.computeIfAbsent(type, t -> new TypeState());
+    }
+    return state;
+  }
+
+  private static boolean isSelfContained(final List<ThrowableDescription> descriptions) {
+    Set<String> ids = new HashSet<>();
+    for (ThrowableDescription description : descriptions) {
+      ids.add(description.getId());
+    }
+    for (ThrowableDescription description : descriptions) {
+      if (description.getCause() != null && !ids.contains(description.getCause())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Copy a cached cause chain for another exception from the same site, giving every description
+   * a new ID and pointing each cause at the new ID of the description it referred to.
+   */
+  private static List<ThrowableDescription> copyOf(final List<ThrowableDescription> cached,
+      final Throwable throwable) {
+    Map<String, String> ids = new HashMap<>();
+    for (ThrowableDescription template : cached) {
+      ids.put(template.getId(), newId());
+    }
+
+    List<ThrowableDescription> descriptions = new ArrayList<>(cached.size());
+    Throwable current = throwable;
+    for (ThrowableDescription template : cached) {
+      ThrowableDescription description = new ThrowableDescription();
+      description.setId(ids.get(template.getId()));
+      if (current != null) {
+        description.setType(current.getClass().getName());
+        description.setMessage(current.getMessage());
+        current = current.getCause();
+      } else {
+        description.setType(template.getType());
+        description.setMessage(template.getMessage());
+      }
+      description.setStack(template.getStack());
+      description.setTruncated(template.getTruncated());
+      description.setSkipped(template.getSkipped());
+      description.setCause(template.getCause() == null ? null : ids.get(template.getCause()));
+      description.setRemote(template.isRemote());
+      descriptions.add(description);
+    }
+    return descriptions;
+  }
+
+  private static ThrowableDescription withoutFrames(final Throwable throwable) {
+    ThrowableDescription description = new ThrowableDescription();
+    description.setId(newId());
+    description.setType(throwable.getClass().getName());
+    description.setMessage(throwable.getMessage());
+    return description;
+  }
+
+  private static String newId() {
+    return IdUtils.toHex(ThreadLocalRandom.current().nextLong());
+  }
+
+  /**
+   * Return how many exceptions were described in full by the recorder's strategy.
+   *
+   * @return the described count
+   */
+  public long getDescribedCount() {
+    return described.sum();
+  }
+
+  /**
+   * Return how many exceptions reused the cached description of their site.
+   *
+   * @return the reused count
+   */
+  public long getReusedCount() {
+    return reused.sum();
+  }
+
+  /**
+   * Return how many exceptions were recorded without frames because their type was over its rate.
+   *
+   * @return the throttled count
+   */
+  public long getThrottledCount() {
+    return throttled.sum();
+  }
+
+  /**
+   * The cached sites and the current rate window of one exception type.
+   */
+  private final class TypeState {
+
+    private final ConcurrentHashMap<Site, List<ThrowableDescription>> sites =
+        new ConcurrentHashMap<>();
+    private final AtomicInteger used = new AtomicInteger();
+    private volatile long windowStart = System.nanoTime();
+
+    boolean tryAcquire(final long now) {
+      if (now - windowStart >= WINDOW_NANOS) {
+        synchronized (this) {
+          if (now - windowStart >= WINDOW_NANOS) {
+            windowStart = now;
+            used.set(0);
+          }
+        }
+      }
+      return used.incrementAndGet() <= capturesPerSecond;
+    }
+  }
+
+  /**
+   * The site an exception was thrown from: its top frames and the depth of its stack trace.
+   */
+  private static final class Site {
+
+    private final StackTraceElement[] frames;
+    private final int depth;
+    private final int hash;
+
+    private Site(final StackTraceElement[] stack) {
+      this.frames = Arrays.copyOf(stack, Math.min(stack.length, SITE_FRAMES));
+      this.depth = stack.length;
+      this.hash = 31 * Arrays.hashCode(frames) + depth;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Site)) {
+        return false;
+      }
+      Site other = (Site) o;
+      return depth == other.depth && Arrays.equals(frames, other.frames);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, concurrent table of canonical attribute keys and span names, so that the many live
+ * spans which repeat the same keys share one instance of each.
+ *
+ * <p>The OpenTelemetry semantic convention keys are seeded into buckets by length and resolve by
+ * comparing against the few seeded keys of the same length, which is usually an identity match
+ * against the caller's string literal, without hashing. Other strings are interned into a
+ * concurrent map until it holds the maximum number of entries. Beyond that, strings are returned
+ * as given and counted, so that high-cardinality keys cannot grow the table without bound.
+ */
+public class KeyInterner {
+
+  private static final int DEFAULT_MAX_ENTRIES = 4096;
+
+  private static final String[] SEMANTIC_CONVENTION_KEYS = {
+      "component",
+      "error",
+      "peer.service",
+      "enduser.id",
+      "enduser.role",
+      "http.method",
+      "http.url",
+      "http.target",
+      "http.host",
+      "http.scheme",
+      "http.status_code",
+      "http.status_text",
+      "http.flavor",
+      "http.user_agent",
+      "http.server_name",
+      "http.route",
+      "http.client_ip",
+      "net.transport",
+      "net.peer.ip",
+      "net.peer.port",
+      "net.peer.name",
+      "net.host.ip",
+      "net.host.port",
+      "net.host.name",
+      "db.type",
+      "db.instance",
+      "db.statement",
+      "db.user",
+      "db.url",
+      "rpc.service",
+      "message.type",
+      "message.id",
+  };
+
+  private static final KeyInterner SHARED = create(DEFAULT_MAX_ENTRIES);
+
+  private final String[][] seeded;
+  private final ConcurrentHashMap<String, String> interned;
+  private final int maxEntries;
+  private final AtomicInteger size = new AtomicInteger();
+  private final LongAdder rejected = new LongAdder();
+
+  private KeyInterner(final int maxEntries) {
+    this.maxEntries = maxEntries;
+    this.interned = new ConcurrentHashMap<>();
+
+    int maxLength = 0;
+    for (String key : SEMANTIC_CONVENTION_KEYS) {
+      maxLength = Math.max(maxLength, key.length());
+    }
+    List<List<String>> buckets = new ArrayList<>(maxLength + 1);
+    for (int i = 0; i <= maxLength; i++) {
+      buckets.add(new ArrayList<>());
+    }
+    for (String key : SEMANTIC_CONVENTION_KEYS) {
+      buckets.get(key.length()).add(key);
+    }
+    this.seeded = new String[maxLength + 1][];
+    for (int i = 0; i <= maxLength; i++) {
+      seeded[i] = buckets.get(i).toArray(new String[0]);
+    }
+  }
+
+  /**
+   * Return the interner shared by tracers by default, which holds up to 4096 strings beyond the
+   * seeded semantic convention keys.
+   *
+   * @return the shared interner
+   */
+  public static KeyInterner shared() {
+    return SHARED;
+  }
+
+  /**
+   * Create an interner.
+   *
+   * @param maxEntries the maximum number of strings interned beyond the seeded keys
+   * @return the interner
+   */
+  public static KeyInterner create(final int maxEntries) {
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("The maximum number of entries must not be negative.");
+    }
+    return new KeyInterner(maxEntries);
+  }
+
+  /**
+   * Return the canonical instance of a string, or the string itself if the table is full.
+   *
+   * @param key the key or name
+   * @return the canonical instance
+   */
+  public String intern(final String key) {
+    if (key == null) {
+      return null;
+    }
+
+    int length = key.length();
+    if (length < seeded.length) {
+      for (String candidate : seeded[length]) {
+        if (candidate == key || candidate.equals(key)) {
+          return candidate;
+        }
+      }
+    }
+
+    String existing = interned.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    if (size.get() >= maxEntries) {
+      rejected.increment();
+      return key;
+    }
+
+    existing = interned.putIfAbsent(key, key);
+    if (existing != null) {
+      return existing;
+    }
+    if (size.incrementAndGet() > maxEntries) {
+      // Lost a race for the last slots, give this one back
+      interned.remove(key);
+      size.decrementAndGet();
+      rejected.increment();
+    }
+    return key;
+  }
+
+  /**
+   * Return the number of strings interned beyond the seeded keys.
+   *
+   * @return the number of entries
+   */
+  public int getSize() {
+    return size.get();
+  }
+
+  /**
+   * Return how many strings were returned uninterned because the table was full.
+   *
+   * @return the rejected count
+   */
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+}
@@ -0,0 +1,89 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.opentelemetry.tracing.utils.TimeUtils;
+import io.opentelemetry.trace.Span.Kind;
+
+/**
+ * A subsegment standing in for many short internal spans of the same name and parent, which were
+ * folded into it rather than recorded one by one. It carries how many spans were folded and their
+ * total, shortest and longest duration in seconds as attributes, and spans the time from the
+ * earliest start to the latest end of the folded spans.
+ */
+public class SpanAggregate {
+
+  public static final String COUNT_ATTRIBUTE = "coalesced.count";
+  public static final String TOTAL_DURATION_ATTRIBUTE = "coalesced.duration.total";
+  public static final String MIN_DURATION_ATTRIBUTE = "coalesced.duration.min";
+  public static final String MAX_DURATION_ATTRIBUTE = "coalesced.duration.max";
+
+  private final Subsegment subsegment;
+  private final EntityMetadata metadata;
+  private long count;
+  private long totalNanos;
+  private long minNanos = Long.MAX_VALUE;
+  private long maxNanos;
+  private long startNanos = Long.MAX_VALUE;
+  private long endNanos = Long.MIN_VALUE;
+
+  private SpanAggregate(final Subsegment subsegment) {
+    this.subsegment = subsegment;
+    this.metadata = EntityMetadataFactory.getOrCreate(subsegment, Kind.INTERNAL);
+  }
+
+  /**
+   * Create an aggregate recorded in the given subsegment, which must already be ended.
+   *
+   * @param subsegment the subsegment
+   * @return the aggregate
+   */
+  public static SpanAggregate create(final Subsegment subsegment) {
+    return new SpanAggregate(subsegment);
+  }
+
+  /**
+   * Fold a span into this aggregate and extend the subsegment to cover it.
+   *
+   * @param spanStartNanos the span's start time in epoch nanoseconds
+   * @param spanEndNanos the span's end time in epoch nanoseconds
+   */
+  public synchronized void add(final long spanStartNanos, final long spanEndNanos) {
+    long durationNanos = spanEndNanos - spanStartNanos;
+    if (spanStartNanos < startNanos) {
+      startNanos = spanStartNanos;
+      subsegment.setStartTime(TimeUtils.toXrayTimestamp(startNanos));
+    }
+    if (spanEndNanos > endNanos) {
+      endNanos = spanEndNanos;
+      subsegment.setEndTime(TimeUtils.toXrayTimestamp(endNanos));
+    }
+
+    count++;
+    totalNanos += durationNanos;
+    minNanos = Math.min(minNanos, durationNanos);
+    maxNanos = Math.max(maxNanos, durationNanos);
+
+    metadata.putAttribute(COUNT_ATTRIBUTE, count);
+    metadata.putAttribute(TOTAL_DURATION_ATTRIBUTE, totalNanos / 1e9D);
+    metadata.putAttribute(MIN_DURATION_ATTRIBUTE, minNanos / 1e9D);
+    metadata.putAttribute(MAX_DURATION_ATTRIBUTE, maxNanos / 1e9D);
+  }
+
+  /**
+   * Return whether the subsegment has already been sent, for example by the recorder's streaming
+   * strategy, so that further spans must be folded into a new aggregate.
+   *
+   * @return true if the subsegment has been emitted
+   */
+  public boolean isEmitted() {
+    return subsegment.isEmitted();
+  }
+
+  public Subsegment getSubsegment() {
+    return subsegment;
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+}
@@ -0,0 +1,267 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes span names before they become X-Ray segment and subsegment names, so that names built
+ * from raw URLs such as {@code /orders/123456} do not each become a node of the service map.
+ *
+ * <p>Names are rewritten by an ordered list of templated patterns, each replacing what it matches
+ * with a placeholder such as {@code {id}}. The default patterns replace UUIDs, path segments
+ * which are numbers or long hex strings, and query strings, e.g.
+ * {@code GET /orders/123456?expand=items} becomes {@code GET /orders/{id}}.
+ *
+ * <p>The number of distinct normalized names is capped. Once the cap is reached, names which
+ * normalize to a name not seen before are replaced with the overflow name and counted. Raw names
+ * are cached with their result in two generations of concurrent maps, each holding half of the
+ * cache bound. When the young generation is full it replaces the old one, whose names are dropped,
+ * and names found in the old generation move back into the young one. Names in current use thus
+ * stay cached and are normalized with one or two map lookups, while one-off names age out.
+ */
+public class SpanNameNormalizer {
+
+  public static final String ID_PLACEHOLDER = "{id}";
+  public static final String UUID_PLACEHOLDER = "{uuid}";
+
+  private static final int DEFAULT_MAX_NAMES = 1000;
+  private static final int DEFAULT_MAX_CACHED_NAMES = 10000;
+  private static final String DEFAULT_OVERFLOW_NAME = "overflow";
+
+  private final List<Rule> rules;
+  private final int maxNames;
+  private final int maxCachedNames;
+  private final String overflowName;
+  private final int generationSize;
+  private final ConcurrentHashMap<String, Boolean> names = new ConcurrentHashMap<>();
+  private final AtomicInteger youngSize = new AtomicInteger();
+  private volatile ConcurrentHashMap<String, String> young = new ConcurrentHashMap<>();
+  private volatile ConcurrentHashMap<String, String> old = new ConcurrentHashMap<>();
+  private final AtomicInteger nameCount = new AtomicInteger();
+  private final LongAdder overflowed = new LongAdder();
+
+  private SpanNameNormalizer(final Builder builder) {
+    this.rules = Collections.unmodifiableList(new ArrayList<>(builder.rules));
+    this.maxNames = builder.maxNames;
+    this.maxCachedNames = builder.maxCachedNames;
+    this.generationSize = Math.max(1, maxCachedNames / 2);
+    this.overflowName = builder.overflowName;
+  }
+
+  /**
+   * Create a normalizer with the default patterns, which allows 1000 distinct names.
+   *
+   * @return the normalizer
+   */
+  public static SpanNameNormalizer create() {
+    return builder().withDefaultPatterns().build();
+  }
+
+  /**
+   * Create a builder for a normalizer without any patterns.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Return the normalized form of a span name.
+   *
+   * @param name the span name
+   * @return the normalized name, or the overflow name if the cap on distinct names is reached
+   */
+  public String normalize(final String name) {
+    if (name == null) {
+      return null;
+    }
+    String cached = young.get(name);
+    if (cached != null) {
+      return cached;
+    }
+    cached = old.get(name);
+    if (cached != null) {
+      cache(name, cached);
+      return cached;
+    }
+
+    String normalized = admit(rewrite(name));
+    cache(name, normalized);
+    return normalized;
+  }
+
+  private void cache(final String name, final String normalized) {
+    if (maxCachedNames == 0) {
+      return;
+    }
+    ConcurrentHashMap<String, String> generation = young;
+    if (generation.putIfAbsent(name, normalized) == null
+        && youngSize.incrementAndGet() >= generationSize) {
+      promote(generation);
+    }
+  }
+
+  private synchronized void promote(final ConcurrentHashMap<String, String> full) {
+    if (young != full) {
+      return;
+    }
+    // Names racing into the retired generation or counted against the new one only shift the
+    // next promotion by the number of racing threads
+    old = full;
+    young = new ConcurrentHashMap<>();
+    youngSize.set(0);
+  }
+
+  private String rewrite(final String name) {
+    String rewritten = name;
+    for (Rule rule : rules) {
+      Matcher matcher = rule.pattern.matcher(rewritten);
+      if (matcher.find()) {
+        rewritten = matcher.replaceAll(rule.replacement);
+      }
+    }
+    return rewritten;
+  }
+
+  private String admit(final String normalized) {
+    if (names.containsKey(normalized)) {
+      return normalized;
+    }
+    if (nameCount.get() < maxNames) {
+      if (names.putIfAbsent(normalized, Boolean.TRUE) != null) {
+        return normalized;
+      }
+      if (nameCount.incrementAndGet() <= maxNames) {
+        return normalized;
+      }
+      // Lost a race for the last slots, give this one back
+      names.remove(normalized);
+      nameCount.decrementAndGet();
+    }
+    overflowed.increment();
+    return overflowName;
+  }
+
+  /**
+   * Return the number of distinct normalized names.
+   *
+   * @return the name count
+   */
+  public int getNameCount() {
+    return nameCount.get();
+  }
+
+  /**
+   * Return how many names were replaced with the overflow name because the cap was reached.
+   * Raw names are counted whenever they are normalized rather than found in the cache.
+   *
+   * @return the overflow count
+   */
+  public long getOverflowCount() {
+    return overflowed.sum();
+  }
+
+  private static final class Rule {
+
+    private final Pattern pattern;
+    private final String replacement;
+
+    private Rule(final Pattern pattern, final String placeholder) {
+      this.pattern = pattern;
+      this.replacement = Matcher.quoteReplacement(placeholder);
+    }
+  }
+
+  /**
+   * A builder for {@link SpanNameNormalizer}.
+   */
+  public static class Builder {
+
+    private final List<Rule> rules = new ArrayList<>();
+    private int maxNames = DEFAULT_MAX_NAMES;
+    private int maxCachedNames = DEFAULT_MAX_CACHED_NAMES;
+    private String overflowName = DEFAULT_OVERFLOW_NAME;
+
+    private Builder() {
+    }
+
+    /**
+     * Add the default patterns, which replace UUIDs with {@value #UUID_PLACEHOLDER}, path
+     * segments which are numbers or hex strings of 16 digits or more with
+     * {@value #ID_PLACEHOLDER}, and remove query strings.
+     *
+     * @return this builder
+     */
+    public Builder withDefaultPatterns() {
+      withPattern("\\?.*$", "");
+      withPattern("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}",
+          UUID_PLACEHOLDER);
+      withPattern("(?<=/)(?:[0-9]+|[0-9a-fA-F]{16,})(?=/|$)", ID_PLACEHOLDER);
+      return this;
+    }
+
+    /**
+     * Add a pattern whose matches are replaced with a placeholder. Patterns are applied in the
+     * order they were added, each to the result of the previous one.
+     *
+     * @param regex the regular expression
+     * @param placeholder the literal text replacing each match
+     * @return this builder
+     */
+    public Builder withPattern(final String regex, final String placeholder) {
+      rules.add(new Rule(Pattern.compile(regex), placeholder));
+      return this;
+    }
+
+    /**
+     * Cap the number of distinct normalized names.
+     *
+     * @param maxNames the number of names
+     * @return this builder
+     */
+    public Builder withMaxNames(final int maxNames) {
+      if (maxNames < 0) {
+        throw new IllegalArgumentException("The maximum number of names must not be negative.");
+      }
+      this.maxNames = maxNames;
+      return this;
+    }
+
+    /**
+     * Bound the number of raw names cached with their normalized form, across both generations.
+     *
+     * @param maxCachedNames the number of raw names
+     * @return this builder
+     */
+    public Builder withMaxCachedNames(final int maxCachedNames) {
+      if (maxCachedNames < 0) {
+        throw new IllegalArgumentException(
+            "The maximum number of cached names must not be negative.");
+      }
+      this.maxCachedNames = maxCachedNames;
+      return this;
+    }
+
+    /**
+     * Use the given name for spans whose normalized name is beyond the cap.
+     *
+     * @param overflowName the catch-all name
+     * @return this builder
+     */
+    public Builder withOverflowName(final String overflowName) {
+      this.overflowName = overflowName;
+      return this;
+    }
+
+    public SpanNameNormalizer build() {
+      return new SpanNameNormalizer(this);
+    }
+  }
+}
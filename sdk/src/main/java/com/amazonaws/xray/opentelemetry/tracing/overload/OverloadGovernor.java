@@ -0,0 +1,388 @@
+package com.amazonaws.xray.opentelemetry.tracing.overload;
+
+import com.amazonaws.xray.opentelemetry.tracing.utils.HttpAttribute;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Sheds tracing work step by step while the SDK itself is under pressure, and restores it once the
+ * pressure has passed.
+ *
+ * <p>The governor watches the rate at which spans start, the average time spent ending spans, an
+ * optional emit backlog such as the number of spooled or buffered segments, and optionally heap
+ * occupancy. It evaluates these signals at most once per interval, on whichever thread starts a
+ * span after the interval has elapsed, so it needs no thread of its own. While any signal is over
+ * its limit the governor escalates one {@link Level} per interval. Once every signal has been
+ * below half of its limit for the configured number of consecutive intervals it recovers one
+ * level.
+ *
+ * <p>Every level, transition and shed item is counted so that shedding is visible during an
+ * incident.
+ *
+ * @see com.amazonaws.xray.opentelemetry.tracing.TracerOptions.Builder#withOverloadGovernor
+ */
+public class OverloadGovernor {
+
+  private static final Log logger = LogFactory.getLog(OverloadGovernor.class);
+
+  private static final double RECOVERY_RATIO = 0.5D;
+  private static final long DEFAULT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final int DEFAULT_RECOVERY_INTERVALS = 5;
+  private static final double DEFAULT_REDUCED_SAMPLING_RATE = 0.1D;
+
+  /**
+   * The degradation levels, from no shedding to the most aggressive. Each level also sheds
+   * everything the levels before it shed.
+   */
+  public enum Level {
+    /** Everything is recorded. */
+    NORMAL,
+    /** Span events are dropped. */
+    DROP_EVENTS,
+    /** Attributes other than those mapped to the X-Ray HTTP fields are dropped. */
+    DROP_ATTRIBUTES,
+    /** New traces are sampled at the reduced sampling rate. */
+    REDUCE_SAMPLING
+  }
+
+  private static final Level[] LEVELS = Level.values();
+
+  private final long intervalNanos;
+  private final int recoveryIntervals;
+  private final double reducedSamplingRate;
+  private final long maxSpanStartRate;
+  private final long maxEndNanos;
+  private final LongSupplier backlog;
+  private final long maxBacklog;
+  private final double maxHeapOccupancy;
+  private final MemoryMXBean memory;
+
+  private final AtomicLong nextEvaluation;
+  private final LongAdder spanStarts = new LongAdder();
+  private final LongAdder spanEnds = new LongAdder();
+  private final LongAdder spanEndNanos = new LongAdder();
+  private final LongAdder[] entered = new LongAdder[LEVELS.length];
+  private final LongAdder escalations = new LongAdder();
+  private final LongAdder recoveries = new LongAdder();
+  private final LongAdder droppedEvents = new LongAdder();
+  private final LongAdder droppedAttributes = new LongAdder();
+  private final LongAdder unsampledTraces = new LongAdder();
+
+  private volatile Level level = Level.NORMAL;
+  private long lastEvaluation;
+  private int calmIntervals;
+
+  private OverloadGovernor(final Builder builder) {
+    this.intervalNanos = builder.intervalNanos;
+    this.recoveryIntervals = builder.recoveryIntervals;
+    this.reducedSamplingRate = builder.reducedSamplingRate;
+    this.maxSpanStartRate = builder.maxSpanStartRate;
+    this.maxEndNanos = builder.maxEndNanos;
+    this.backlog = builder.backlog;
+    this.maxBacklog = builder.maxBacklog;
+    this.maxHeapOccupancy = builder.maxHeapOccupancy;
+    this.memory = maxHeapOccupancy > 0 ? ManagementFactory.getMemoryMXBean() : null;
+
+    for (int i = 0; i < entered.length; i++) {
+      entered[i] = new LongAdder();
+    }
+    long now = System.nanoTime();
+    this.lastEvaluation = now;
+    this.nextEvaluation = new AtomicLong(now + intervalNanos);
+  }
+
+  /**
+   * Create a builder for an overload governor. Signals without a limit are not watched.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Count a span start and evaluate the signals if the interval has elapsed.
+   */
+  public void recordSpanStart() {
+    spanStarts.increment();
+    long now = System.nanoTime();
+    long next = nextEvaluation.get();
+    if (now - next >= 0 && nextEvaluation.compareAndSet(next, now + intervalNanos)) {
+      evaluate(now);
+    }
+  }
+
+  /**
+   * Record the time taken to end a span.
+   *
+   * @param nanos the duration in nanoseconds
+   */
+  public void recordSpanEnd(final long nanos) {
+    spanEnds.increment();
+    spanEndNanos.add(nanos);
+  }
+
+  /**
+   * Return whether a span event should be recorded at the current level, counting it if not.
+   *
+   * @return true if the event should be recorded
+   */
+  public boolean shouldRecordEvent() {
+    if (level.compareTo(Level.DROP_EVENTS) >= 0) {
+      droppedEvents.increment();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Return whether an attribute should be recorded at the current level, counting it if not.
+   * Attributes mapped to the X-Ray HTTP fields are always recorded.
+   *
+   * @param key the attribute key
+   * @return true if the attribute should be recorded
+   */
+  public boolean shouldRecordAttribute(final String key) {
+    if (level.compareTo(Level.DROP_ATTRIBUTES) >= 0 && HttpAttribute.forKey(key) == null) {
+      droppedAttributes.increment();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Return whether a new trace may be sampled at the current level, counting it if not.
+   *
+   * @return true if the trace may be sampled
+   */
+  public boolean shouldSampleTrace() {
+    if (level == Level.REDUCE_SAMPLING
+        && ThreadLocalRandom.current().nextDouble() >= reducedSamplingRate) {
+      unsampledTraces.increment();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Evaluate the signals now rather than waiting for the next span start after the interval.
+   */
+  public void evaluate() {
+    long now = System.nanoTime();
+    nextEvaluation.set(now + intervalNanos);
+    evaluate(now);
+  }
+
+  private synchronized void evaluate(final long now) {
+    long elapsed = Math.max(1L, now - lastEvaluation);
+    lastEvaluation = now;
+
+    // Each signal is expressed as a fraction of its limit so they can be compared together
+    double pressure = 0;
+    if (maxSpanStartRate > 0) {
+      double rate = spanStarts.sumThenReset() * 1e9D / elapsed;
+      pressure = Math.max(pressure, rate / maxSpanStartRate);
+    }
+    if (maxEndNanos > 0) {
+      long ends = spanEnds.sumThenReset();
+      long endNanos = spanEndNanos.sumThenReset();
+      if (ends > 0) {
+        pressure = Math.max(pressure, (double) endNanos / ends / maxEndNanos);
+      }
+    }
+    if (backlog != null) {
+      pressure = Math.max(pressure, (double) backlog.getAsLong() / maxBacklog);
+    }
+    if (memory != null) {
+      MemoryUsage heap = memory.getHeapMemoryUsage();
+      if (heap.getMax() > 0) {
+        pressure = Math.max(pressure, (double) heap.getUsed() / heap.getMax() / maxHeapOccupancy);
+      }
+    }
+
+    Level current = level;
+    if (pressure > 1D) {
+      calmIntervals = 0;
+      if (current.ordinal() < LEVELS.length - 1) {
+        transition(current, LEVELS[current.ordinal() + 1]);
+        escalations.increment();
+      }
+    } else if (pressure <= RECOVERY_RATIO && current != Level.NORMAL) {
+      if (++calmIntervals >= recoveryIntervals) {
+        calmIntervals = 0;
+        transition(current, LEVELS[current.ordinal() - 1]);
+        recoveries.increment();
+      }
+    } else {
+      calmIntervals = 0;
+    }
+  }
+
+  private void transition(final Level from, final Level to) {
+    level = to;
+    entered[to.ordinal()].increment();
+    if (logger.isInfoEnabled()) {
+      logger.info("Tracing overload level changed from " + from + " to " + to + ".");
+    }
+  }
+
+  public Level getLevel() {
+    return level;
+  }
+
+  /**
+   * Return how many times the governor has moved to the given level.
+   *
+   * @param level the level
+   * @return the number of transitions into the level
+   */
+  public long getEnteredCount(final Level level) {
+    return entered[level.ordinal()].sum();
+  }
+
+  public long getEscalationCount() {
+    return escalations.sum();
+  }
+
+  public long getRecoveryCount() {
+    return recoveries.sum();
+  }
+
+  public long getDroppedEventCount() {
+    return droppedEvents.sum();
+  }
+
+  public long getDroppedAttributeCount() {
+    return droppedAttributes.sum();
+  }
+
+  public long getUnsampledTraceCount() {
+    return unsampledTraces.sum();
+  }
+
+  /**
+   * A builder for {@link OverloadGovernor}.
+   */
+  public static class Builder {
+
+    private long intervalNanos = DEFAULT_INTERVAL_NANOS;
+    private int recoveryIntervals = DEFAULT_RECOVERY_INTERVALS;
+    private double reducedSamplingRate = DEFAULT_REDUCED_SAMPLING_RATE;
+    private long maxSpanStartRate;
+    private long maxEndNanos;
+    private LongSupplier backlog;
+    private long maxBacklog;
+    private double maxHeapOccupancy;
+
+    private Builder() {
+    }
+
+    /**
+     * Escalate while more spans than this start per second.
+     *
+     * @param spansPerSecond the limit
+     * @return this builder
+     */
+    public Builder withMaxSpanStartRate(final long spansPerSecond) {
+      this.maxSpanStartRate = spansPerSecond;
+      return this;
+    }
+
+    /**
+     * Escalate while ending a span takes longer than this on average, which includes emitting
+     * segments on the ending thread.
+     *
+     * @param duration the limit
+     * @param unit the unit of the limit
+     * @return this builder
+     */
+    public Builder withMaxSpanEndTime(final long duration, final TimeUnit unit) {
+      this.maxEndNanos = unit.toNanos(duration);
+      return this;
+    }
+
+    /**
+     * Escalate while the backlog exceeds the limit, for example segments spooled but not yet
+     * replayed or bytes held by a tail sampling emitter.
+     *
+     * @param backlog supplies the current backlog
+     * @param maxBacklog the limit
+     * @return this builder
+     */
+    public Builder withBacklog(final LongSupplier backlog, final long maxBacklog) {
+      if (maxBacklog <= 0) {
+        throw new IllegalArgumentException("The maximum backlog must be positive.");
+      }
+      this.backlog = backlog;
+      this.maxBacklog = maxBacklog;
+      return this;
+    }
+
+    /**
+     * Escalate while more than this fraction of the maximum heap is in use.
+     *
+     * @param occupancy the limit between 0 and 1
+     * @return this builder
+     */
+    public Builder withMaxHeapOccupancy(final double occupancy) {
+      if (occupancy <= 0 || occupancy > 1) {
+        throw new IllegalArgumentException("Heap occupancy must be between 0 and 1.");
+      }
+      this.maxHeapOccupancy = occupancy;
+      return this;
+    }
+
+    /**
+     * Evaluate the signals at most this often. The default is one second.
+     *
+     * @param interval the interval
+     * @param unit the unit of the interval
+     * @return this builder
+     */
+    public Builder withEvaluationInterval(final long interval, final TimeUnit unit) {
+      this.intervalNanos = unit.toNanos(interval);
+      return this;
+    }
+
+    /**
+     * Recover one level after this many consecutive calm intervals. The default is five.
+     *
+     * @param intervals the number of intervals
+     * @return this builder
+     */
+    public Builder withRecoveryIntervals(final int intervals) {
+      if (intervals < 1) {
+        throw new IllegalArgumentException("At least one recovery interval is required.");
+      }
+      this.recoveryIntervals = intervals;
+      return this;
+    }
+
+    /**
+     * Sample this fraction of new traces at {@link Level#REDUCE_SAMPLING}, on top of the
+     * recorder's own sampling. The default is 0.1.
+     *
+     * @param rate the rate between 0 and 1
+     * @return this builder
+     */
+    public Builder withReducedSamplingRate(final double rate) {
+      if (rate < 0 || rate > 1) {
+        throw new IllegalArgumentException("The sampling rate must be between 0 and 1.");
+      }
+      this.reducedSamplingRate = rate;
+      return this;
+    }
+
+    public OverloadGovernor build() {
+      return new OverloadGovernor(this);
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package com.amazonaws.xray.opentelemetry.tracing.propagation;
+
+import io.opentelemetry.distributedcontext.DistributedContext;
+import io.opentelemetry.distributedcontext.Entry;
+import io.opentelemetry.distributedcontext.EntryKey;
+import io.opentelemetry.distributedcontext.EntryMetadata;
+import io.opentelemetry.distributedcontext.EntryValue;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable correlation context, the baggage of key value pairs propagated alongside the trace
+ * header, which is decoded lazily.
+ *
+ * <p>A context extracted from a request keeps the raw {@code Correlation-Context} header and only
+ * decodes it when an entry is first read. Most services forward baggage without reading it, so
+ * they never pay for decoding, and since a context whose entries were not changed is the same
+ * object, it is injected into outgoing requests as the raw header it was extracted from.
+ *
+ * <p>Members which are not valid entries, such as keys which are not HTTP tokens or values with
+ * characters other than printable ASCII, are skipped when decoding. Properties following a value
+ * are ignored.
+ */
+public class CorrelationContext implements DistributedContext {
+
+  private static final CorrelationContext EMPTY =
+      new CorrelationContext(null, Collections.emptyMap(), 0);
+
+  private static final String TOKEN_SEPARATORS = "()<>@,;:\\\"/[]?={}";
+
+  private final String header;
+  private final int maxEntries;
+  private volatile Map<String, Entry> entries;
+
+  private CorrelationContext(final String header, final Map<String, Entry> entries,
+      final int maxEntries) {
+    this.header = header;
+    this.entries = entries;
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Return a context without entries.
+   *
+   * @return the empty context
+   */
+  public static CorrelationContext empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Wrap a raw header without decoding it.
+   *
+   * @param header the header
+   * @param maxEntries the number of members decoded, beyond which members are dropped
+   * @return the context
+   */
+  public static CorrelationContext fromHeader(final String header, final int maxEntries) {
+    return new CorrelationContext(header, null, maxEntries);
+  }
+
+  /**
+   * Return a builder for a context without a parent.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public Collection<Entry> getEntries() {
+    return Collections.unmodifiableCollection(decoded().values());
+  }
+
+  @Override
+  public EntryValue getEntryValue(final EntryKey entryKey) {
+    Entry entry = decoded().get(entryKey.getName());
+    return entry == null ? null : entry.getValue();
+  }
+
+  /**
+   * Return the header this context was extracted from, which its entries were never changed from.
+   *
+   * @return the raw header, or null if the context was built
+   */
+  String getHeader() {
+    return header;
+  }
+
+  boolean isDecoded() {
+    return entries != null;
+  }
+
+  private Map<String, Entry> decoded() {
+    Map<String, Entry> decoded = entries;
+    if (decoded == null) {
+      // Decoding is idempotent, so threads racing here at worst decode twice
+      decoded = Collections.unmodifiableMap(decode(header, maxEntries));
+      entries = decoded;
+    }
+    return decoded;
+  }
+
+  private static Map<String, Entry> decode(final String header, final int maxEntries) {
+    Map<String, Entry> decoded = new LinkedHashMap<>();
+    int start = 0;
+    while (start < header.length() && decoded.size() < maxEntries) {
+      int end = header.indexOf(',', start);
+      if (end < 0) {
+        end = header.length();
+      }
+      int properties = header.indexOf(';', start);
+      int valueEnd = properties >= 0 && properties < end ? properties : end;
+      int separator = header.indexOf('=', start);
+      String key = separator >= 0 && separator < valueEnd
+          ? header.substring(start, separator).trim() : "";
+      if (isToken(key)) {
+        String value = percentDecode(header.substring(separator + 1, valueEnd).trim());
+        try {
+          decoded.put(key, Entry.create(EntryKey.create(key), EntryValue.create(value),
+              Entry.METADATA_UNLIMITED_PROPAGATION));
+        } catch (IllegalArgumentException e) {
+          // Skip members which are not valid entries
+        }
+      }
+      start = end + 1;
+    }
+    return decoded;
+  }
+
+  /**
+   * Return whether a key is an HTTP token, which member keys must be.
+   */
+  static boolean isToken(final String key) {
+    if (key.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (c <= ' ' || c >= 0x7f || TOKEN_SEPARATORS.indexOf(c) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static String percentDecode(final String value) {
+    if (value.indexOf('%') < 0) {
+      return value;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '%' && i + 2 < value.length()
+          && Character.digit(value.charAt(i + 1), 16) >= 0
+          && Character.digit(value.charAt(i + 2), 16) >= 0) {
+        bytes.write(Character.digit(value.charAt(i + 1), 16) << 4
+            | Character.digit(value.charAt(i + 2), 16));
+        i += 2;
+      } else if (c < 0x80) {
+        bytes.write(c);
+      } else {
+        // Left as is so that the value is rejected as not printable ASCII
+        return value;
+      }
+    }
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * A builder deriving a context from a parent. A builder which changes no entries builds the
+   * parent itself, so an unchanged extracted context keeps its raw header.
+   */
+  public static class Builder implements DistributedContext.Builder {
+
+    private DistributedContext parent;
+    private final Map<String, Entry> puts = new LinkedHashMap<>();
+    private final Set<String> removes = new HashSet<>();
+
+    private Builder() {
+    }
+
+    @Override
+    public Builder setParent(final DistributedContext parent) {
+      this.parent = parent;
+      return this;
+    }
+
+    @Override
+    public Builder setNoParent() {
+      this.parent = null;
+      return this;
+    }
+
+    @Override
+    public Builder put(final EntryKey key, final EntryValue value, final EntryMetadata metadata) {
+      removes.remove(key.getName());
+      puts.put(key.getName(), Entry.create(key, value, metadata));
+      return this;
+    }
+
+    @Override
+    public Builder remove(final EntryKey key) {
+      puts.remove(key.getName());
+      removes.add(key.getName());
+      return this;
+    }
+
+    @Override
+    public CorrelationContext build() {
+      if (puts.isEmpty() && removes.isEmpty() && parent instanceof CorrelationContext) {
+        return (CorrelationContext) parent;
+      }
+
+      Map<String, Entry> built = new LinkedHashMap<>();
+      if (parent != null) {
+        for (Entry entry : parent.getEntries()) {
+          built.put(entry.getKey().getName(), entry);
+        }
+      }
+      built.keySet().removeAll(removes);
+      built.putAll(puts);
+      return built.isEmpty()
+          ? EMPTY : new CorrelationContext(null, Collections.unmodifiableMap(built), built.size());
+    }
+  }
+}
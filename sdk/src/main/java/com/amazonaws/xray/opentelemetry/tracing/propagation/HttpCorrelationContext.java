@@ -0,0 +1,155 @@
+package com.amazonaws.xray.opentelemetry.tracing.propagation;
+
+import io.opentelemetry.context.propagation.HttpTextFormat;
+import io.opentelemetry.distributedcontext.DistributedContext;
+import io.opentelemetry.distributedcontext.Entry;
+import io.opentelemetry.distributedcontext.EntryMetadata.EntryTtl;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Propagate a correlation context, the baggage carried alongside the X-Ray trace header, via the
+ * {@code Correlation-Context} header as comma separated {@code key=value} members.
+ *
+ * <p>Extraction does not decode the header, see {@link CorrelationContext}, and injecting an
+ * extracted context whose entries were not changed writes its raw header back unchanged. Headers
+ * longer than the byte limit are dropped on extraction and members beyond the entry limit are
+ * dropped when the header is decoded. When injecting a context which was built, members which
+ * would exceed either limit are left out. Dropped headers and left out members are counted, see
+ * {@link #getDroppedCount()}. Entries which may not be propagated, or whose keys are not HTTP
+ * tokens, are never injected.
+ *
+ * @see io.opentelemetry.context.propagation.HttpTextFormat
+ */
+public class HttpCorrelationContext implements HttpTextFormat<DistributedContext> {
+
+  public static final String CORRELATION_HEADER_NAME = "Correlation-Context";
+  public static final List<String> FIELDS = Collections.singletonList(CORRELATION_HEADER_NAME);
+
+  private static final int DEFAULT_MAX_ENTRIES = 180;
+  private static final int DEFAULT_MAX_BYTES = 8192;
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  private final int maxEntries;
+  private final int maxBytes;
+  private final LongAdder dropped = new LongAdder();
+
+  private HttpCorrelationContext(final int maxEntries, final int maxBytes) {
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Create a format which propagates at most 180 entries in at most 8192 bytes.
+   *
+   * @return the format
+   */
+  public static HttpCorrelationContext create() {
+    return create(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * Create a format.
+   *
+   * @param maxEntries the number of entries propagated
+   * @param maxBytes the length of the header
+   * @return the format
+   */
+  public static HttpCorrelationContext create(final int maxEntries, final int maxBytes) {
+    if (maxEntries < 1 || maxBytes < 1) {
+      throw new IllegalArgumentException("Correlation context limits must be positive.");
+    }
+    return new HttpCorrelationContext(maxEntries, maxBytes);
+  }
+
+  @Override
+  public List<String> fields() {
+    return FIELDS;
+  }
+
+  @Override
+  public <C> void inject(final DistributedContext value, final C carrier,
+      final Setter<C> setter) {
+    String header = value instanceof CorrelationContext
+        ? ((CorrelationContext) value).getHeader() : null;
+    if (header == null) {
+      header = encode(value);
+    }
+    if (!header.isEmpty()) {
+      setter.put(carrier, CORRELATION_HEADER_NAME, header);
+    }
+  }
+
+  @Override
+  public <C> DistributedContext extract(final C carrier, final Getter<C> getter) {
+    String header = getter.get(carrier, CORRELATION_HEADER_NAME);
+    if (header == null || header.isEmpty()) {
+      return CorrelationContext.empty();
+    }
+    if (header.length() > maxBytes) {
+      dropped.increment();
+      return CorrelationContext.empty();
+    }
+    return CorrelationContext.fromHeader(header, maxEntries);
+  }
+
+  /**
+   * Return the number of headers dropped on extraction and members left out on injection because
+   * they exceeded a limit.
+   *
+   * @return the dropped count
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  private String encode(final DistributedContext value) {
+    StringBuilder header = new StringBuilder();
+    int count = 0;
+    for (Entry entry : value.getEntries()) {
+      if (entry.getEntryMetadata().getEntryTtl() == EntryTtl.NO_PROPAGATION
+          || !CorrelationContext.isToken(entry.getKey().getName())) {
+        continue;
+      }
+      int length = header.length();
+      if (length > 0) {
+        header.append(',');
+      }
+      header.append(entry.getKey().getName()).append('=');
+      percentEncode(entry.getValue().asString(), header);
+      if (count == maxEntries || header.length() > maxBytes) {
+        header.setLength(length);
+        dropped.increment();
+        continue;
+      }
+      count++;
+    }
+    return header.toString();
+  }
+
+  /**
+   * Encode the characters a member value may not contain: whitespace, quotes, commas, semicolons,
+   * backslashes, percent signs and anything outside printable ASCII.
+   */
+  static void percentEncode(final String value, final StringBuilder out) {
+    int i = 0;
+    while (i < value.length()) {
+      char c = value.charAt(i);
+      if (c > ' ' && c < 0x7f && c != '"' && c != ',' && c != ';' && c != '\\' && c != '%') {
+        out.append(c);
+        i++;
+      } else {
+        // Encode whole code points, so a surrogate pair becomes the four bytes of one character
+        int codePoint = value.codePointAt(i);
+        int length = Character.charCount(codePoint);
+        String character = value.substring(i, i + length);
+        for (byte b : character.getBytes(StandardCharsets.UTF_8)) {
+          out.append('%').append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+        }
+        i += length;
+      }
+    }
+  }
+}
@@ -2,14 +2,23 @@ package com.amazonaws.xray.opentelemetry.tracing.propagation;
 
 import com.amazonaws.xray.entities.TraceHeader;
 import com.amazonaws.xray.opentelemetry.tracing.utils.ContextUtils;
+import com.amazonaws.xray.opentelemetry.tracing.utils.IdUtils;
 import io.opentelemetry.context.propagation.HttpTextFormat;
+import io.opentelemetry.trace.DefaultSpan;
 import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceFlags;
+import io.opentelemetry.trace.Tracestate;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Propagate trace ID information via X-Ray Headers.
  *
+ * <p>Extraction never throws. A missing or malformed header yields an invalid SpanContext and
+ * increments the counter for the reason, see {@link #getExtractionFailureCount}.
+ *
  * @see io.opentelemetry.context.propagation.HttpTextFormat
  */
 public class HttpTraceContext implements HttpTextFormat<SpanContext> {
@@ -19,6 +28,38 @@ public class HttpTraceContext implements HttpTextFormat<SpanContext> {
   public static final io.opentelemetry.trace.propagation.HttpTraceContext OT_TRACE_CONTEXT
       = new io.opentelemetry.trace.propagation.HttpTraceContext();
 
+  private static final String ROOT_KEY = "Root=";
+  private static final String PARENT_KEY = "Parent=";
+  private static final String SAMPLED_KEY = "Sampled=";
+  private static final int TRACE_ID_LENGTH = 35;
+  private static final int SPAN_ID_LENGTH = 16;
+  private static final TraceFlags SAMPLED = TraceFlags.builder().setIsSampled(true).build();
+  private static final TraceFlags NOT_SAMPLED = TraceFlags.builder().setIsSampled(false).build();
+
+  /**
+   * The reasons a trace header could not be extracted.
+   */
+  public enum ExtractionFailure {
+    /** The carrier has no X-Ray header. */
+    MISSING_HEADER,
+    /** The header has no Root field. */
+    MISSING_ROOT,
+    /** The Root field is not a version 1 X-Ray trace ID. */
+    MALFORMED_ROOT,
+    /** The header has no Parent field. */
+    MISSING_PARENT,
+    /** The Parent field is not 16 hex digits or is all zeros. */
+    MALFORMED_PARENT
+  }
+
+  private final LongAdder[] failures = new LongAdder[ExtractionFailure.values().length];
+
+  public HttpTraceContext() {
+    for (int i = 0; i < failures.length; i++) {
+      failures[i] = new LongAdder();
+    }
+  }
+
   @Override
   public List<String> fields() {
     return FIELDS;
@@ -33,11 +74,93 @@ public class HttpTraceContext implements HttpTextFormat<SpanContext> {
   @Override
   //TODO - Accept w3c headers
   public <C> SpanContext extract(final C carrier, final Getter<C> getter) {
-    String xrayHeader = getter.get(carrier, XRAY_HEADER_NAME);
-    if (xrayHeader != null) {
-      return ContextUtils.headerToSpanContext(TraceHeader.fromString(xrayHeader));
-    } else {
-      throw new RuntimeException("Could not extract X-Ray Trace Header.");
+    String header = getter.get(carrier, XRAY_HEADER_NAME);
+    if (header == null) {
+      return fail(ExtractionFailure.MISSING_HEADER);
+    }
+
+    int root = valueStart(header, ROOT_KEY);
+    if (root < 0) {
+      return fail(ExtractionFailure.MISSING_ROOT);
+    }
+    if (!isTraceId(header, root)) {
+      return fail(ExtractionFailure.MALFORMED_ROOT);
+    }
+    int epoch = (int) IdUtils.parseHex(header, root + 2, 8);
+    int high = (int) IdUtils.parseHex(header, root + 11, 8);
+    long low = IdUtils.parseHex(header, root + 19, 16);
+    if (epoch == 0 && high == 0 && low == 0) {
+      // An all-zero trace ID is the invalid ID, not a trace to continue
+      return fail(ExtractionFailure.MALFORMED_ROOT);
+    }
+
+    int parent = valueStart(header, PARENT_KEY);
+    if (parent < 0) {
+      return fail(ExtractionFailure.MISSING_PARENT);
+    }
+    if (!IdUtils.isHex(header, parent, SPAN_ID_LENGTH)
+        || !endsValue(header, parent + SPAN_ID_LENGTH)) {
+      return fail(ExtractionFailure.MALFORMED_PARENT);
     }
+    long spanId = IdUtils.parseHex(header, parent, SPAN_ID_LENGTH);
+    if (spanId == 0) {
+      return fail(ExtractionFailure.MALFORMED_PARENT);
+    }
+
+    // Requested sampling is treated as sampled, matching ContextUtils.headerToSpanContext
+    int sampled = valueStart(header, SAMPLED_KEY);
+    boolean isSampled = sampled >= 0 && sampled < header.length()
+        && (header.charAt(sampled) == '1' || header.charAt(sampled) == '?');
+
+    return SpanContext.createFromRemoteParent(
+        IdUtils.toOtTraceId(epoch, high, low),
+        new SpanId(spanId), isSampled ? SAMPLED : NOT_SAMPLED, Tracestate.getDefault());
+  }
+
+  /**
+   * Return the number of extractions which failed for the given reason.
+   *
+   * @param reason the reason
+   * @return the failure count
+   */
+  public long getExtractionFailureCount(final ExtractionFailure reason) {
+    return failures[reason.ordinal()].sum();
+  }
+
+  private SpanContext fail(final ExtractionFailure reason) {
+    failures[reason.ordinal()].increment();
+    return DefaultSpan.getInvalid().getContext();
+  }
+
+  /**
+   * Find the value of a field which starts the header or follows a semicolon and optional spaces.
+   */
+  private static int valueStart(final String header, final String key) {
+    int index = header.indexOf(key);
+    while (index >= 0) {
+      int before = index - 1;
+      while (before >= 0 && header.charAt(before) == ' ') {
+        before--;
+      }
+      if (before < 0 || header.charAt(before) == ';') {
+        return index + key.length();
+      }
+      index = header.indexOf(key, index + 1);
+    }
+    return -1;
+  }
+
+  private static boolean isTraceId(final String header, final int start) {
+    return start + TRACE_ID_LENGTH <= header.length()
+        && header.charAt(start) == '1'
+        && header.charAt(start + 1) == '-'
+        && IdUtils.isHex(header, start + 2, 8)
+        && header.charAt(start + 10) == '-'
+        && IdUtils.isHex(header, start + 11, 24)
+        && endsValue(header, start + TRACE_ID_LENGTH);
+  }
+
+  private static boolean endsValue(final String header, final int end) {
+    return end == header.length() || header.charAt(end) == ';' || header.charAt(end) == ' ';
   }
 }
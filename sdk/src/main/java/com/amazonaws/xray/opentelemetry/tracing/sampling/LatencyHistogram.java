@@ -0,0 +1,90 @@
+package com.amazonaws.xray.opentelemetry.tracing.sampling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free log-linear histogram of nanosecond durations used to estimate latency percentiles.
+ *
+ * <p>Each power of two is split into {@value #SUB_BUCKETS} linear sub-buckets which bounds the
+ * relative error of an estimate to roughly 25%. Counts are halved once the window is exceeded so
+ * that the estimate follows recent traffic.
+ */
+class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong total = new AtomicLong();
+  private final long window;
+
+  LatencyHistogram(final long window) {
+    this.window = window;
+  }
+
+  void record(final long durationNanos) {
+    counts.incrementAndGet(bucketFor(Math.max(durationNanos, 1L)));
+    if (total.incrementAndGet() > window) {
+      decay();
+    }
+  }
+
+  long getCount() {
+    return total.get();
+  }
+
+  /**
+   * Estimate the duration at the given percentile.
+   * @param percentile the percentile between 0 and 100
+   * @return the lower bound of the bucket holding the percentile, or 0 if nothing was recorded
+   */
+  long valueAtPercentile(final double percentile) {
+    long count = total.get();
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(count * (percentile / 100D));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return lowerBound(i);
+      }
+    }
+    return lowerBound(BUCKETS - 1);
+  }
+
+  private synchronized void decay() {
+    if (total.get() <= window) {
+      return;
+    }
+    long remaining = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      long halved = counts.get(i) >>> 1;
+      counts.set(i, halved);
+      remaining += halved;
+    }
+    total.set(remaining);
+  }
+
+  static int bucketFor(final long value) {
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent < SUB_BUCKET_BITS) {
+      return (int) value;
+    }
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long lowerBound(final int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    return (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+  }
+}
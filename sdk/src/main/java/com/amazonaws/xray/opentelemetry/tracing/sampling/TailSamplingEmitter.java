@@ -0,0 +1,140 @@
+package com.amazonaws.xray.opentelemetry.tracing.sampling;
+
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An emitter which defers the sampling decision for a trace until its root segment has ended.
+ *
+ * <p>Subsegments streamed ahead of their root are held in a memory-bounded buffer keyed by trace
+ * ID. When the root segment is emitted the policy decides whether the whole trace is forwarded to
+ * the delegate emitter or dropped. Traces whose root does not end within the TTL, or which do not
+ * fit in the byte budget, are evicted least recently updated first.
+ *
+ * <p>Only segments which were sampled by the recorder reach an emitter, so the recorder should be
+ * configured to sample every request (for example with an
+ * {@link com.amazonaws.xray.strategy.sampling.AllSamplingStrategy}) for this emitter to see the
+ * slow and failed traces that head sampling would otherwise discard.
+ *
+ * @see TailSamplingPolicies
+ */
+public class TailSamplingEmitter extends Emitter {
+
+  private static final Log logger = LogFactory.getLog(TailSamplingEmitter.class);
+
+  private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+  private static final long DEFAULT_TTL_SECONDS = 60L;
+
+  private final Emitter delegate;
+  private final TailSamplingPolicy policy;
+  private final TraceBuffer buffer;
+  private final LongAdder kept = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  private TailSamplingEmitter(final Emitter delegate, final TailSamplingPolicy policy,
+      final long maxBytes, final long ttlNanos) {
+    this.delegate = delegate;
+    this.policy = policy;
+    this.buffer = new TraceBuffer(maxBytes, ttlNanos);
+  }
+
+  /**
+   * Create a tail sampling emitter with a 64 MiB buffer and a 60 second TTL.
+   *
+   * @param delegate the emitter to forward kept traces to
+   * @param policy   the policy deciding which traces to keep
+   * @return the emitter
+   */
+  public static TailSamplingEmitter create(final Emitter delegate,
+      final TailSamplingPolicy policy) {
+    return create(delegate, policy, DEFAULT_MAX_BYTES, DEFAULT_TTL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Create a tail sampling emitter.
+   *
+   * @param delegate the emitter to forward kept traces to
+   * @param policy   the policy deciding which traces to keep
+   * @param maxBytes the estimated number of bytes which may be buffered before evicting traces
+   * @param ttl      how long a trace may wait for its root segment before being evicted
+   * @param unit     the unit of the TTL
+   * @return the emitter
+   */
+  public static TailSamplingEmitter create(final Emitter delegate,
+      final TailSamplingPolicy policy,
+      final long maxBytes,
+      final long ttl,
+      final TimeUnit unit) {
+    return new TailSamplingEmitter(delegate, policy, maxBytes, unit.toNanos(ttl));
+  }
+
+  @Override
+  public boolean sendSegment(final Segment segment) {
+    List<Subsegment> streamed = buffer.remove(segment.getTraceId().toString(), System.nanoTime());
+
+    boolean keep;
+    try {
+      keep = policy.shouldKeep(segment, streamed);
+    } catch (RuntimeException e) {
+      logger.error("Tail sampling policy failed, keeping trace " + segment.getTraceId(), e);
+      keep = true;
+    }
+
+    if (!keep) {
+      dropped.increment();
+      return true;
+    }
+
+    kept.increment();
+    boolean sent = true;
+    for (Subsegment subsegment : streamed) {
+      sent &= delegate.sendSubsegment(subsegment);
+    }
+    return delegate.sendSegment(segment) && sent;
+  }
+
+  @Override
+  public boolean sendSubsegment(final Subsegment subsegment) {
+    buffer.add(subsegment.getParentSegment().getTraceId().toString(), subsegment,
+        System.nanoTime());
+    return true;
+  }
+
+  /**
+   * Return the number of traces forwarded to the delegate emitter.
+   * @return the count
+   */
+  public long getKeptCount() {
+    return kept.sum();
+  }
+
+  /**
+   * Return the number of traces dropped by the policy.
+   * @return the count
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  /**
+   * Return the number of traces evicted from the buffer before their root segment ended.
+   * @return the count
+   */
+  public long getEvictedCount() {
+    return buffer.getEvictedCount();
+  }
+
+  /**
+   * Return the estimated number of bytes currently buffered.
+   * @return the estimated size
+   */
+  public long getBufferedBytes() {
+    return buffer.getBytes();
+  }
+}
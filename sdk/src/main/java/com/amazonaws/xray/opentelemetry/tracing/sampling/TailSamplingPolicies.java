@@ -0,0 +1,114 @@
+package com.amazonaws.xray.opentelemetry.tracing.sampling;
+
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadata;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadataFactory;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Commonly used tail sampling policies.
+ *
+ * @see TailSamplingPolicy
+ */
+public class TailSamplingPolicies {
+
+  private static final double NS_PER_S = 1e+9D;
+  private static final long LATENCY_WINDOW = 10000L;
+  private static final long LATENCY_MIN_SAMPLES = 100L;
+
+  /**
+   * Keep traces where any entity is marked as a fault, error or throttle, or where any span was
+   * given a non-OK status.
+   * @return the policy
+   */
+  public static TailSamplingPolicy errorOrFault() {
+    return (root, streamed) -> anyEntity(root, streamed, TailSamplingPolicies::isFailed);
+  }
+
+  /**
+   * Keep traces whose root duration is at or above the given percentile of recently observed root
+   * durations. Every trace is kept until enough durations have been observed to estimate the
+   * percentile.
+   * @param percentile the percentile between 0 and 100
+   * @return the policy
+   */
+  public static TailSamplingPolicy latencyAbovePercentile(final double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+    }
+
+    final LatencyHistogram histogram = new LatencyHistogram(LATENCY_WINDOW);
+    return (root, streamed) -> {
+      long duration = (long) ((root.getEndTime() - root.getStartTime()) * NS_PER_S);
+      boolean warm = histogram.getCount() >= LATENCY_MIN_SAMPLES;
+      long threshold = histogram.valueAtPercentile(percentile);
+      histogram.record(duration);
+      return !warm || duration >= threshold;
+    };
+  }
+
+  /**
+   * Keep traces where any span has an attribute with the given key and value.
+   * @param key the attribute key
+   * @param value the attribute value, compared using equals
+   * @return the policy
+   */
+  public static TailSamplingPolicy attributeEquals(final String key, final Object value) {
+    return (root, streamed) -> anyEntity(root, streamed, entity -> {
+      EntityMetadata metadata = EntityMetadataFactory.get(entity);
+      return metadata != null && value.equals(metadata.getAttribute(key));
+    });
+  }
+
+  /**
+   * Keep traces which any of the given policies would keep.
+   * @param policies the policies, evaluated in order
+   * @return the policy
+   */
+  public static TailSamplingPolicy anyOf(final TailSamplingPolicy... policies) {
+    return (root, streamed) -> {
+      for (TailSamplingPolicy policy : policies) {
+        if (policy.shouldKeep(root, streamed)) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  private static boolean isFailed(final Entity entity) {
+    if (entity.isFault() || entity.isError() || entity.isThrottle()) {
+      return true;
+    }
+    EntityMetadata metadata = EntityMetadataFactory.get(entity);
+    return metadata != null && !metadata.getStatus().isOk();
+  }
+
+  private static boolean anyEntity(final Segment root, final List<Subsegment> streamed,
+      final Predicate<Entity> predicate) {
+    if (anyInTree(root, predicate)) {
+      return true;
+    }
+    for (Subsegment subsegment : streamed) {
+      if (anyInTree(subsegment, predicate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean anyInTree(final Entity entity, final Predicate<Entity> predicate) {
+    if (predicate.test(entity)) {
+      return true;
+    }
+    for (Subsegment subsegment : entity.getSubsegments()) {
+      if (anyInTree(subsegment, predicate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,22 @@
+package com.amazonaws.xray.opentelemetry.tracing.sampling;
+
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import java.util.List;
+
+/**
+ * Decides whether a completed trace held by a {@link TailSamplingEmitter} should be emitted.
+ *
+ * @see TailSamplingPolicies
+ */
+public interface TailSamplingPolicy {
+
+  /**
+   * Decide whether to keep a trace once its root segment has ended.
+   *
+   * @param root      the ended root segment including any subsegments still attached to it
+   * @param streamed  subsegments of the same trace which were streamed before the root ended
+   * @return true if the trace should be emitted, false if it should be dropped
+   */
+  boolean shouldKeep(Segment root, List<Subsegment> streamed);
+}
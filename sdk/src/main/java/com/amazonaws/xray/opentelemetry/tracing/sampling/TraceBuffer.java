@@ -0,0 +1,109 @@
+package com.amazonaws.xray.opentelemetry.tracing.sampling;
+
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadata;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadataFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A memory-bounded store of ended subsegments keyed by X-Ray trace ID.
+ *
+ * <p>Traces are kept in least-recently-updated order. Whenever the estimated size of the store
+ * exceeds its budget, or the least recently updated trace is older than the TTL, traces are evicted
+ * from the head. Sizes are estimated from the number of entities and attributes rather than by
+ * serializing, which keeps buffering cheap on the request thread.
+ */
+class TraceBuffer {
+
+  static final long ESTIMATED_ENTITY_BYTES = 512L;
+  static final long ESTIMATED_ATTRIBUTE_BYTES = 64L;
+
+  private final LinkedHashMap<String, BufferedTrace> traces =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private final long maxBytes;
+  private final long ttlNanos;
+  private final LongAdder evicted = new LongAdder();
+  private long bytes;
+
+  TraceBuffer(final long maxBytes, final long ttlNanos) {
+    this.maxBytes = maxBytes;
+    this.ttlNanos = ttlNanos;
+  }
+
+  synchronized void add(final String traceId, final Subsegment subsegment, final long nowNanos) {
+    BufferedTrace trace = traces.get(traceId);
+    if (trace == null) {
+      trace = new BufferedTrace();
+      traces.put(traceId, trace);
+    }
+
+    long size = estimateBytes(subsegment);
+    trace.subsegments.add(subsegment);
+    trace.bytes += size;
+    trace.lastUpdatedNanos = nowNanos;
+    bytes += size;
+
+    evict(nowNanos);
+  }
+
+  /**
+   * Remove and return every subsegment buffered for a trace.
+   */
+  synchronized List<Subsegment> remove(final String traceId, final long nowNanos) {
+    BufferedTrace trace = traces.remove(traceId);
+    if (trace != null) {
+      bytes -= trace.bytes;
+    }
+    evict(nowNanos);
+    return trace == null ? Collections.<Subsegment>emptyList() : trace.subsegments;
+  }
+
+  synchronized long getBytes() {
+    return bytes;
+  }
+
+  synchronized int size() {
+    return traces.size();
+  }
+
+  long getEvictedCount() {
+    return evicted.sum();
+  }
+
+  private void evict(final long nowNanos) {
+    Iterator<BufferedTrace> iterator = traces.values().iterator();
+    while (iterator.hasNext()) {
+      BufferedTrace eldest = iterator.next();
+      if (bytes <= maxBytes && nowNanos - eldest.lastUpdatedNanos < ttlNanos) {
+        break;
+      }
+      iterator.remove();
+      bytes -= eldest.bytes;
+      evicted.increment();
+    }
+  }
+
+  static long estimateBytes(final Entity entity) {
+    long size = ESTIMATED_ENTITY_BYTES;
+    EntityMetadata metadata = EntityMetadataFactory.get(entity);
+    if (metadata != null) {
+      size += metadata.getAttributeCount() * ESTIMATED_ATTRIBUTE_BYTES;
+    }
+    for (Subsegment child : entity.getSubsegments()) {
+      size += estimateBytes(child);
+    }
+    return size;
+  }
+
+  private static class BufferedTrace {
+    private final List<Subsegment> subsegments = new ArrayList<>();
+    private long bytes;
+    private long lastUpdatedNanos;
+  }
+}
@@ -5,8 +5,10 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.opentelemetry.trace.AttributeValue;
 import io.opentelemetry.trace.AttributeValue.Type;
 import java.io.IOException;
+import java.util.Map;
 
 
 public class EntityMetadataEventSerializer extends StdSerializer<EntityMetadataEvent> {
@@ -38,33 +40,42 @@ public class EntityMetadataEventSerializer extends StdSerializer<EntityMetadataE
       final SerializerProvider provider)
       throws IOException, JsonProcessingException {
 
+    writeEvent(value.getName(), value.getAttributes(), gen);
+  }
+
+  /**
+   * Write an event as its name and typed attribute values, without going through a provider.
+   * @param name the event name
+   * @param attributes the event attributes
+   * @param gen the JSON generator
+   * @throws IOException when an IO error occurs
+   */
+  static void writeEvent(final String name, final Map<String, AttributeValue> attributes,
+      final JsonGenerator gen) throws IOException {
     gen.writeStartObject();
-    gen.writeObjectField(NAME_FIELD, value.getName());
+    gen.writeStringField(NAME_FIELD, name);
     gen.writeObjectFieldStart(ATTRIBUTES_FIELD);
-    value.getAttributes().forEach((s, attributeValue) -> {
-      try {
-        gen.writeObjectFieldStart(s);
-        gen.writeStringField(TYPE_FIELD, attributeValue.getType().toString());
+    for (Map.Entry<String, AttributeValue> entry : attributes.entrySet()) {
+      AttributeValue attributeValue = entry.getValue();
+      gen.writeObjectFieldStart(entry.getKey());
+      gen.writeStringField(TYPE_FIELD, attributeValue.getType().toString());
 
-        /*
-         * Jackson attempts to treat AttributeValue as a POJO
-         * Calling the wrong-type of getValue() throws exceptions
-         */
-        if (attributeValue.getType() == Type.BOOLEAN) {
-          gen.writeBooleanField(VALUE_FIELD, attributeValue.getBooleanValue());
-        } else if (attributeValue.getType() == Type.LONG) {
-          gen.writeNumberField(VALUE_FIELD, attributeValue.getLongValue());
-        } else if (attributeValue.getType() == Type.DOUBLE) {
-          gen.writeNumberField(VALUE_FIELD, attributeValue.getDoubleValue());
-        } else if (attributeValue.getType() == Type.STRING) {
-          gen.writeStringField(VALUE_FIELD, attributeValue.getStringValue());
-        }
-
-        gen.writeEndObject();
-      } catch (IOException e) {
-        throw new RuntimeException(e);
+      /*
+       * Jackson attempts to treat AttributeValue as a POJO
+       * Calling the wrong-type of getValue() throws exceptions
+       */
+      if (attributeValue.getType() == Type.BOOLEAN) {
+        gen.writeBooleanField(VALUE_FIELD, attributeValue.getBooleanValue());
+      } else if (attributeValue.getType() == Type.LONG) {
+        gen.writeNumberField(VALUE_FIELD, attributeValue.getLongValue());
+      } else if (attributeValue.getType() == Type.DOUBLE) {
+        gen.writeNumberField(VALUE_FIELD, attributeValue.getDoubleValue());
+      } else if (attributeValue.getType() == Type.STRING) {
+        gen.writeStringField(VALUE_FIELD, attributeValue.getStringValue());
       }
-    });
+
+      gen.writeEndObject();
+    }
     gen.writeEndObject();
     gen.writeEndObject();
   }
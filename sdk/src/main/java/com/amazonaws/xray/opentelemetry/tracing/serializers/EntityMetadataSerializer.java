@@ -0,0 +1,117 @@
+package com.amazonaws.xray.opentelemetry.tracing.serializers;
+
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityAttributes;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadata;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+public class EntityMetadataSerializer extends StdSerializer<EntityMetadata> {
+
+  public static final String EVENTS_FIELD = "events";
+  public static final String ATTRIBUTES_FIELD = "attributes";
+  public static final String KIND_FIELD = "kind";
+  public static final String STATUS_FIELD = "status";
+
+  public EntityMetadataSerializer() {
+    this(null);
+  }
+
+  public EntityMetadataSerializer(final Class<EntityMetadata> t) {
+    super(t);
+  }
+
+  /**
+   * Serialize EntityMetadata into JSON, writing attribute values straight from their typed
+   * columns. Empty events and attributes are omitted.
+   * @param value the value to serialize
+   * @param gen the JSON generator
+   * @param provider the JSON provider
+   * @throws IOException when an IO error occurs
+   */
+  @Override
+  public void serialize(final EntityMetadata value,
+      final JsonGenerator gen,
+      final SerializerProvider provider)
+      throws IOException {
+
+    gen.writeStartObject();
+    if (!value.getEvents().isEmpty()) {
+      provider.defaultSerializeField(EVENTS_FIELD, value.getEvents(), gen);
+    }
+    if (value.getAttributeCount() > 0) {
+      gen.writeObjectFieldStart(ATTRIBUTES_FIELD);
+      value.forEachAttribute(new AttributeWriter(gen));
+      gen.writeEndObject();
+    }
+    provider.defaultSerializeField(KIND_FIELD, value.getKind(), gen);
+    provider.defaultSerializeField(STATUS_FIELD, value.getStatus(), gen);
+    gen.writeEndObject();
+  }
+
+  private static final class AttributeWriter implements EntityAttributes.Visitor<IOException> {
+
+    private final JsonGenerator gen;
+
+    private AttributeWriter(final JsonGenerator gen) {
+      this.gen = gen;
+    }
+
+    @Override
+    public void visitString(final String key, final String value) throws IOException {
+      gen.writeStringField(key, value);
+    }
+
+    @Override
+    public void visitLong(final String key, final long value) throws IOException {
+      gen.writeNumberField(key, value);
+    }
+
+    @Override
+    public void visitDouble(final String key, final double value) throws IOException {
+      gen.writeNumberField(key, value);
+    }
+
+    @Override
+    public void visitBoolean(final String key, final boolean value) throws IOException {
+      gen.writeBooleanField(key, value);
+    }
+
+    @Override
+    public void visitStringArray(final String key, final String[] values) throws IOException {
+      gen.writeArrayFieldStart(key);
+      for (String value : values) {
+        gen.writeString(value);
+      }
+      gen.writeEndArray();
+    }
+
+    @Override
+    public void visitLongArray(final String key, final long[] values) throws IOException {
+      gen.writeArrayFieldStart(key);
+      for (long value : values) {
+        gen.writeNumber(value);
+      }
+      gen.writeEndArray();
+    }
+
+    @Override
+    public void visitDoubleArray(final String key, final double[] values) throws IOException {
+      gen.writeArrayFieldStart(key);
+      for (double value : values) {
+        gen.writeNumber(value);
+      }
+      gen.writeEndArray();
+    }
+
+    @Override
+    public void visitBooleanArray(final String key, final boolean[] values) throws IOException {
+      gen.writeArrayFieldStart(key);
+      for (boolean value : values) {
+        gen.writeBoolean(value);
+      }
+      gen.writeEndArray();
+    }
+  }
+}
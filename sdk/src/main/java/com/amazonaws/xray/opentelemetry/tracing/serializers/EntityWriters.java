@@ -0,0 +1,76 @@
+package com.amazonaws.xray.opentelemetry.tracing.serializers;
+
+import com.amazonaws.xray.entities.Cause;
+import com.amazonaws.xray.entities.EntityImpl;
+import com.amazonaws.xray.serializers.CauseSerializer;
+import com.amazonaws.xray.serializers.StackTraceElementSerializer;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+/**
+ * Writers mirroring the X-Ray recorder's own entity mapper, which is not accessible, for
+ * serializing entities into streams and buffers rather than strings.
+ */
+public class EntityWriters {
+
+  private static final ObjectWriter FULL = newMapper(false).writer();
+  private static final ObjectWriter WITHOUT_SUBSEGMENTS = newMapper(true).writer();
+
+  @JsonIgnoreProperties({"subsegments"})
+  private abstract static class WithoutSubsegments {
+  }
+
+  /**
+   * Return a writer producing the same document as {@code Entity#serialize()}.
+   * @return the writer
+   */
+  public static ObjectWriter full() {
+    return FULL;
+  }
+
+  /**
+   * Return a writer producing the document of an entity without its subsegments.
+   * @return the writer
+   */
+  public static ObjectWriter withoutSubsegments() {
+    return WITHOUT_SUBSEGMENTS;
+  }
+
+  private static ObjectMapper newMapper(final boolean withoutSubsegments) {
+    ObjectMapper mapper = new ObjectMapper()
+        .setPropertyNamingStrategy(PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES)
+        .setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
+    mapper.registerModule(new SimpleModule() {
+      @Override
+      public void setupModule(final SetupContext context) {
+        super.setupModule(context);
+        context.addBeanSerializerModifier(new BeanSerializerModifier() {
+          @Override
+          @SuppressWarnings("unchecked")
+          public JsonSerializer<?> modifySerializer(final SerializationConfig config,
+              final BeanDescription beanDescription, final JsonSerializer<?> serializer) {
+            Class<?> type = beanDescription.getBeanClass();
+            if (Cause.class.isAssignableFrom(type)) {
+              return new CauseSerializer((JsonSerializer<Object>) serializer);
+            } else if (StackTraceElement.class.isAssignableFrom(type)) {
+              return new StackTraceElementSerializer();
+            }
+            return serializer;
+          }
+        });
+      }
+    });
+    if (withoutSubsegments) {
+      mapper.addMixIn(EntityImpl.class, WithoutSubsegments.class);
+    }
+    return mapper;
+  }
+}
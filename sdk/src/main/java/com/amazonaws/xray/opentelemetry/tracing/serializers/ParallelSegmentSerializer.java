@@ -0,0 +1,331 @@
+package com.amazonaws.xray.opentelemetry.tracing.serializers;
+
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Serializes segments with very large subsegment trees on a {@link ForkJoinPool} rather than on
+ * the single thread which ends the segment.
+ *
+ * <p>Segments with fewer subsegments than the threshold are serialized exactly as
+ * {@link Segment#serialize()} does. Larger trees are split into tasks: a run of siblings whose
+ * subtrees together stay below the threshold is written by one task, a longer run is halved, and
+ * a single subsegment whose own subtree reaches the threshold is written without its children,
+ * which are serialized as a run of their own and stitched back in as its {@code subsegments}
+ * array. Each task writes into its own buffer taken from a small pool, so concurrent tasks never
+ * share a generator or a buffer.
+ *
+ * <p>The output uses the X-Ray recorder's JSON mapping and so parses to the same document as
+ * {@link Segment#serialize()}, although the {@code subsegments} field of a split entity is written
+ * last.
+ */
+public class ParallelSegmentSerializer {
+
+  private static final Log logger = LogFactory.getLog(ParallelSegmentSerializer.class);
+
+  private static final int DEFAULT_THRESHOLD = 256;
+  private static final int INITIAL_BUFFER_BYTES = 4096;
+  private static final int MAX_POOLED_BUFFER_BYTES = 1 << 20;
+  private static final byte[] SUBSEGMENTS_FIELD =
+      "\"subsegments\":[".getBytes(StandardCharsets.UTF_8);
+
+  private static final ObjectWriter WRITER = EntityWriters.full();
+  private static final ObjectWriter SHALLOW_WRITER = EntityWriters.withoutSubsegments();
+
+  private final ForkJoinPool pool;
+  private final int threshold;
+  private final int maxPooledBuffers;
+  private final ConcurrentLinkedQueue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+  private ParallelSegmentSerializer(final ForkJoinPool pool, final int threshold) {
+    this.pool = pool;
+    this.threshold = threshold;
+    this.maxPooledBuffers = pool.getParallelism() * 2;
+  }
+
+  /**
+   * Create a serializer which splits segments with at least 256 subsegments across the common
+   * pool.
+   *
+   * @return the serializer
+   */
+  public static ParallelSegmentSerializer create() {
+    return create(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Create a serializer.
+   *
+   * @param pool the pool which runs the serialization tasks
+   * @param threshold the number of subsegments below which a tree is serialized on one thread
+   * @return the serializer
+   */
+  public static ParallelSegmentSerializer create(final ForkJoinPool pool, final int threshold) {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("The threshold must be positive.");
+    }
+    return new ParallelSegmentSerializer(pool, threshold);
+  }
+
+  /**
+   * Return whether a segment has enough subsegments to be serialized in parallel.
+   *
+   * @param segment the segment
+   * @return true if {@link #serialize(Segment)} splits the segment into tasks
+   */
+  public boolean isParallel(final Segment segment) {
+    return countSubsegments(segment, threshold) >= threshold;
+  }
+
+  /**
+   * Serialize a segment and all of its subsegments to UTF-8 JSON.
+   *
+   * @param segment the segment
+   * @return the document, or an empty array if the segment could not be serialized
+   */
+  public byte[] serialize(final Segment segment) {
+    if (!isParallel(segment)) {
+      return segment.serialize().getBytes(StandardCharsets.UTF_8);
+    }
+
+    Buffer buffer = null;
+    try {
+      buffer = pool.invoke(new EntityTask(segment));
+      return buffer.toByteArray();
+    } catch (UncheckedIOException e) {
+      logger.error("Exception while serializing segment.", e.getCause());
+      return new byte[0];
+    } finally {
+      release(buffer);
+    }
+  }
+
+  /**
+   * Count the subsegments below an entity, stopping once the limit is reached.
+   */
+  private static int countSubsegments(final Entity entity, final int limit) {
+    int count = 0;
+    for (Subsegment child : entity.getSubsegments()) {
+      if (++count >= limit) {
+        return count;
+      }
+      count += countSubsegments(child, limit - count);
+      if (count >= limit) {
+        return count;
+      }
+    }
+    return count;
+  }
+
+  private Buffer acquire() {
+    Buffer buffer = buffers.poll();
+    if (buffer == null) {
+      return new Buffer();
+    }
+    pooledBuffers.decrementAndGet();
+    return buffer;
+  }
+
+  private void release(final Buffer buffer) {
+    if (buffer == null || buffer.bytes.length > MAX_POOLED_BUFFER_BYTES) {
+      return;
+    }
+    if (pooledBuffers.incrementAndGet() > maxPooledBuffers) {
+      pooledBuffers.decrementAndGet();
+      return;
+    }
+    buffer.count = 0;
+    buffers.offer(buffer);
+  }
+
+  /**
+   * Wait for a forked task whose output is no longer needed and return its buffer to the pool.
+   */
+  private void discard(final ForkJoinTask<Buffer> task) {
+    try {
+      release(task.join());
+    } catch (RuntimeException e) {
+      // A failed task has already returned its buffers
+    }
+  }
+
+  /**
+   * Writes one entity, splitting its children into their own tasks if they are numerous enough.
+   */
+  private final class EntityTask extends RecursiveTask<Buffer> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Entity entity;
+
+    EntityTask(final Entity entity) {
+      this.entity = entity;
+    }
+
+    @Override
+    protected Buffer compute() {
+      List<Subsegment> children = new ArrayList<>(entity.getSubsegments());
+      SiblingsTask childTask = null;
+      if (!children.isEmpty()) {
+        childTask = new SiblingsTask(children, 0, children.size());
+        childTask.fork();
+      }
+
+      Buffer buffer = acquire();
+      try {
+        SHALLOW_WRITER.writeValue(buffer, entity);
+      } catch (IOException e) {
+        release(buffer);
+        if (childTask != null) {
+          discard(childTask);
+        }
+        throw new UncheckedIOException(e);
+      }
+      if (childTask == null) {
+        return buffer;
+      }
+
+      Buffer childBuffer;
+      try {
+        childBuffer = childTask.join();
+      } catch (RuntimeException e) {
+        release(buffer);
+        throw e;
+      }
+      try {
+        // Reopen the object and append the children before closing it again
+        buffer.count--;
+        if (buffer.bytes[buffer.count - 1] != '{') {
+          buffer.write(',');
+        }
+        buffer.write(SUBSEGMENTS_FIELD, 0, SUBSEGMENTS_FIELD.length);
+        buffer.write(childBuffer.bytes, 0, childBuffer.count);
+        buffer.write(']');
+        buffer.write('}');
+      } finally {
+        release(childBuffer);
+      }
+      return buffer;
+    }
+  }
+
+  /**
+   * Writes a run of siblings as comma separated documents, without the enclosing brackets.
+   */
+  private final class SiblingsTask extends RecursiveTask<Buffer> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Subsegment> siblings;
+    private final int from;
+    private final int to;
+
+    SiblingsTask(final List<Subsegment> siblings, final int from, final int to) {
+      this.siblings = siblings;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Buffer compute() {
+      int count = 0;
+      for (int i = from; i < to && count < threshold; i++) {
+        count += 1 + countSubsegments(siblings.get(i), threshold - count);
+      }
+      if (count < threshold) {
+        return writeSequentially();
+      }
+      if (to - from == 1) {
+        return new EntityTask(siblings.get(from)).compute();
+      }
+
+      int middle = (from + to) >>> 1;
+      SiblingsTask right = new SiblingsTask(siblings, middle, to);
+      right.fork();
+      Buffer buffer;
+      try {
+        buffer = new SiblingsTask(siblings, from, middle).compute();
+      } catch (RuntimeException e) {
+        discard(right);
+        throw e;
+      }
+      Buffer rightBuffer;
+      try {
+        rightBuffer = right.join();
+      } catch (RuntimeException e) {
+        release(buffer);
+        throw e;
+      }
+      buffer.write(',');
+      buffer.write(rightBuffer.bytes, 0, rightBuffer.count);
+      release(rightBuffer);
+      return buffer;
+    }
+
+    private Buffer writeSequentially() {
+      Buffer buffer = acquire();
+      try {
+        for (int i = from; i < to; i++) {
+          if (i > from) {
+            buffer.write(',');
+          }
+          WRITER.writeValue(buffer, siblings.get(i));
+        }
+      } catch (IOException e) {
+        release(buffer);
+        throw new UncheckedIOException(e);
+      }
+      return buffer;
+    }
+  }
+
+  /**
+   * A growable byte buffer which keeps its array when it is returned to the pool. Closing it,
+   * as the mapper does after each value, has no effect.
+   */
+  private static final class Buffer extends OutputStream {
+
+    private byte[] bytes = new byte[INITIAL_BUFFER_BYTES];
+    private int count;
+
+    @Override
+    public void write(final int b) {
+      ensureCapacity(1);
+      bytes[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      ensureCapacity(len);
+      System.arraycopy(b, off, bytes, count, len);
+      count += len;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(bytes, count);
+    }
+
+    private void ensureCapacity(final int extra) {
+      if (count + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + extra));
+      }
+    }
+  }
+}
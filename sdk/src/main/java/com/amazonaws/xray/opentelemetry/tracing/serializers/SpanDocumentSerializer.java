@@ -0,0 +1,215 @@
+package com.amazonaws.xray.opentelemetry.tracing.serializers;
+
+import com.amazonaws.xray.opentelemetry.tracing.exporters.FinishedSpan;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.AnnotationAllowList;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadataFactory;
+import com.amazonaws.xray.opentelemetry.tracing.utils.ContextUtils;
+import com.amazonaws.xray.opentelemetry.tracing.utils.HttpAttribute;
+import com.amazonaws.xray.opentelemetry.tracing.utils.StatusUtils;
+import com.amazonaws.xray.opentelemetry.tracing.utils.TimeUtils;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Event;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.Status.CanonicalCode;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a finished span straight into an X-Ray segment document with a streaming JSON generator,
+ * without creating an entity for it first.
+ *
+ * <p>The document holds what recording the span through an {@code EntitySpan} would: HTTP
+ * attributes in the {@code http} section, allow-listed attributes as annotations, status failures
+ * as fault, error and throttle flags and the span's attributes, events, kind and status in the
+ * OpenTelemetry metadata. Spans with a local parent are written as independent subsegment
+ * documents naming their parent and trace, so spans can be sent in any order without assembling
+ * their trees.
+ */
+public class SpanDocumentSerializer {
+
+  private static final JsonFactory FACTORY =
+      new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  private static final HttpAttribute[] HTTP_ATTRIBUTES = HttpAttribute.values();
+
+  private final AnnotationAllowList annotationAllowList;
+
+  private SpanDocumentSerializer(final AnnotationAllowList annotationAllowList) {
+    this.annotationAllowList = annotationAllowList;
+  }
+
+  /**
+   * Create a serializer promoting the attributes in the allow-list to annotations.
+   *
+   * @param annotationAllowList the allow-list
+   * @return the serializer
+   */
+  public static SpanDocumentSerializer create(final AnnotationAllowList annotationAllowList) {
+    return new SpanDocumentSerializer(annotationAllowList);
+  }
+
+  /**
+   * Write the document of a span as UTF-8 JSON.
+   *
+   * @param span the span
+   * @param out the stream to write to, which is left open
+   * @throws IOException when an IO error occurs
+   */
+  public void serialize(final FinishedSpan span, final OutputStream out) throws IOException {
+    try (JsonGenerator gen = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+      SpanContext context = span.getContext();
+      gen.writeStartObject();
+      gen.writeStringField("name", span.getName());
+      gen.writeStringField("id", context.getSpanId().toLowerBase16());
+      gen.writeStringField("trace_id", ContextUtils.traceIdToXray(context.getTraceId()));
+      gen.writeNumberField("start_time",
+          TimeUtils.toXrayTimestamp(span.getStartEpochNanos()));
+      gen.writeNumberField("end_time", TimeUtils.toXrayTimestamp(span.getEndEpochNanos()));
+
+      SpanId parentId = span.getParentSpanId();
+      if (parentId != null && parentId.isValid()) {
+        gen.writeStringField("parent_id", parentId.toLowerBase16());
+        if (!span.hasRemoteParent()) {
+          gen.writeStringField("type", "subsegment");
+        }
+      }
+
+      CanonicalCode code = span.getStatus().getCanonicalCode();
+      if (code != CanonicalCode.OK) {
+        boolean fault = StatusUtils.isFault(code);
+        gen.writeBooleanField(fault ? "fault" : "error", true);
+        if (StatusUtils.isThrottle(code)) {
+          gen.writeBooleanField("throttle", true);
+        }
+      }
+
+      Map<String, AttributeValue> attributes = span.getAttributes();
+      writeHttp(attributes, gen);
+      writeAnnotations(attributes, gen);
+      writeMetadata(span, gen);
+      gen.writeEndObject();
+    }
+  }
+
+  private static void writeHttp(final Map<String, AttributeValue> attributes,
+      final JsonGenerator gen) throws IOException {
+    AttributeValue[] values = null;
+    for (Map.Entry<String, AttributeValue> entry : attributes.entrySet()) {
+      HttpAttribute http = HttpAttribute.forKey(entry.getKey(), entry.getValue().getType());
+      if (http != null) {
+        if (values == null) {
+          values = new AttributeValue[HTTP_ATTRIBUTES.length];
+        }
+        values[http.ordinal()] = entry.getValue();
+      }
+    }
+    if (values == null) {
+      return;
+    }
+
+    gen.writeObjectFieldStart("http");
+    String section = null;
+    for (HttpAttribute http : HTTP_ATTRIBUTES) {
+      AttributeValue value = values[http.ordinal()];
+      if (value == null) {
+        continue;
+      }
+      if (!http.getSection().equals(section)) {
+        if (section != null) {
+          gen.writeEndObject();
+        }
+        section = http.getSection();
+        gen.writeObjectFieldStart(section);
+      }
+      writeValue(http.getField(), value, gen);
+    }
+    gen.writeEndObject();
+    gen.writeEndObject();
+  }
+
+  private void writeAnnotations(final Map<String, AttributeValue> attributes,
+      final JsonGenerator gen) throws IOException {
+    if (annotationAllowList == null || annotationAllowList.isEmpty()) {
+      return;
+    }
+    boolean started = false;
+    for (Map.Entry<String, AttributeValue> entry : attributes.entrySet()) {
+      String annotationKey = annotationAllowList.annotationKey(entry.getKey());
+      if (annotationKey != null) {
+        if (!started) {
+          gen.writeObjectFieldStart("annotations");
+          started = true;
+        }
+        writeValue(annotationKey, entry.getValue(), gen);
+      }
+    }
+    if (started) {
+      gen.writeEndObject();
+    }
+  }
+
+  private static void writeMetadata(final FinishedSpan span, final JsonGenerator gen)
+      throws IOException {
+    gen.writeObjectFieldStart("metadata");
+    gen.writeObjectFieldStart(EntityMetadataFactory.OT_METADATA_NAMESPACE);
+    gen.writeObjectFieldStart(EntityMetadataFactory.OT_METADATA_KEY);
+
+    List<? extends Event> events = span.getEvents();
+    if (!events.isEmpty()) {
+      gen.writeArrayFieldStart(EntityMetadataSerializer.EVENTS_FIELD);
+      for (Event event : events) {
+        EntityMetadataEventSerializer.writeEvent(event.getName(), event.getAttributes(), gen);
+      }
+      gen.writeEndArray();
+    }
+    Map<String, AttributeValue> attributes = span.getAttributes();
+    if (!attributes.isEmpty()) {
+      gen.writeObjectFieldStart(EntityMetadataSerializer.ATTRIBUTES_FIELD);
+      for (Map.Entry<String, AttributeValue> entry : attributes.entrySet()) {
+        writeValue(entry.getKey(), entry.getValue(), gen);
+      }
+      gen.writeEndObject();
+    }
+    gen.writeStringField(EntityMetadataSerializer.KIND_FIELD, span.getKind().name());
+
+    // Matches the bean serialization of Status by the recorder's snake case mapper
+    Status status = span.getStatus();
+    gen.writeObjectFieldStart(EntityMetadataSerializer.STATUS_FIELD);
+    gen.writeStringField("canonical_code", status.getCanonicalCode().name());
+    if (status.getDescription() != null) {
+      gen.writeStringField("description", status.getDescription());
+    }
+    gen.writeBooleanField("ok", status.isOk());
+    gen.writeEndObject();
+
+    gen.writeEndObject();
+    gen.writeEndObject();
+    gen.writeEndObject();
+  }
+
+  private static void writeValue(final String key, final AttributeValue value,
+      final JsonGenerator gen) throws IOException {
+    switch (value.getType()) {
+      case STRING:
+        gen.writeStringField(key, value.getStringValue());
+        break;
+      case LONG:
+        gen.writeNumberField(key, value.getLongValue());
+        break;
+      case DOUBLE:
+        gen.writeNumberField(key, value.getDoubleValue());
+        break;
+      case BOOLEAN:
+        gen.writeBooleanField(key, value.getBooleanValue());
+        break;
+      default:
+        break;
+    }
+  }
+}
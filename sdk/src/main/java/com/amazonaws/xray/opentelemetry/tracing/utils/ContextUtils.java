@@ -4,30 +4,50 @@ import com.amazonaws.xray.entities.Entity;
 import com.amazonaws.xray.entities.Segment;
 import com.amazonaws.xray.entities.TraceHeader;
 import com.amazonaws.xray.entities.TraceID;
+import io.opentelemetry.trace.DefaultSpan;
 import io.opentelemetry.trace.SpanContext;
 import io.opentelemetry.trace.SpanId;
 import io.opentelemetry.trace.TraceFlags;
 import io.opentelemetry.trace.TraceId;
 import io.opentelemetry.trace.Tracestate;
+import java.math.BigInteger;
 
 public class ContextUtils {
 
   private static final String XRAY_VERSION_PREFIX = "1-";
   private static final String XRAY_SEPARATOR = "-";
+  private static final int TRACE_ID_HEX_LENGTH = 32;
+  private static final int EPOCH_HEX_LENGTH = 8;
+  private static final int SPAN_ID_HEX_LENGTH = 16;
+  private static final int TRACE_RANDOM_BITS = 96;
+  private static final TraceFlags SAMPLED = TraceFlags.builder().setIsSampled(true).build();
+  private static final TraceFlags NOT_SAMPLED = TraceFlags.builder().setIsSampled(false).build();
 
 
   /**
    * Convert an Entity into a SpanContext, preserving the Entity's Trace and Segment IDs.
    * @param entity the entity
-   * @return a SpanContext
+   * @return a SpanContext, or the invalid SpanContext if the entity's IDs are malformed
    */
   public static SpanContext entityToSpanContext(final Entity entity) {
-    TraceId traceId = TraceId
-        .fromLowerBase16(xrayTraceIdToOT(entity.getParentSegment().getTraceId().toString()), 0);
-    SpanId spanId = SpanId.fromLowerBase16(entity.getId(), 0);
-    TraceFlags flags = TraceFlags.builder()
-        .setIsSampled(entity.getParentSegment().isSampled())
-        .build();
+    String id = entity.getId();
+    if (id == null || id.length() != SPAN_ID_HEX_LENGTH
+        || !IdUtils.isHex(id, 0, SPAN_ID_HEX_LENGTH)) {
+      return DefaultSpan.getInvalid().getContext();
+    }
+    long span = IdUtils.parseHex(id, 0, SPAN_ID_HEX_LENGTH);
+    TraceID xrayTraceId = entity.getParentSegment().getTraceId();
+    BigInteger random = xrayTraceId == null ? null : xrayTraceId.getNumber();
+    if (span == 0 || random == null || random.signum() < 0
+        || random.bitLength() > TRACE_RANDOM_BITS
+        || (random.signum() == 0 && (int) xrayTraceId.getStartTime() == 0)) {
+      return DefaultSpan.getInvalid().getContext();
+    }
+
+    TraceId traceId = IdUtils.toOtTraceId((int) xrayTraceId.getStartTime(),
+        random.shiftRight(Long.SIZE).intValue(), random.longValue());
+    SpanId spanId = new SpanId(span);
+    TraceFlags flags = entity.getParentSegment().isSampled() ? SAMPLED : NOT_SAMPLED;
     Tracestate state = Tracestate.getDefault();
 
     //Segments with a parent ID are usually remote
@@ -61,10 +81,7 @@ public class ContextUtils {
    * @return a TraceHeader
    */
   public static TraceHeader spanContextToHeader(final SpanContext context) {
-    String otTraceId = context.getTraceId().toLowerBase16();
-    String xrayTraceId =
-        XRAY_VERSION_PREFIX + otTraceId.substring(0, 8) + XRAY_SEPARATOR + otTraceId.substring(8);
-    TraceID xrayId = TraceID.fromString(xrayTraceId);
+    TraceID xrayId = TraceID.fromString(traceIdToXray(context.getTraceId()));
     TraceHeader header = new TraceHeader();
     header.setSampled(context.getTraceFlags().isSampled()
         ? TraceHeader.SampleDecision.SAMPLED : TraceHeader.SampleDecision.NOT_SAMPLED);
@@ -74,6 +91,23 @@ public class ContextUtils {
     return header;
   }
 
+  /**
+   * Convert an OpenTelemetry TraceId into an X-Ray trace ID string, whose first 8 hex digits are
+   * the epoch second the trace started, e.g. 1-5759e988-bd862e3fe1be46a994272793.
+   * @param traceId the TraceId
+   * @return the X-Ray trace ID
+   */
+  public static String traceIdToXray(final TraceId traceId) {
+    char[] otTraceId = new char[TRACE_ID_HEX_LENGTH];
+    traceId.copyLowerBase16To(otTraceId, 0);
+    return new StringBuilder(TRACE_ID_HEX_LENGTH + 3)
+        .append(XRAY_VERSION_PREFIX)
+        .append(otTraceId, 0, EPOCH_HEX_LENGTH)
+        .append(XRAY_SEPARATOR)
+        .append(otTraceId, EPOCH_HEX_LENGTH, TRACE_ID_HEX_LENGTH - EPOCH_HEX_LENGTH)
+        .toString();
+  }
+
   private static String xrayTraceIdToOT(String xrayId) {
     String otId = xrayId.substring(2).replaceAll("-", "");
     return otId;
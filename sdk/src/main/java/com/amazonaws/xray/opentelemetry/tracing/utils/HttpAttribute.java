@@ -0,0 +1,68 @@
+package com.amazonaws.xray.opentelemetry.tracing.utils;
+
+import io.opentelemetry.trace.AttributeValue.Type;
+
+/**
+ * The span attributes which are recorded in the {@code http} section of an X-Ray entity as well as
+ * in its metadata, following the OpenTelemetry conventions for HTTP spans.
+ */
+public enum HttpAttribute {
+  METHOD("request", "method", Type.STRING),
+  URL("request", "url", Type.STRING),
+  STATUS_CODE("response", "status", Type.LONG);
+
+  private final String section;
+  private final String field;
+  private final Type type;
+
+  HttpAttribute(final String section, final String field, final Type type) {
+    this.section = section;
+    this.field = field;
+    this.type = type;
+  }
+
+  /**
+   * Return the HTTP attribute an attribute key maps onto, whatever the type of its value.
+   * @param key the attribute key
+   * @return the HTTP attribute, or null if the key does not map onto one
+   */
+  public static HttpAttribute forKey(final String key) {
+    switch (key) {
+      case "http.method":
+        return METHOD;
+      case "http.url":
+        return URL;
+      case "http.status_code":
+        return STATUS_CODE;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Return the HTTP attribute an attribute key maps onto.
+   * @param key the attribute key
+   * @param type the type of the attribute's value
+   * @return the HTTP attribute, or null if the key and type do not map onto one
+   */
+  public static HttpAttribute forKey(final String key, final Type type) {
+    HttpAttribute attribute = forKey(key);
+    return attribute != null && attribute.type == type ? attribute : null;
+  }
+
+  /**
+   * Return the section of the http object this attribute is recorded in.
+   * @return the section, either request or response
+   */
+  public String getSection() {
+    return section;
+  }
+
+  /**
+   * Return the field of the section this attribute is recorded in.
+   * @return the field
+   */
+  public String getField() {
+    return field;
+  }
+}
@@ -0,0 +1,37 @@
+package com.amazonaws.xray.opentelemetry.tracing.utils;
+
+/**
+ * Generates the random parts of trace and span IDs as primitives.
+ *
+ * <p>X-Ray trace IDs consist of the epoch second the trace started followed by 96 random bits,
+ * which are requested as a 32-bit high part and a 64-bit low part. Hex rendering is left to
+ * {@link IdUtils} so it only happens when an ID is serialized or propagated.
+ */
+public interface IdGenerator {
+
+  /**
+   * Generate a span ID.
+   * @return a non-zero span ID
+   */
+  long generateSpanId();
+
+  /**
+   * Generate the high 32 random bits of a trace ID.
+   * @return the random bits
+   */
+  int generateTraceIdHigh();
+
+  /**
+   * Generate the low 64 random bits of a trace ID.
+   * @return the random bits
+   */
+  long generateTraceIdLow();
+
+  /**
+   * Return a generator backed by per-thread random state.
+   * @return the generator
+   */
+  static IdGenerator random() {
+    return RandomIdGenerator.INSTANCE;
+  }
+}
@@ -0,0 +1,134 @@
+package com.amazonaws.xray.opentelemetry.tracing.utils;
+
+import com.amazonaws.xray.entities.TraceID;
+import io.opentelemetry.trace.TraceId;
+import java.util.Arrays;
+
+/**
+ * Conversions of primitive trace and span IDs into their X-Ray and OpenTelemetry forms.
+ */
+public class IdUtils {
+
+  private static final char[] HEX_DIGITS = {
+      '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+  private static final byte[] HEX_VALUES = new byte[128];
+  private static final int SPAN_ID_LENGTH = 16;
+  private static final int TRACE_ID_LENGTH = 35;
+  private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
+
+  static {
+    Arrays.fill(HEX_VALUES, (byte) -1);
+    for (int i = 0; i < HEX_DIGITS.length; i++) {
+      HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+      HEX_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = (byte) i;
+    }
+  }
+
+  /**
+   * Generate a new X-Ray trace ID for a trace started now.
+   * @param generator the generator supplying the random bits
+   * @return the trace ID
+   */
+  public static TraceID newTraceID(final IdGenerator generator) {
+    int epoch = (int) (System.currentTimeMillis() / 1000L);
+    return toTraceID(epoch, generator.generateTraceIdHigh(), generator.generateTraceIdLow());
+  }
+
+  /**
+   * Convert the parts of a trace ID into an X-Ray TraceID.
+   * @param epoch the epoch second the trace started, treated as unsigned
+   * @param high the high 32 random bits
+   * @param low the low 64 random bits
+   * @return the X-Ray trace ID
+   */
+  public static TraceID toTraceID(final int epoch, final int high, final long low) {
+    // Every TraceID constructor draws from the recorder's SecureRandom, parsing included, so
+    // deferred spans keep their IDs as primitives and only build one when they materialize
+    return TraceID.fromString(toXrayTraceId(epoch, high, low));
+  }
+
+  /**
+   * Convert the parts of a trace ID into an OpenTelemetry TraceId without any hex formatting.
+   * @param epoch the epoch second the trace started
+   * @param high the high 32 random bits
+   * @param low the low 64 random bits
+   * @return the OpenTelemetry trace ID
+   */
+  public static TraceId toOtTraceId(final int epoch, final int high, final long low) {
+    return new TraceId(((long) epoch << 32) | (high & UNSIGNED_INT_MASK), low);
+  }
+
+  /**
+   * Render the parts of a trace ID in the X-Ray format, e.g. 1-5759e988-bd862e3fe1be46a994272793.
+   * @param epoch the epoch second the trace started
+   * @param high the high 32 random bits
+   * @param low the low 64 random bits
+   * @return the X-Ray trace ID string
+   */
+  public static String toXrayTraceId(final int epoch, final int high, final long low) {
+    char[] chars = new char[TRACE_ID_LENGTH];
+    chars[0] = '1';
+    chars[1] = '-';
+    writeHex(chars, 2, epoch & UNSIGNED_INT_MASK, 8);
+    chars[10] = '-';
+    writeHex(chars, 11, high & UNSIGNED_INT_MASK, 8);
+    writeHex(chars, 19, low, 16);
+    return new String(chars);
+  }
+
+  /**
+   * Render a span ID as 16 lower case hex digits.
+   * @param spanId the span ID
+   * @return the hex string
+   */
+  public static String toHex(final long spanId) {
+    char[] chars = new char[SPAN_ID_LENGTH];
+    writeHex(chars, 0, spanId, SPAN_ID_LENGTH);
+    return new String(chars);
+  }
+
+  /**
+   * Return whether a region of a string consists only of hex digits of either case.
+   * @param value the string
+   * @param start the offset of the region
+   * @param length the length of the region
+   * @return true if the region is within the string and all hex digits
+   */
+  public static boolean isHex(final CharSequence value, final int start, final int length) {
+    if (start < 0 || start + length > value.length()) {
+      return false;
+    }
+    for (int i = start; i < start + length; i++) {
+      if (hexValue(value.charAt(i)) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parse up to 16 hex digits without allocating. The region must pass {@link #isHex}.
+   * @param value the string
+   * @param start the offset of the digits
+   * @param length the number of digits
+   * @return the parsed value
+   */
+  public static long parseHex(final CharSequence value, final int start, final int length) {
+    long result = 0;
+    for (int i = start; i < start + length; i++) {
+      result = (result << 4) | hexValue(value.charAt(i));
+    }
+    return result;
+  }
+
+  private static int hexValue(final char c) {
+    return c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+  }
+
+  private static void writeHex(final char[] dest, final int offset, final long value,
+      final int digits) {
+    for (int i = digits - 1; i >= 0; i--) {
+      dest[offset + digits - 1 - i] = HEX_DIGITS[(int) (value >>> (i * 4)) & 0xF];
+    }
+  }
+}
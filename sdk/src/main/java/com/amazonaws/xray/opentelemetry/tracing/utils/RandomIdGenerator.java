@@ -0,0 +1,35 @@
+package com.amazonaws.xray.opentelemetry.tracing.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An ID generator using {@link ThreadLocalRandom}, which keeps its state per thread and never
+ * contends with other threads or blocks on an entropy source.
+ */
+class RandomIdGenerator implements IdGenerator {
+
+  static final RandomIdGenerator INSTANCE = new RandomIdGenerator();
+
+  private RandomIdGenerator() {
+  }
+
+  @Override
+  public long generateSpanId() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long id;
+    do {
+      id = random.nextLong();
+    } while (id == 0L);
+    return id;
+  }
+
+  @Override
+  public int generateTraceIdHigh() {
+    return ThreadLocalRandom.current().nextInt();
+  }
+
+  @Override
+  public long generateTraceIdLow() {
+    return ThreadLocalRandom.current().nextLong();
+  }
+}
@@ -0,0 +1,35 @@
+package com.amazonaws.xray.opentelemetry.tracing.utils;
+
+import io.opentelemetry.trace.Status.CanonicalCode;
+
+public class StatusUtils {
+
+  /**
+   * Map a status code onto X-Ray's fault flag, which marks server side failures, as opposed to
+   * the error flag, which marks failures caused by the client.
+   * @param code the status code, other than OK
+   * @return true if the code is a fault, false if it is an error
+   */
+  public static boolean isFault(final CanonicalCode code) {
+    switch (code) {
+      case UNKNOWN:
+      case DEADLINE_EXCEEDED:
+      case UNIMPLEMENTED:
+      case INTERNAL:
+      case UNAVAILABLE:
+      case DATA_LOSS:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Map a status code onto X-Ray's throttle flag.
+   * @param code the status code
+   * @return true if the code marks a request rejected for lack of resources
+   */
+  public static boolean isThrottle(final CanonicalCode code) {
+    return code == CanonicalCode.RESOURCE_EXHAUSTED;
+  }
+}
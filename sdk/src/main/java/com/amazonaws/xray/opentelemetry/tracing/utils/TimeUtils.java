@@ -4,33 +4,77 @@ import java.time.Instant;
 
 public class TimeUtils {
 
-  private static final Long MS_TO_NS = 1000000L;
-  private static final Double NS_TO_S = 1e+9D;
+  private static final long S_TO_NS = 1000000000L;
+  private static final double NS_TO_S = 1e+9D;
 
   /**
    * Return the current epoch time as a nanosecond Long.
    * @return the current time in epoch nanoseconds
+   * @see #currentEpochNanos()
    */
   public static Long getCurrentNanoTime() {
+    return currentEpochNanos();
+  }
+
+  /**
+   * Return the current epoch time as a nanosecond long, without boxing it.
+   * @return the current time in epoch nanoseconds
+   */
+  public static long currentEpochNanos() {
     Instant now = Instant.now();
-    return (now.toEpochMilli() * MS_TO_NS) + now.getNano();
+    return (now.getEpochSecond() * S_TO_NS) + now.getNano();
   }
 
   /**
-   * Convert a long containing epoch nanoseconds into a double containing seconds.
+   * Convert a Long containing epoch nanoseconds into a Double containing seconds.
    * @param nanoTime the nanosecond epoch time
    * @return a double precision epoch second timestamp
+   * @see #toXrayTimestamp(long)
    */
   public static Double nanoTimeToXrayTimestamp(Long nanoTime) {
-    return nanoTime / NS_TO_S;
+    return toXrayTimestamp(nanoTime);
+  }
+
+  /**
+   * Convert a long containing epoch nanoseconds into a double containing seconds, without boxing
+   * either.
+   *
+   * <p>Whole seconds and the nanosecond remainder are converted separately so the result is the
+   * closest double to the exact value rather than carrying the rounding error of converting the
+   * full nanosecond count to a double first.
+   * @param nanoTime the nanosecond epoch time
+   * @return a double precision epoch second timestamp
+   */
+  public static double toXrayTimestamp(long nanoTime) {
+    return (nanoTime / S_TO_NS) + ((nanoTime % S_TO_NS) / NS_TO_S);
+  }
+
+  /**
+   * Convert a double containing epoch seconds into a long containing epoch nanoseconds.
+   * @param xrayTimestamp the double precision epoch second timestamp
+   * @return the nanosecond epoch time
+   */
+  public static long xrayTimestampToNanoTime(double xrayTimestamp) {
+    long seconds = (long) xrayTimestamp;
+    return (seconds * S_TO_NS) + Math.round((xrayTimestamp - seconds) * NS_TO_S);
   }
 
   /**
-   * Return the current time with nanosecond resolution as a double containing epoch seconds.
+   * Return the current time with nanosecond resolution as a Double containing epoch seconds.
    * @return the double precision epoch second timestamp with nanosecond resolution
+   * @see #currentXrayTimestamp()
    */
   public static Double currentXrayNanoTimestamp() {
-    return nanoTimeToXrayTimestamp(getCurrentNanoTime());
+    return currentXrayTimestamp();
+  }
+
+  /**
+   * Return the current time with nanosecond resolution as a double containing epoch seconds,
+   * without boxing it.
+   * @return the double precision epoch second timestamp with nanosecond resolution
+   */
+  public static double currentXrayTimestamp() {
+    return toXrayTimestamp(currentEpochNanos());
   }
 
 }
@@ -0,0 +1,181 @@
+package com.amazonaws.xray.opentelemetry.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EventPool;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.context.propagation.HttpTextFormat;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.Tracer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Asserts the bytes allocated by canonical span operations against the budgets checked in to
+ * allocation-budgets.properties. When an operation gets cheaper, lower its budget so the
+ * improvement cannot silently regress.
+ */
+public class AllocationBudgetTest {
+
+  private static final int WARMUP_ITERATIONS = 20000;
+  private static final int MEASURED_ITERATIONS = 2000;
+  private static final Map<String, AttributeValue> EVENT_ATTRIBUTES = new HashMap<>();
+
+  private static com.sun.management.ThreadMXBean threadBean;
+  private static Properties budgets;
+
+  private AWSXRayRecorder recorder;
+  private Tracer tracer;
+
+  @BeforeAll
+  public static void loadBudgets() throws IOException {
+    assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+        "Thread allocation counters are not available on this JVM");
+    threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+
+    budgets = new Properties();
+    try (InputStream in = AllocationBudgetTest.class
+        .getResourceAsStream("/allocation-budgets.properties")) {
+      budgets.load(in);
+    }
+
+    EVENT_ATTRIBUTES.put("key1", AttributeValue.stringAttributeValue("value"));
+    EVENT_ATTRIBUTES.put("key2", AttributeValue.longAttributeValue(42L));
+    EVENT_ATTRIBUTES.put("key3", AttributeValue.booleanAttributeValue(true));
+  }
+
+  @BeforeEach
+  public void setup() {
+    recorder = AWSXRayRecorderBuilder.standard()
+        .withEmitter(new DiscardingEmitter())
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .build();
+    tracer = RecorderBackedTracer.fromRecorder(recorder);
+  }
+
+  @Test
+  public void when_aBareSpanStartsAndEnds_then_itStaysWithinBudget() {
+    assertWithinBudget("span.startAndEnd", () -> null,
+        ignored -> tracer.spanBuilder("span").startSpan().end(), ignored -> { });
+  }
+
+  @Test
+  public void when_aSpanHasFiveAttributes_then_itStaysWithinBudget() {
+    assertWithinBudget("span.fiveAttributes", () -> null, ignored -> {
+      Span span = tracer.spanBuilder("span").startSpan();
+      span.setAttribute("string", "value");
+      span.setAttribute("long", 42L);
+      span.setAttribute("double", 4.2D);
+      span.setAttribute("boolean", true);
+      span.setAttribute("another", "value");
+      span.end();
+    }, ignored -> { });
+  }
+
+  @Test
+  public void when_anEventWithAttributesIsAdded_then_itStaysWithinBudget() {
+    assertWithinBudget("span.eventWithAttributes", this::startSpan,
+        span -> span.addEvent("event", EVENT_ATTRIBUTES), Span::end);
+  }
+
+  @Test
+  public void when_aPooledEventWithAttributesIsAdded_then_itStaysWithinBudget() {
+    tracer = RecorderBackedTracer.fromRecorder(recorder,
+        TracerOptions.builder().withEventPool(EventPool.create()).build());
+    assertWithinBudget("span.pooledEventWithAttributes", this::startSpan,
+        span -> span.addEvent("event", EVENT_ATTRIBUTES), Span::end);
+  }
+
+  @Test
+  public void when_aContextIsRequested_then_itStaysWithinBudget() {
+    assertWithinBudget("span.getContext", this::startSpan, Span::getContext, Span::end);
+  }
+
+  @Test
+  public void when_aContextIsInjectedAndExtracted_then_itStaysWithinBudget() {
+    Span span = startSpan();
+    SpanContext context = span.getContext();
+    HttpTextFormat<SpanContext> format = tracer.getHttpTextFormat();
+
+    assertWithinBudget("propagation.injectAndExtract", HashMap<String, String>::new,
+        carrier -> {
+          format.inject(context, carrier, Map::put);
+          format.extract(carrier, Map::get);
+        }, carrier -> { });
+    span.end();
+  }
+
+  private Span startSpan() {
+    return tracer.spanBuilder("span").startSpan();
+  }
+
+  private static <T> void assertWithinBudget(final String operation, final Supplier<T> setup,
+      final Consumer<T> measured, final Consumer<T> teardown) {
+    long budget = Long.parseLong(budgets.getProperty(operation));
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      T state = setup.get();
+      measured.accept(state);
+      teardown.accept(state);
+    }
+
+    long overhead = measurementOverhead();
+    long total = 0;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      T state = setup.get();
+      long before = allocatedBytes();
+      measured.accept(state);
+      total += allocatedBytes() - before - overhead;
+      teardown.accept(state);
+    }
+
+    long perOperation = total / MEASURED_ITERATIONS;
+    assertTrue(perOperation <= budget, operation + " allocated " + perOperation
+        + " bytes per operation, over its budget of " + budget);
+  }
+
+  private static long measurementOverhead() {
+    long overhead = Long.MAX_VALUE;
+    for (int i = 0; i < 100; i++) {
+      long before = allocatedBytes();
+      overhead = Math.min(overhead, allocatedBytes() - before);
+    }
+    return overhead;
+  }
+
+  private static long allocatedBytes() {
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static class DiscardingEmitter extends Emitter {
+
+    @Override
+    public boolean sendSegment(final Segment segment) {
+      return true;
+    }
+
+    @Override
+    public boolean sendSubsegment(final Subsegment subsegment) {
+      return true;
+    }
+  }
+}
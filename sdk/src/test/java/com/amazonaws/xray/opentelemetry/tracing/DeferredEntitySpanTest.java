@@ -0,0 +1,129 @@
+package com.amazonaws.xray.opentelemetry.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadataFactory;
+import com.amazonaws.xray.opentelemetry.tracing.utils.IdGenerator;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import com.amazonaws.xray.strategy.sampling.NoSamplingStrategy;
+import com.amazonaws.xray.strategy.sampling.SamplingStrategy;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.SpanContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class DeferredEntitySpanTest {
+
+  private static final long START = 1575000000000000000L;
+
+  @Mock
+  Emitter emitter;
+
+  private AWSXRayRecorder recorderWith(final SamplingStrategy strategy) {
+    return AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(strategy)
+        .withEmitter(emitter)
+        .build();
+  }
+
+  @Test
+  public void when_aSampledRootEnds_then_theTreeIsMaterializedAndEmitted() {
+    AWSXRayRecorder recorder = recorderWith(new AllSamplingStrategy());
+    DeferredEntitySpan root = DeferredEntitySpan
+        .beginRoot(recorder, "Root", START, Span.Kind.SERVER);
+    Span child = root.beginChild("Child", START + 1000, Span.Kind.INTERNAL);
+    child.setAttribute("retries", 3L);
+    root.setAttribute("http.method", "GET");
+    child.end();
+
+    assertNull(root.getXrayEntity());
+    root.end();
+
+    ArgumentCaptor<Segment> captor = ArgumentCaptor.forClass(Segment.class);
+    verify(emitter).sendSegment(captor.capture());
+    Segment segment = captor.getValue();
+    SpanContext context = root.getContext();
+
+    assertEquals(context.getSpanId().toLowerBase16(), segment.getId());
+    assertEquals(context.getTraceId().toLowerBase16(),
+        segment.getTraceId().toString().substring(2).replace("-", ""));
+    assertEquals(1, segment.getSubsegments().size());
+
+    Subsegment subsegment = segment.getSubsegments().get(0);
+    assertEquals(child.getContext().getSpanId().toLowerBase16(), subsegment.getId());
+    assertEquals(3L, EntityMetadataFactory.get(subsegment).getAttributes().get("retries"));
+    assertEquals("GET", EntityMetadataFactory.get(segment).getAttributes().get("http.method"));
+  }
+
+  @Test
+  public void when_aChildOutlivesItsRoot_then_theSegmentIsEmittedWhenTheChildEnds() {
+    AWSXRayRecorder recorder = recorderWith(new AllSamplingStrategy());
+    DeferredEntitySpan root = DeferredEntitySpan
+        .beginRoot(recorder, "Root", START, Span.Kind.SERVER);
+    Span child = root.beginChild("Child", START + 1000, Span.Kind.INTERNAL);
+    root.end();
+
+    verify(emitter, never()).sendSegment(any(Segment.class));
+    assertTrue(child.isRecording());
+
+    child.setAttribute("late", true);
+    child.end();
+    verify(emitter).sendSegment(any(Segment.class));
+  }
+
+  @Test
+  public void when_aRootIsNotSampled_then_nothingIsMaterialized() {
+    AWSXRayRecorder recorder = recorderWith(new AllSamplingStrategy());
+    DeferredEntitySpan root = DeferredEntitySpan
+        .beginUnsampledRoot(recorder, "Root", START, Span.Kind.SERVER, IdGenerator.random());
+    Span child = root.beginChild("Child", START + 1000, Span.Kind.INTERNAL);
+
+    assertFalse(root.isRecording());
+    assertFalse(root.getContext().getTraceFlags().isSampled());
+    assertEquals(root.getContext().getTraceId(), child.getContext().getTraceId());
+
+    child.end();
+    root.end();
+    assertNull(root.getXrayEntity());
+    verify(emitter, never()).sendSegment(any(Segment.class));
+  }
+
+  @Test
+  public void when_theStrategyWouldNotSample_then_theRootIsRecordedAsItIsDirectly() {
+    AWSXRayRecorder recorder = recorderWith(new NoSamplingStrategy());
+    DeferredEntitySpan root = DeferredEntitySpan
+        .beginRoot(recorder, "Root", START, Span.Kind.SERVER);
+
+    assertTrue(root.isRecording());
+    assertTrue(root.getContext().getTraceFlags().isSampled());
+    root.end();
+    verify(emitter).sendSegment(any(Segment.class));
+  }
+
+  @Test
+  public void when_deferredEntitiesAreEnabled_then_theBuilderCreatesDeferredSpans() {
+    AWSXRayRecorder recorder = recorderWith(new AllSamplingStrategy());
+    TracerOptions options = TracerOptions.builder().withDeferredEntities(true).build();
+
+    Span root = EntitySpanBuilder.create("Root", recorder, null, options).startSpan();
+    Span child = EntitySpanBuilder.create("Child", recorder, root, options).startSpan();
+
+    assertTrue(root instanceof DeferredEntitySpan);
+    assertTrue(child instanceof DeferredEntitySpan);
+  }
+}
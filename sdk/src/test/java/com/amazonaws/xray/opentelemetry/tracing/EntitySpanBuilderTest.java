@@ -0,0 +1,95 @@
+package com.amazonaws.xray.opentelemetry.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.strategy.DefaultStreamingStrategy;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.Span;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class EntitySpanBuilderTest {
+
+  private static final long START = 1575000000000000000L;
+  private static final int SHARDS = 200;
+
+  @Mock
+  Emitter emitter;
+
+  private AWSXRayRecorder recorder;
+
+  @BeforeEach
+  public void setup() {
+    recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .withEmitter(emitter)
+        // Keep every shard in the segment rather than streaming completed ones separately
+        .withStreamingStrategy(new DefaultStreamingStrategy(SHARDS * 2))
+        .build();
+  }
+
+  @Test
+  public void when_childrenAreStartedInBulk_then_theyAreSiblingsSharingTheStartTime() {
+    RecorderBackedTracer tracer = RecorderBackedTracer.fromRecorder(recorder);
+    Span root = tracer.spanBuilder("Gather").startSpan();
+
+    List<Span> shards = tracer.spanBuilder("Shard")
+        .setParent(root)
+        .setSpanKind(Span.Kind.CLIENT)
+        .setStartTimestamp(START)
+        .startSpans(SHARDS);
+
+    assertNull(recorder.getTraceEntity());
+    assertEquals(SHARDS, shards.size());
+    for (Span shard : shards) {
+      shard.end();
+    }
+    root.end();
+
+    ArgumentCaptor<Segment> captor = ArgumentCaptor.forClass(Segment.class);
+    verify(emitter).sendSegment(captor.capture());
+    Segment segment = captor.getValue();
+    assertEquals(SHARDS, segment.getSubsegments().size());
+    for (Subsegment subsegment : segment.getSubsegments()) {
+      assertEquals("Shard", subsegment.getName());
+      assertSame(segment, subsegment.getParent());
+      assertEquals(START / 1e9D, subsegment.getStartTime());
+    }
+  }
+
+  @Test
+  public void when_deferredChildrenAreStartedInBulk_then_theyAreMaterializedTogether() {
+    TracerOptions options = TracerOptions.builder().withDeferredEntities(true).build();
+    Span root = EntitySpanBuilder.create("Gather", recorder, null, options).startSpan();
+
+    List<Span> shards = EntitySpanBuilder.create("Shard", recorder, root, options)
+        .setStartTimestamp(START)
+        .startSpans(SHARDS);
+
+    for (Span shard : shards) {
+      assertTrue(shard instanceof DeferredEntitySpan);
+      assertEquals(root.getContext().getTraceId(), shard.getContext().getTraceId());
+      shard.end();
+    }
+    root.end();
+
+    ArgumentCaptor<Segment> captor = ArgumentCaptor.forClass(Segment.class);
+    verify(emitter).sendSegment(captor.capture());
+    assertEquals(SHARDS, captor.getValue().getSubsegments().size());
+  }
+}
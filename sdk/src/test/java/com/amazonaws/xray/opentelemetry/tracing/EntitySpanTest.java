@@ -13,7 +13,9 @@ import static org.mockito.Mockito.when;
 import com.amazonaws.xray.AWSXRayRecorder;
 import com.amazonaws.xray.entities.Segment;
 import com.amazonaws.xray.entities.Subsegment;
+import io.opentelemetry.trace.EndSpanOptions;
 import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Status;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -103,6 +105,24 @@ public class EntitySpanTest {
     verify(segment).putHttp(eq("response"), any(Map.class));
   }
 
+  @Test
+  public void when_aSpanEnds_then_exactTimestampsAreWrittenToTheEntity() {
+    when(recorder.beginSegment(anyString())).thenReturn(segment);
+    when(segment.getCreator()).thenReturn(recorder);
+    when(segment.isInProgress()).thenReturn(true);
+
+    long start = 1575000000000000000L;
+    EntitySpan testSpan = EntitySpan.beginSegment(recorder, "Test Span", start,
+        Span.Kind.INTERNAL);
+    testSpan.end(EndSpanOptions.builder().setEndTimestamp(start + 1500).build());
+
+    assertEquals(start, testSpan.getStartEpochNanos());
+    assertEquals(start + 1500, testSpan.getEndEpochNanos());
+    assertEquals(1500, testSpan.getDurationNanos());
+    verify(segment).setStartTime(1575000000D);
+    verify(segment).setEndTime(1575000000.0000015D);
+  }
+
   @Test
   public void when_isRecordingCalled_then_isInProgressCalled() {
     when(recorder.beginSegment(anyString())).thenReturn(segment);
@@ -111,5 +131,26 @@ public class EntitySpanTest {
     assertEquals(false, testSpan.isRecording());
   }
 
+  @Test
+  public void when_aFailingStatusIsSet_then_theFaultErrorAndThrottleFlagsAreSet() {
+    when(recorder.beginSegment(anyString())).thenReturn(segment);
+    when(segment.isInProgress()).thenReturn(true);
+    Span testSpan = EntitySpan.beginSegment(recorder, "Test Span", 0, Span.Kind.SERVER);
+
+    testSpan.setStatus(Status.UNAVAILABLE);
+    InOrder inOrder = inOrder(segment);
+    inOrder.verify(segment).setFault(true);
+    inOrder.verify(segment).setError(false);
+    inOrder.verify(segment).setThrottle(false);
+
+    testSpan.setStatus(Status.RESOURCE_EXHAUSTED);
+    inOrder.verify(segment).setFault(false);
+    inOrder.verify(segment).setError(true);
+    inOrder.verify(segment).setThrottle(true);
+
+    testSpan.setStatus(Status.OK);
+    inOrder.verifyNoMoreInteractions();
+  }
+
 
 }
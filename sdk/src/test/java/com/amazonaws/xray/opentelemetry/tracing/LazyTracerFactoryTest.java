@@ -0,0 +1,60 @@
+package com.amazonaws.xray.opentelemetry.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.DefaultSpan;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Tracer;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class LazyTracerFactoryTest {
+
+  @Test
+  public void when_noSpanIsStarted_then_theRecorderIsNeverCreated() {
+    AtomicInteger created = new AtomicInteger();
+    LazyTracerFactory factory = new LazyTracerFactory(() -> {
+      created.incrementAndGet();
+      return RecorderBackedTracerFactory.create();
+    });
+
+    Tracer tracer = factory.get("test");
+    assertSame(tracer, factory.get("other", "1.0"));
+    assertSame(DefaultSpan.getInvalid(), tracer.getCurrentSpan());
+    assertNotNull(tracer.getHttpTextFormat());
+    tracer.withSpan(DefaultSpan.getInvalid()).close();
+
+    assertFalse(factory.isInitialized());
+    assertEquals(0, created.get());
+  }
+
+  @Test
+  public void when_theFirstSpanIsStarted_then_theRecorderIsCreatedOnce() {
+    AtomicInteger created = new AtomicInteger();
+    AWSXRayRecorder recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .build();
+    LazyTracerFactory factory = new LazyTracerFactory(() -> {
+      created.incrementAndGet();
+      return RecorderBackedTracerFactory.create(recorder, TracerOptions.defaults());
+    });
+    Tracer tracer = factory.get("test");
+
+    Span span = tracer.spanBuilder("First").startSpan();
+    tracer.withSpan(span);
+    Span child = tracer.spanBuilder("Second").startSpan();
+
+    assertTrue(factory.isInitialized());
+    assertEquals(1, created.get());
+    assertTrue(span instanceof EntitySpan);
+    assertEquals(span.getContext().getTraceId(), child.getContext().getTraceId());
+    assertEquals(span.getContext(), tracer.getCurrentSpan().getContext());
+  }
+}
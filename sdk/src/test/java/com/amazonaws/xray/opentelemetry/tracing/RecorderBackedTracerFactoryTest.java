@@ -0,0 +1,112 @@
+package com.amazonaws.xray.opentelemetry.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.config.DaemonConfiguration;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.Tracer;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class RecorderBackedTracerFactoryTest {
+
+  @Test
+  public void when_shardsAreCreated_then_eachThreadUsesItsOwnEmitter() throws Exception {
+    AWSXRayRecorder template = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .build();
+    List<CountingEmitter> emitters = new ArrayList<>();
+
+    Tracer tracer = RecorderBackedTracerFactory.createSharded(template, 4, () -> {
+      CountingEmitter emitter = new CountingEmitter();
+      emitters.add(emitter);
+      return emitter;
+    }, TracerOptions.defaults()).get("test");
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> tracer.spanBuilder("span").startSpan().end());
+      threads.add(thread);
+      thread.start();
+      thread.join();
+    }
+
+    assertEquals(4, emitters.size());
+    for (CountingEmitter emitter : emitters) {
+      assertEquals(1, emitter.segments.get());
+    }
+  }
+
+  @Test
+  public void when_shardsAreCreated_then_theyShareTheTemplateConfiguration() {
+    AWSXRayRecorder template = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .build();
+    template.setOrigin("AWS::EC2::Instance");
+
+    Tracer tracer = RecorderBackedTracerFactory.createSharded(template, 2, CountingEmitter::new,
+        TracerOptions.defaults()).get("test");
+    EntitySpan span = (EntitySpan) tracer.spanBuilder("span").startSpan();
+    AWSXRayRecorder shard = span.getXrayEntity().getCreator();
+    span.end();
+
+    assertNotSame(template, shard);
+    assertSame(template.getSamplingStrategy(), shard.getSamplingStrategy());
+    assertEquals("AWS::EC2::Instance", shard.getOrigin());
+  }
+
+  @Test
+  public void when_aDaemonIsGiven_then_theShardsSendToIt()
+      throws Exception {
+    try (DatagramSocket daemon = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+      daemon.setSoTimeout(5000);
+      DaemonConfiguration config = new DaemonConfiguration();
+      config.setUDPAddress("127.0.0.1:" + daemon.getLocalPort());
+      AWSXRayRecorder template = AWSXRayRecorderBuilder.standard()
+          .withSamplingStrategy(new AllSamplingStrategy())
+          .build();
+
+      Tracer tracer = RecorderBackedTracerFactory.createSharded(template, 2, config,
+          TracerOptions.defaults()).get("test");
+      EntitySpan span = (EntitySpan) tracer.spanBuilder("sharded").setNoParent().startSpan();
+      assertNotSame(template, span.getXrayEntity().getCreator());
+      span.end();
+
+      DatagramPacket packet = new DatagramPacket(new byte[65536], 65536);
+      daemon.receive(packet);
+      String document =
+          new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+      assertTrue(document.contains("\"name\":\"sharded\""));
+    }
+  }
+
+  private static class CountingEmitter extends Emitter {
+
+    private final AtomicInteger segments = new AtomicInteger();
+
+    @Override
+    public boolean sendSegment(final Segment segment) {
+      segments.incrementAndGet();
+      return true;
+    }
+
+    @Override
+    public boolean sendSubsegment(final Subsegment subsegment) {
+      return true;
+    }
+  }
+}
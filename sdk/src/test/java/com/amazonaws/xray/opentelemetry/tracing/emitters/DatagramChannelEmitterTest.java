@@ -0,0 +1,142 @@
+package com.amazonaws.xray.opentelemetry.tracing.emitters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.config.DaemonConfiguration;
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.SegmentImpl;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.entities.SubsegmentImpl;
+import com.amazonaws.xray.opentelemetry.tracing.serializers.ParallelSegmentSerializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DatagramChannelEmitterTest {
+
+  private static final String HEADER = "{\"format\": \"json\", \"version\": 1}\n";
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private AWSXRayRecorder recorder;
+  private DaemonConfiguration config;
+  private DatagramSocket daemon;
+  private DatagramChannelEmitter emitter;
+
+  @BeforeEach
+  public void setup() throws IOException {
+    recorder = new AWSXRayRecorder();
+    daemon = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+    daemon.setReceiveBufferSize(1 << 20);
+    daemon.setSoTimeout(5000);
+    config = new DaemonConfiguration();
+    config.setUDPAddress("127.0.0.1:" + daemon.getLocalPort());
+    emitter = DatagramChannelEmitter.create(config);
+  }
+
+  @AfterEach
+  public void cleanup() {
+    emitter.shutdown();
+    daemon.close();
+  }
+
+  @Test
+  public void when_entitiesAreSent_then_theDocumentsMatchTheRecordersOwn() throws IOException {
+    Segment segment = new SegmentImpl(recorder, "request");
+    segment.putAnnotation("tenant", "acme");
+    Subsegment child = addChild(segment, segment, "query");
+    addChild(segment, child, "connect").addException(new IllegalStateException("refused"));
+
+    for (int i = 0; i < 3; i++) {
+      // Repeat so that the thread's buffer is reused
+      assertTrue(emitter.sendSegment(segment));
+      assertEquals(MAPPER.readTree(segment.serialize()), receive());
+      assertTrue(emitter.sendSubsegment(child));
+      assertEquals(MAPPER.readTree(child.streamSerialize()), receive());
+    }
+    assertEquals(0, emitter.getDroppedCount());
+  }
+
+  @Test
+  public void when_aSegmentExceedsADatagram_then_itIsSentSplitIntoItsSubsegments()
+      throws IOException {
+    char[] padding = new char[1024];
+    Arrays.fill(padding, 'x');
+    Segment segment = new SegmentImpl(recorder, "batch");
+    for (int i = 0; i < 100; i++) {
+      addChild(segment, segment, "item-" + i).putMetadata("payload", new String(padding));
+    }
+
+    assertTrue(emitter.sendSegment(segment));
+
+    for (int i = 0; i < 100; i++) {
+      JsonNode document = receive();
+      assertEquals("item-" + i, document.get("name").asText());
+      assertEquals("subsegment", document.get("type").asText());
+      assertEquals(segment.getId(), document.get("parent_id").asText());
+      assertEquals(segment.getTraceId().toString(), document.get("trace_id").asText());
+    }
+    JsonNode document = receive();
+    assertEquals("batch", document.get("name").asText());
+    assertFalse(document.has("subsegments"));
+    assertEquals(1, emitter.getSplitCount());
+    assertEquals(0, emitter.getDroppedCount());
+  }
+
+  @Test
+  public void when_aSegmentIsLarge_then_itIsSerializedInParallel() throws IOException {
+    DatagramChannelEmitter parallel = DatagramChannelEmitter.create(config,
+        ParallelSegmentSerializer.create(ForkJoinPool.commonPool(), 8));
+    try {
+      Segment segment = new SegmentImpl(recorder, "fan-out");
+      for (int i = 0; i < 20; i++) {
+        addChild(segment, addChild(segment, segment, "shard-" + i), "query-" + i);
+      }
+      assertTrue(parallel.sendSegment(segment));
+      assertEquals(MAPPER.readTree(segment.serialize()), receive());
+
+      // A parallel document too large for a datagram is still split
+      char[] padding = new char[8192];
+      Arrays.fill(padding, 'x');
+      for (Subsegment child : segment.getSubsegments()) {
+        child.putMetadata("payload", new String(padding));
+      }
+      assertTrue(parallel.sendSegment(segment));
+      for (int i = 0; i < 20; i++) {
+        assertEquals("shard-" + i, receive().get("name").asText());
+      }
+      assertFalse(receive().has("subsegments"));
+      assertEquals(1, parallel.getSplitCount());
+      assertEquals(0, parallel.getDroppedCount());
+    } finally {
+      parallel.shutdown();
+    }
+  }
+
+  private Subsegment addChild(final Segment segment, final Entity parent, final String name) {
+    Subsegment child = new SubsegmentImpl(recorder, name, segment);
+    child.setParent(parent);
+    parent.addSubsegment(child);
+    return child;
+  }
+
+  private JsonNode receive() throws IOException {
+    DatagramPacket packet = new DatagramPacket(new byte[65536], 65536);
+    daemon.receive(packet);
+    String document = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+    assertTrue(document.startsWith(HEADER));
+    return MAPPER.readTree(document.substring(HEADER.length()));
+  }
+}
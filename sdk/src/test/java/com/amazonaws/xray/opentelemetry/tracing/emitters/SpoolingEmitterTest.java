@@ -0,0 +1,187 @@
+package com.amazonaws.xray.opentelemetry.tracing.emitters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.xray.config.DaemonConfiguration;
+import com.amazonaws.xray.entities.Segment;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SpoolingEmitterTest {
+
+  private static final int FILE_BYTES = 4096;
+
+  private Path directory;
+
+  @BeforeEach
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("xray-spool");
+  }
+
+  @AfterEach
+  public void cleanup() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Test
+  public void when_recordsAreAppended_then_theyAreDrainedInOrderAcrossFiles() throws IOException {
+    SpoolLog spool = new SpoolLog(directory, FILE_BYTES, 16);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(spool.append(("document-" + i).getBytes(StandardCharsets.UTF_8)));
+    }
+    spool.seal();
+
+    List<String> drained = new ArrayList<>();
+    spool.drain(bytes -> drained.add(new String(bytes, StandardCharsets.UTF_8)));
+
+    assertEquals(100, drained.size());
+    assertEquals("document-0", drained.get(0));
+    assertEquals("document-99", drained.get(99));
+    assertTrue(spool.isEmpty());
+  }
+
+  @Test
+  public void when_aDrainIsBounded_then_itStopsAfterThatManyRecords() throws IOException {
+    SpoolLog spool = new SpoolLog(directory, FILE_BYTES, 16);
+    for (int i = 0; i < 100; i++) {
+      spool.append(("document-" + i).getBytes(StandardCharsets.UTF_8));
+    }
+    spool.seal();
+
+    List<String> drained = new ArrayList<>();
+    assertEquals(30, spool.drain(bytes -> drained.add(new String(bytes, StandardCharsets.UTF_8)),
+        30));
+    assertEquals("document-29", drained.get(29));
+    assertEquals(70, spool.drain(bytes -> drained.add(new String(bytes, StandardCharsets.UTF_8)),
+        100));
+    assertEquals("document-30", drained.get(30));
+    assertTrue(spool.isEmpty());
+  }
+
+  @Test
+  public void when_theSpoolIsReopened_then_previousRecordsAreReplayed() throws IOException {
+    SpoolLog first = new SpoolLog(directory, FILE_BYTES, 16);
+    first.append("kept".getBytes(StandardCharsets.UTF_8));
+
+    SpoolLog second = new SpoolLog(directory, FILE_BYTES, 16);
+    List<String> drained = new ArrayList<>();
+    second.drain(bytes -> drained.add(new String(bytes, StandardCharsets.UTF_8)));
+
+    assertEquals(1, drained.size());
+    assertEquals("kept", drained.get(0));
+  }
+
+  @Test
+  public void when_aRecordIsCorrupted_then_itIsSkippedAndCounted() throws IOException {
+    SpoolLog first = new SpoolLog(directory, FILE_BYTES, 16);
+    first.append("broken".getBytes(StandardCharsets.UTF_8));
+    first.append("intact".getBytes(StandardCharsets.UTF_8));
+
+    try (Stream<Path> files = Files.list(directory);
+        RandomAccessFile file = new RandomAccessFile(files.findFirst().get().toFile(), "rw")) {
+      file.seek(SpoolLog.HEADER_BYTES);
+      file.write('B');
+    }
+
+    SpoolLog second = new SpoolLog(directory, FILE_BYTES, 16);
+    List<String> drained = new ArrayList<>();
+    second.drain(bytes -> drained.add(new String(bytes, StandardCharsets.UTF_8)));
+
+    assertEquals(1, drained.size());
+    assertEquals("intact", drained.get(0));
+    assertEquals(1, second.getCorruptRecordCount());
+  }
+
+  @Test
+  public void when_theSpoolIsFull_then_theOldestFilesAreDiscarded() throws IOException {
+    SpoolLog spool = new SpoolLog(directory, FILE_BYTES, 2);
+    byte[] document = new byte[FILE_BYTES / 2];
+    for (int i = 0; i < 8; i++) {
+      assertTrue(spool.append(document));
+    }
+
+    assertTrue(spool.getDiscardedFileCount() > 0);
+    assertFalse(spool.append(new byte[FILE_BYTES]));
+  }
+
+  @Test
+  public void when_theDaemonIsReachable_then_spooledDocumentsAreReplayed() throws IOException {
+    new SpoolLog(directory, FILE_BYTES, 16).append("spooled".getBytes(StandardCharsets.UTF_8));
+
+    try (DatagramSocket daemon = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        ServerSocket daemonTcp = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      daemon.setSoTimeout(5000);
+      DaemonConfiguration config = new DaemonConfiguration();
+      config.setUDPAndTCPAddress("tcp:127.0.0.1:" + daemonTcp.getLocalPort()
+          + " udp:127.0.0.1:" + daemon.getLocalPort());
+
+      SpoolingEmitter emitter = SpoolingEmitter.create(config, directory, FILE_BYTES, 16, 20L);
+      try {
+        Segment segment = mock(Segment.class);
+        when(segment.serialize()).thenReturn("{\"name\":\"live\"}");
+        assertTrue(emitter.sendSegment(segment));
+
+        assertEquals("spooled", receive(daemon));
+        assertTrue(receive(daemon).endsWith("{\"name\":\"live\"}"));
+        assertEquals(0, emitter.getLostCount());
+      } finally {
+        emitter.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void when_theSpoolHoldsSeveralBatches_then_allOfThemAreReplayedInOrder()
+      throws IOException {
+    int documents = SpoolingEmitter.REPLAY_BATCH_RECORDS * 2 + 10;
+    SpoolLog spool = new SpoolLog(directory, FILE_BYTES, 64);
+    for (int i = 0; i < documents; i++) {
+      spool.append(("document-" + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    try (DatagramSocket daemon = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        ServerSocket daemonTcp = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      daemon.setSoTimeout(5000);
+      DaemonConfiguration config = new DaemonConfiguration();
+      config.setUDPAndTCPAddress("tcp:127.0.0.1:" + daemonTcp.getLocalPort()
+          + " udp:127.0.0.1:" + daemon.getLocalPort());
+
+      SpoolingEmitter emitter = SpoolingEmitter.create(config, directory, FILE_BYTES, 64, 20L);
+      try {
+        for (int i = 0; i < documents; i++) {
+          assertEquals("document-" + i, receive(daemon));
+        }
+      } finally {
+        emitter.shutdown();
+      }
+    }
+  }
+
+  private static String receive(final DatagramSocket socket) throws IOException {
+    DatagramPacket packet = new DatagramPacket(new byte[FILE_BYTES], FILE_BYTES);
+    socket.receive(packet);
+    return new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,252 @@
+package com.amazonaws.xray.opentelemetry.tracing.exporters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.config.DaemonConfiguration;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.opentelemetry.tracing.EntitySpan;
+import com.amazonaws.xray.opentelemetry.tracing.RecorderBackedTracer;
+import com.amazonaws.xray.opentelemetry.tracing.TracerOptions;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.AnnotationAllowList;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadataEvent;
+import com.amazonaws.xray.opentelemetry.tracing.utils.ContextUtils;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Event;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceFlags;
+import io.opentelemetry.trace.TraceId;
+import io.opentelemetry.trace.Tracestate;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class SpanDocumentExporterTest {
+
+  private static final String HEADER = "{\"format\": \"json\", \"version\": 1}\n";
+  private static final long START = 1575000000000000000L;
+  private static final TraceId TRACE_ID = TraceId.fromLowerBase16(
+      "5759e988bd862e3fe1be46a994272793", 0);
+  private static final SpanId REMOTE_PARENT = SpanId.fromLowerBase16("53995c3f42cd8ad8", 0);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Mock
+  Emitter emitter;
+
+  @Test
+  public void when_aBatchIsExported_then_eachSpanIsSentAsItsOwnDocument() throws IOException {
+    SpanContext rootContext = context(0x1111L);
+    TestSpan root = new TestSpan(rootContext, REMOTE_PARENT, true, "frontend",
+        Span.Kind.SERVER, Status.OK, httpAttributes(), Collections.emptyList());
+    TestSpan child = new TestSpan(context(0x2222L), rootContext.getSpanId(), false, "query",
+        Span.Kind.CLIENT, Status.RESOURCE_EXHAUSTED,
+        Collections.singletonMap("tenant.id", AttributeValue.stringAttributeValue("acme")),
+        Collections.singletonList(EntityMetadataEvent.create("retry",
+            Collections.singletonMap("attempt", AttributeValue.longAttributeValue(2)))));
+
+    try (DatagramSocket daemon = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+      daemon.setSoTimeout(5000);
+      DaemonConfiguration config = new DaemonConfiguration();
+      config.setUDPAddress("127.0.0.1:" + daemon.getLocalPort());
+
+      SpanDocumentExporter exporter =
+          SpanDocumentExporter.create(config, AnnotationAllowList.of("tenant.*"));
+      try {
+        assertTrue(exporter.export(Arrays.asList(root, child)));
+
+        JsonNode segment = receive(daemon);
+        assertEquals("frontend", segment.get("name").asText());
+        assertEquals("0000000000001111", segment.get("id").asText());
+        assertEquals("1-5759e988-bd862e3fe1be46a994272793", segment.get("trace_id").asText());
+        assertEquals(ContextUtils.spanContextToHeader(rootContext).getRootTraceId().toString(),
+            segment.get("trace_id").asText());
+        assertEquals(REMOTE_PARENT.toLowerBase16(), segment.get("parent_id").asText());
+        assertFalse(segment.has("type"));
+        assertEquals(START / 1e9D, segment.get("start_time").asDouble());
+        assertEquals("GET", segment.at("/http/request/method").asText());
+        assertEquals(200, segment.at("/http/response/status").asLong());
+        assertFalse(segment.has("annotations"));
+
+        JsonNode subsegment = receive(daemon);
+        assertEquals("subsegment", subsegment.get("type").asText());
+        assertEquals("0000000000001111", subsegment.get("parent_id").asText());
+        assertTrue(subsegment.get("error").asBoolean());
+        assertTrue(subsegment.get("throttle").asBoolean());
+        assertEquals("acme", subsegment.at("/annotations/tenant_id").asText());
+        assertEquals(2, subsegment
+            .at("/metadata/sdk/open_telemetry/events/0/attributes/attempt/value").asLong());
+        assertEquals("CLIENT", subsegment.at("/metadata/sdk/open_telemetry/kind").asText());
+        assertEquals(2, exporter.getExportedCount());
+      } finally {
+        exporter.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void when_aSpanIsExportedDirectly_then_itMatchesTheRecordedEntity() throws IOException {
+    AWSXRayRecorder recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .withEmitter(emitter)
+        .build();
+    RecorderBackedTracer tracer = RecorderBackedTracer.fromRecorder(recorder, TracerOptions
+        .builder()
+        .withAnnotationAllowList(AnnotationAllowList.of("http.method"))
+        .build());
+
+    Map<String, AttributeValue> attributes = httpAttributes();
+    List<EntityMetadataEvent> events = Collections.singletonList(EntityMetadataEvent.create(
+        "cache.miss",
+        Collections.singletonMap("hit", AttributeValue.booleanAttributeValue(false))));
+    Status status = Status.UNAVAILABLE.withDescription("backend down");
+
+    EntitySpan span = (EntitySpan) tracer.spanBuilder("frontend")
+        .setSpanKind(Span.Kind.SERVER)
+        .startSpan();
+    attributes.forEach(span::setAttribute);
+    events.forEach(event -> span.addEvent(event.getName(), event.getAttributes()));
+    span.setStatus(status);
+    JsonNode recorded = MAPPER.readTree(span.getXrayEntity().serialize());
+    span.end();
+
+    TestSpan finished = new TestSpan(span.getContext(), SpanId.getInvalid(), false, "frontend",
+        Span.Kind.SERVER, status, attributes, events);
+    try (DatagramSocket daemon = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+      daemon.setSoTimeout(5000);
+      DaemonConfiguration config = new DaemonConfiguration();
+      config.setUDPAddress("127.0.0.1:" + daemon.getLocalPort());
+
+      SpanDocumentExporter exporter =
+          SpanDocumentExporter.create(config, AnnotationAllowList.of("http.method"));
+      try {
+        assertTrue(exporter.export(Collections.singletonList(finished)));
+        JsonNode exported = receive(daemon);
+
+        for (String field : Arrays.asList("trace_id", "id", "fault", "http", "annotations",
+            "metadata")) {
+          assertEquals(recorded.get(field), exported.get(field), field);
+        }
+      } finally {
+        exporter.shutdown();
+      }
+    }
+  }
+
+  private static SpanContext context(final long spanId) {
+    return SpanContext.create(TRACE_ID, new SpanId(spanId),
+        TraceFlags.builder().setIsSampled(true).build(), Tracestate.getDefault());
+  }
+
+  private static Map<String, AttributeValue> httpAttributes() {
+    Map<String, AttributeValue> attributes = new LinkedHashMap<>();
+    attributes.put("http.method", AttributeValue.stringAttributeValue("GET"));
+    attributes.put("http.url", AttributeValue.stringAttributeValue("https://example.com/"));
+    attributes.put("http.status_code", AttributeValue.longAttributeValue(200));
+    attributes.put("retries", AttributeValue.doubleAttributeValue(0.5));
+    return attributes;
+  }
+
+  private static JsonNode receive(final DatagramSocket socket) throws IOException {
+    DatagramPacket packet = new DatagramPacket(new byte[65536], 65536);
+    socket.receive(packet);
+    String document = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+    assertTrue(document.startsWith(HEADER));
+    return MAPPER.readTree(document.substring(HEADER.length()));
+  }
+
+  private static final class TestSpan implements FinishedSpan {
+
+    private final SpanContext context;
+    private final SpanId parentSpanId;
+    private final boolean remoteParent;
+    private final String name;
+    private final Span.Kind kind;
+    private final Status status;
+    private final Map<String, AttributeValue> attributes;
+    private final List<? extends Event> events;
+
+    TestSpan(final SpanContext context, final SpanId parentSpanId, final boolean remoteParent,
+        final String name, final Span.Kind kind, final Status status,
+        final Map<String, AttributeValue> attributes, final List<? extends Event> events) {
+      this.context = context;
+      this.parentSpanId = parentSpanId;
+      this.remoteParent = remoteParent;
+      this.name = name;
+      this.kind = kind;
+      this.status = status;
+      this.attributes = attributes;
+      this.events = events;
+    }
+
+    @Override
+    public SpanContext getContext() {
+      return context;
+    }
+
+    @Override
+    public SpanId getParentSpanId() {
+      return parentSpanId;
+    }
+
+    @Override
+    public boolean hasRemoteParent() {
+      return remoteParent;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public Span.Kind getKind() {
+      return kind;
+    }
+
+    @Override
+    public long getStartEpochNanos() {
+      return START;
+    }
+
+    @Override
+    public long getEndEpochNanos() {
+      return START + 1_000_000L;
+    }
+
+    @Override
+    public Status getStatus() {
+      return status;
+    }
+
+    @Override
+    public Map<String, AttributeValue> getAttributes() {
+      return attributes;
+    }
+
+    @Override
+    public List<? extends Event> getEvents() {
+      return events;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.opentelemetry.tracing.DeferredEntitySpan;
+import com.amazonaws.xray.opentelemetry.tracing.EntitySpan;
+import com.amazonaws.xray.opentelemetry.tracing.RecorderBackedTracer;
+import com.amazonaws.xray.opentelemetry.tracing.TracerOptions;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Tracer;
+import org.junit.jupiter.api.Test;
+
+public class AnnotationAllowListTest {
+
+  @Test
+  public void when_keysAreLookedUp_then_exactKeysAndPrefixesMatch() {
+    AnnotationAllowList allowList = AnnotationAllowList.of(
+        "tenant.id", "customer*", "cust*", "region", " zone ");
+
+    assertEquals("tenant_id", allowList.annotationKey("tenant.id"));
+    assertEquals("region", allowList.annotationKey("region"));
+    assertEquals("zone", allowList.annotationKey("zone"));
+    assertEquals("customer_tier", allowList.annotationKey("customer-tier"));
+    assertEquals("custom", allowList.annotationKey("custom"));
+    assertNull(allowList.annotationKey("tenant"));
+    assertNull(allowList.annotationKey("tenant.id.extra"));
+    assertNull(allowList.annotationKey("cus"));
+    assertNull(allowList.annotationKey("regions"));
+    assertNull(allowList.annotationKey("http.method"));
+    assertNull(allowList.annotationKey(""));
+    assertFalse(allowList.isEmpty());
+    assertTrue(AnnotationAllowList.empty().isEmpty());
+    assertEquals("_t_", AnnotationAllowList.of("*").annotationKey("\u00e9t\u00e9"));
+  }
+
+  @Test
+  public void when_matchingAttributesAreSet_then_theyArePromotedToAnnotations() {
+    AWSXRayRecorder recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .build();
+    TracerOptions options = TracerOptions.builder()
+        .withAnnotationAllowList(AnnotationAllowList.of("tenant.id", "order.*"))
+        .build();
+    Tracer tracer = RecorderBackedTracer.fromRecorder(recorder, options);
+
+    Span span = tracer.spanBuilder("Test").startSpan();
+    span.setAttribute("tenant.id", "acme");
+    span.setAttribute("order.total", 9.5D);
+    span.setAttribute("order.count", 3L);
+    span.setAttribute("order.gift", true);
+    span.setAttribute("other", "value");
+    Entity entity = ((EntitySpan) span).getXrayEntity();
+
+    assertEquals("acme", entity.getAnnotations().get("tenant_id"));
+    assertEquals(9.5D, entity.getAnnotations().get("order_total"));
+    assertEquals(3L, entity.getAnnotations().get("order_count"));
+    assertEquals(true, entity.getAnnotations().get("order_gift"));
+    assertEquals(4, entity.getAnnotations().size());
+    assertEquals("value", EntityMetadataFactory.get(entity).getAttribute("other"));
+    assertEquals("acme", EntityMetadataFactory.get(entity).getAttribute("tenant.id"));
+  }
+
+  @Test
+  public void when_deferredSpansMaterialize_then_matchingAttributesArePromoted() {
+    AWSXRayRecorder recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .build();
+    TracerOptions options = TracerOptions.builder()
+        .withDeferredEntities(true)
+        .withAnnotationAllowList(AnnotationAllowList.of("tenant.id"))
+        .build();
+    Tracer tracer = RecorderBackedTracer.fromRecorder(recorder, options);
+
+    DeferredEntitySpan root = (DeferredEntitySpan) tracer.spanBuilder("Root").startSpan();
+    Span child = root.beginChild("Child", root.getStartEpochNanos(), Span.Kind.INTERNAL);
+    root.setAttribute("tenant.id", "acme");
+    child.setAttribute("tenant.id", "other");
+    root.end();
+
+    Entity segment = root.getXrayEntity();
+    assertEquals("acme", segment.getAnnotations().get("tenant_id"));
+    assertEquals("other", segment.getSubsegments().get(0).getAnnotations().get("tenant_id"));
+  }
+}
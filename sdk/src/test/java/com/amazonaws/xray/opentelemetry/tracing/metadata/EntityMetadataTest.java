@@ -0,0 +1,67 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.trace.Span.Kind;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class EntityMetadataTest {
+
+  EntityMetadata metadata;
+
+  @BeforeEach
+  public void setup() {
+    metadata = EntityMetadata.create(Kind.SERVER);
+  }
+
+  @Test
+  public void when_typedAttributesArePut_then_theyAreReadBackWithTheirTypes() {
+    metadata.putAttribute("string", "value");
+    metadata.putAttribute("long", 42L);
+    metadata.putAttribute("double", 0.5D);
+    metadata.putAttribute("boolean", true);
+    metadata.putAttribute("long", 43L);
+    metadata.putAttribute("boxed", (Object) Integer.valueOf(7));
+
+    assertEquals(5, metadata.getAttributeCount());
+    assertEquals("value", metadata.getAttribute("string"));
+    assertEquals(43L, metadata.getAttribute("long"));
+    assertEquals(0.5D, metadata.getAttribute("double"));
+    assertEquals(true, metadata.getAttribute("boolean"));
+    assertEquals(7L, metadata.getAttribute("boxed"));
+    assertNull(metadata.getAttribute("missing"));
+  }
+
+  @Test
+  public void when_arrayAttributesArePut_then_theyAreCopied() {
+    long[] values = {1L, 2L};
+    metadata.putAttribute("longs", values);
+    values[0] = 3L;
+
+    assertArrayEquals(new long[] {1L, 2L}, (long[]) metadata.getAttribute("longs"));
+    assertArrayEquals(new long[] {1L, 2L}, (long[]) metadata.getAttributes().get("longs"));
+  }
+
+  @Test
+  public void when_metadataIsSerialized_then_attributesAreWrittenByType() throws Exception {
+    metadata.putAttribute("string", "value");
+    metadata.putAttribute("long", 42L);
+    metadata.putAttribute("double", 0.5D);
+    metadata.putAttribute("boolean", false);
+    metadata.putAttribute("strings", new String[] {"a", "b"});
+    metadata.putAttribute("longs", new long[] {1L});
+    metadata.putAttribute("doubles", new double[] {1.5D});
+    metadata.putAttribute("booleans", new boolean[] {true, false});
+
+    String json = new ObjectMapper().writeValueAsString(metadata);
+
+    assertEquals("{\"attributes\":{\"string\":\"value\",\"long\":42,\"double\":0.5,"
+        + "\"boolean\":false,\"strings\":[\"a\",\"b\"],\"longs\":[1],\"doubles\":[1.5],"
+        + "\"booleans\":[true,false]},\"kind\":\"SERVER\","
+        + "\"status\":{\"canonicalCode\":\"OK\",\"description\":null,\"ok\":true}}", json);
+  }
+}
@@ -0,0 +1,124 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.opentelemetry.tracing.EntitySpan;
+import com.amazonaws.xray.opentelemetry.tracing.RecorderBackedTracer;
+import com.amazonaws.xray.opentelemetry.tracing.TracerOptions;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Tracer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class EventPoolTest {
+
+  private AWSXRayRecorder recorder;
+  private List<String> emittedEventNames;
+
+  @BeforeEach
+  public void setup() {
+    emittedEventNames = new ArrayList<>();
+    recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .withEmitter(new Emitter() {
+          @Override
+          public boolean sendSegment(final Segment segment) {
+            for (EntityMetadataEvent event : EntityMetadataFactory.get(segment).getEvents()) {
+              emittedEventNames.add(event.getName());
+            }
+            return true;
+          }
+
+          @Override
+          public boolean sendSubsegment(final Subsegment subsegment) {
+            return true;
+          }
+        })
+        .build();
+  }
+
+  @Test
+  public void when_aSegmentIsEmitted_then_itsEventsAreReused() {
+    EventPool pool = EventPool.create();
+    Tracer tracer = tracer(pool);
+
+    for (int i = 0; i < 3; i++) {
+      Span span = tracer.spanBuilder("span").startSpan();
+      span.addEvent("event-" + i);
+      span.end();
+    }
+
+    assertEquals(1, pool.getCreatedCount());
+    assertEquals(2, pool.getReusedCount());
+    assertEquals(3, emittedEventNames.size());
+    assertEquals("event-2", emittedEventNames.get(2));
+  }
+
+  @Test
+  public void when_aSubsegmentIsStillOpen_then_eventsAreNotReleased() {
+    EventPool pool = EventPool.create();
+    Tracer tracer = tracer(pool);
+
+    Span parent = tracer.spanBuilder("parent").startSpan();
+    Span child = tracer.spanBuilder("child").setParent(parent).startSpan();
+    parent.addEvent("parent-event");
+    parent.end();
+    Span next = tracer.spanBuilder("next").startSpan();
+    next.addEvent("next-event");
+
+    assertEquals(0, pool.getReusedCount());
+    child.end();
+    next.end();
+  }
+
+  @Test
+  public void when_debugModeIsOn_then_useAfterReleaseIsDetected() {
+    EventPool pool = EventPool.create(16, true);
+    EntitySpan span = (EntitySpan) tracer(pool).spanBuilder("span").startSpan();
+    span.addEvent("event", Collections.emptyMap());
+    EntityMetadataEvent event = EntityMetadataFactory.get(span.getXrayEntity()).getEvents().get(0);
+    span.end();
+
+    assertTrue(EntityMetadataFactory.get(span.getXrayEntity()).getEvents().isEmpty());
+    assertThrows(IllegalStateException.class, event::getName);
+    assertThrows(IllegalStateException.class, () -> pool.release(event));
+  }
+
+  @Test
+  public void when_entitiesAreDeferred_then_theirEventsAreReusedToo() {
+    EventPool pool = EventPool.create();
+    Tracer tracer = RecorderBackedTracer.fromRecorder(recorder, TracerOptions.builder()
+        .withEventPool(pool)
+        .withDeferredEntities(true)
+        .build());
+
+    for (int i = 0; i < 3; i++) {
+      Span root = tracer.spanBuilder("root").startSpan();
+      Span child = tracer.spanBuilder("child").setParent(root).startSpan();
+      child.addEvent("child-event-" + i);
+      child.end();
+      root.addEvent("root-event-" + i);
+      root.end();
+    }
+
+    assertEquals(2, pool.getCreatedCount());
+    assertEquals(4, pool.getReusedCount());
+    assertEquals("root-event-2", emittedEventNames.get(2));
+  }
+
+  private Tracer tracer(final EventPool pool) {
+    return RecorderBackedTracer.fromRecorder(recorder,
+        TracerOptions.builder().withEventPool(pool).build());
+  }
+}
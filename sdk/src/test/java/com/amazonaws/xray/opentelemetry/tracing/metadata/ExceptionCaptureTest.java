@@ -0,0 +1,131 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.SegmentImpl;
+import com.amazonaws.xray.entities.ThrowableDescription;
+import com.amazonaws.xray.opentelemetry.tracing.DeferredEntitySpan;
+import com.amazonaws.xray.opentelemetry.tracing.RecorderBackedTracer;
+import com.amazonaws.xray.opentelemetry.tracing.TracerOptions;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.Status;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ExceptionCaptureTest {
+
+  private static final int STORM = 1000;
+
+  @Test
+  public void when_aSiteThrowsRepeatedly_then_itsStackIsDescribedOnceAndTheRestThrottled() {
+    AWSXRayRecorder recorder = new AWSXRayRecorder();
+    Segment segment = new SegmentImpl(recorder, "storm");
+    ExceptionCapture capture = ExceptionCapture.create(5, 16);
+
+    for (int i = 0; i < STORM; i++) {
+      capture.record(segment, fail(i));
+    }
+
+    assertEquals(1, capture.getDescribedCount());
+    assertEquals(4, capture.getReusedCount());
+    assertEquals(STORM - 5, capture.getThrottledCount());
+
+    List<ThrowableDescription> exceptions = segment.getCause().getExceptions();
+    assertEquals(STORM, exceptions.size());
+    assertTrue(segment.isFault());
+    ThrowableDescription first = exceptions.get(0);
+    ThrowableDescription reused = exceptions.get(1);
+    ThrowableDescription throttled = exceptions.get(STORM - 1);
+    assertSame(first.getStack(), reused.getStack());
+    assertNotSame(first.getId(), reused.getId());
+    assertEquals("failure 1", reused.getMessage());
+    assertNull(throttled.getStack());
+    assertEquals(IllegalStateException.class.getName(), throttled.getType());
+    assertEquals("failure " + (STORM - 1), throttled.getMessage());
+  }
+
+  @Test
+  public void when_aCachedChainIsReused_then_everyDescriptionGetsANewIdAndItsCauseFollows() {
+    AWSXRayRecorder recorder = new AWSXRayRecorder();
+    ExceptionCapture capture = ExceptionCapture.create(10, 16);
+    Segment first = new SegmentImpl(recorder, "first");
+    Segment second = new SegmentImpl(recorder, "second");
+
+    for (int i = 0; i < 2; i++) {
+      capture.record(i == 0 ? first : second,
+          new IllegalStateException("outer " + i, new IllegalArgumentException("inner " + i)));
+    }
+
+    assertEquals(1, capture.getReusedCount());
+    List<ThrowableDescription> original = first.getCause().getExceptions();
+    List<ThrowableDescription> copied = second.getCause().getExceptions();
+    assertEquals(original.size(), copied.size());
+    assertEquals(2, copied.size());
+    for (int i = 0; i < copied.size(); i++) {
+      assertNotEquals(original.get(i).getId(), copied.get(i).getId());
+      assertSame(original.get(i).getStack(), copied.get(i).getStack());
+    }
+    assertEquals(original.get(1).getId(), original.get(0).getCause());
+    assertEquals(copied.get(1).getId(), copied.get(0).getCause());
+    assertEquals("inner 1", copied.get(1).getMessage());
+  }
+
+  @Test
+  public void when_aSharedHelperThrowsForTwoCallers_then_eachCallerKeepsItsOwnStack() {
+    Segment segment = new SegmentImpl(new AWSXRayRecorder(), "helpers");
+    ExceptionCapture capture = ExceptionCapture.create(10, 16);
+
+    capture.record(segment, firstCaller());
+    capture.record(segment, secondCaller());
+
+    assertEquals(2, capture.getDescribedCount());
+    assertEquals(0, capture.getReusedCount());
+    List<ThrowableDescription> exceptions = segment.getCause().getExceptions();
+    assertEquals("firstCaller", exceptions.get(0).getStack()[1].getMethodName());
+    assertEquals("secondCaller", exceptions.get(1).getStack()[1].getMethodName());
+  }
+
+  @Test
+  public void when_aDeferredSpanRecordsAnExceptionAndAClientStatus_then_theStatusWins() {
+    AWSXRayRecorder recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .build();
+    RecorderBackedTracer tracer = RecorderBackedTracer.fromRecorder(recorder, TracerOptions
+        .builder()
+        .withDeferredEntities(true)
+        .withExceptionCapture(ExceptionCapture.create(10, 16))
+        .build());
+
+    DeferredEntitySpan span = (DeferredEntitySpan) tracer.spanBuilder("root").startSpan();
+    span.recordException(fail(0));
+    span.setStatus(Status.INVALID_ARGUMENT);
+    span.end();
+
+    Entity entity = span.getXrayEntity();
+    assertTrue(entity.isError());
+    assertFalse(entity.isFault());
+    assertEquals(1, entity.getCause().getExceptions().size());
+  }
+
+  private static IllegalStateException firstCaller() {
+    return fail(1);
+  }
+
+  private static IllegalStateException secondCaller() {
+    return fail(2);
+  }
+
+  private static IllegalStateException fail(final int i) {
+    return new IllegalStateException("failure " + i);
+  }
+}
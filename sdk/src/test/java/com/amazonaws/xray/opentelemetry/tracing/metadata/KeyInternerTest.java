@@ -0,0 +1,58 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.opentelemetry.tracing.EntitySpan;
+import com.amazonaws.xray.opentelemetry.tracing.RecorderBackedTracer;
+import com.amazonaws.xray.opentelemetry.tracing.TracerOptions;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Tracer;
+import org.junit.jupiter.api.Test;
+
+public class KeyInternerTest {
+
+  @Test
+  public void when_keysAreInterned_then_equalKeysShareOneInstanceUpToTheCap() {
+    KeyInterner interner = KeyInterner.create(2);
+
+    assertSame("http.method", interner.intern(new String("http.method")));
+    String tenant = interner.intern(new String("tenant"));
+    assertSame(tenant, interner.intern(new String("tenant")));
+    interner.intern(new String("customer"));
+    String overflow = new String("region");
+    assertSame(overflow, interner.intern(overflow));
+    assertNotSame(overflow, interner.intern(new String("region")));
+
+    assertEquals(2, interner.getSize());
+    assertEquals(2, interner.getRejectedCount());
+  }
+
+  @Test
+  public void when_spansSetTheSameKeys_then_theMetadataSharesTheKeyInstances() {
+    AWSXRayRecorder recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .build();
+    Tracer tracer = RecorderBackedTracer.fromRecorder(recorder, TracerOptions.builder()
+        .withKeyInterner(KeyInterner.create(16))
+        .build());
+
+    Span first = tracer.spanBuilder(new String("operation")).startSpan();
+    Span second = tracer.spanBuilder(new String("operation")).startSpan();
+    first.setAttribute(new String("tenant"), "a");
+    second.setAttribute(new String("tenant"), "b");
+
+    assertSame(firstKey(first), firstKey(second));
+    assertSame(((EntitySpan) first).getXrayEntity().getName(),
+        ((EntitySpan) second).getXrayEntity().getName());
+  }
+
+  private static String firstKey(final Span span) {
+    return EntityMetadataFactory.get(((EntitySpan) span).getXrayEntity())
+        .getAttributes().keySet().iterator().next();
+  }
+}
@@ -0,0 +1,99 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.opentelemetry.tracing.RecorderBackedTracer;
+import com.amazonaws.xray.opentelemetry.tracing.TracerOptions;
+import com.amazonaws.xray.opentelemetry.tracing.utils.TimeUtils;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.EndSpanOptions;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Status;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class SpanAggregateTest {
+
+  private static final long START = 1575000000000000000L;
+  private static final int ITERATIONS = 500;
+
+  @Mock
+  Emitter emitter;
+
+  @Test
+  public void when_shortInternalSpansEnd_then_theyAreFoldedIntoOneAggregate() {
+    assertCoalesced(false);
+  }
+
+  @Test
+  public void when_shortDeferredSpansAreMaterialized_then_theyAreFoldedIntoOneAggregate() {
+    assertCoalesced(true);
+  }
+
+  private void assertCoalesced(final boolean deferred) {
+    AWSXRayRecorder recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .withEmitter(emitter)
+        .build();
+    RecorderBackedTracer tracer = RecorderBackedTracer.fromRecorder(recorder, TracerOptions
+        .builder()
+        .withDeferredEntities(deferred)
+        .withSpanCoalescing(1, TimeUnit.MILLISECONDS)
+        .build());
+
+    Span root = tracer.spanBuilder("request")
+        .setSpanKind(Span.Kind.SERVER)
+        .setStartTimestamp(START)
+        .startSpan();
+    for (int i = 0; i < ITERATIONS; i++) {
+      long start = START + i * 20_000L;
+      Span span = tracer.spanBuilder("loop")
+          .setParent(root)
+          .setStartTimestamp(start)
+          .startSpan();
+      if (i == 7) {
+        span.setStatus(Status.INTERNAL);
+      }
+      long duration = i == 9 ? 5_000_000L : (i % 10 + 1) * 1_000L;
+      span.end(EndSpanOptions.builder().setEndTimestamp(start + duration).build());
+    }
+    root.end(EndSpanOptions.builder().setEndTimestamp(START + 20_000_000L).build());
+
+    ArgumentCaptor<Segment> captor = ArgumentCaptor.forClass(Segment.class);
+    verify(emitter).sendSegment(captor.capture());
+    verify(emitter, never()).sendSubsegment(any(Subsegment.class));
+
+    // The failed span, the slow span and one aggregate for the rest
+    Segment segment = captor.getValue();
+    assertEquals(3, segment.getSubsegments().size());
+    Subsegment aggregate = segment.getSubsegments().stream()
+        .filter(s -> EntityMetadataFactory.get(s)
+            .getAttribute(SpanAggregate.COUNT_ATTRIBUTE) != null)
+        .findFirst()
+        .get();
+    EntityMetadata metadata = EntityMetadataFactory.get(aggregate);
+    assertEquals("loop", aggregate.getName());
+    assertEquals((long) ITERATIONS - 2, metadata.getAttribute(SpanAggregate.COUNT_ATTRIBUTE));
+    assertEquals(1e-6D, metadata.getAttribute(SpanAggregate.MIN_DURATION_ATTRIBUTE));
+    assertEquals(1e-5D, metadata.getAttribute(SpanAggregate.MAX_DURATION_ATTRIBUTE));
+    // From the first span's start to the end of the last, which takes 10 microseconds
+    long lastStart = START + (ITERATIONS - 1) * 20_000L;
+    assertEquals(TimeUtils.toXrayTimestamp(START), aggregate.getStartTime());
+    assertEquals(TimeUtils.toXrayTimestamp(lastStart + 10_000L), aggregate.getEndTime());
+    assertTrue(segment.getSubsegments().stream().anyMatch(Subsegment::isFault));
+  }
+}
@@ -0,0 +1,88 @@
+package com.amazonaws.xray.opentelemetry.tracing.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.opentelemetry.tracing.EntitySpan;
+import com.amazonaws.xray.opentelemetry.tracing.RecorderBackedTracer;
+import com.amazonaws.xray.opentelemetry.tracing.TracerOptions;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Tracer;
+import org.junit.jupiter.api.Test;
+
+public class SpanNameNormalizerTest {
+
+  @Test
+  public void when_namesContainIds_then_theDefaultPatternsReplaceThem() {
+    SpanNameNormalizer normalizer = SpanNameNormalizer.create();
+
+    assertEquals("GET /orders/{id}", normalizer.normalize("GET /orders/123456?expand=items"));
+    assertEquals("GET /orders/{id}/items/{id}", normalizer.normalize("GET /orders/7/items/42"));
+    assertEquals("/users/{uuid}/cart",
+        normalizer.normalize("/users/3f2504e0-4f89-11d3-9a0c-0305e82c3301/cart"));
+    assertEquals("/objects/{id}", normalizer.normalize("/objects/00a1b2c3d4e5f6a7b8c9"));
+    assertEquals("/v2/cafe", normalizer.normalize("/v2/cafe"));
+    assertEquals("checkout", normalizer.normalize("checkout"));
+    assertEquals(6, normalizer.getNameCount());
+  }
+
+  @Test
+  public void when_theCapIsReached_then_newNamesOverflowAndAreCounted() {
+    SpanNameNormalizer normalizer = SpanNameNormalizer.builder()
+        .withPattern("[0-9]+", SpanNameNormalizer.ID_PLACEHOLDER)
+        .withMaxNames(2)
+        .withOverflowName("other")
+        .build();
+
+    assertEquals("a{id}", normalizer.normalize("a1"));
+    assertEquals("b{id}", normalizer.normalize("b1"));
+    assertEquals("other", normalizer.normalize("c1"));
+    assertEquals("other", normalizer.normalize("c1"));
+    // Names normalizing to a known name are still admitted
+    assertEquals("a{id}", normalizer.normalize("a2"));
+    assertEquals("other", normalizer.normalize("d1"));
+    assertEquals("other", normalizer.normalize("d1"));
+
+    assertEquals(2, normalizer.getNameCount());
+    assertEquals(2, normalizer.getOverflowCount());
+  }
+
+  @Test
+  public void when_oneOffNamesFillTheCache_then_namesInUseStayCached() {
+    // Every name overflows, so the overflow count tells how often a name missed the cache
+    SpanNameNormalizer normalizer = SpanNameNormalizer.builder()
+        .withMaxNames(0)
+        .withMaxCachedNames(4)
+        .build();
+
+    for (int i = 0; i < 10; i++) {
+      normalizer.normalize("GET /once/" + i);
+    }
+    for (int i = 10; i < 110; i++) {
+      normalizer.normalize("GET /health");
+      normalizer.normalize("GET /once/" + i);
+    }
+
+    assertEquals(10 + 1 + 100, normalizer.getOverflowCount());
+  }
+
+  @Test
+  public void when_spansAreNamedAfterRequests_then_theirEntitiesShareOneName() {
+    AWSXRayRecorder recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .build();
+    Tracer tracer = RecorderBackedTracer.fromRecorder(recorder, TracerOptions.builder()
+        .withSpanNameNormalizer(SpanNameNormalizer.create())
+        .build());
+
+    Span first = tracer.spanBuilder("GET /orders/1").startSpan();
+    Span second = tracer.spanBuilder("GET /orders/2").startSpan();
+
+    assertEquals("GET /orders/{id}", ((EntitySpan) first).getXrayEntity().getName());
+    assertSame(((EntitySpan) first).getXrayEntity().getName(),
+        ((EntitySpan) second).getXrayEntity().getName());
+  }
+}
@@ -0,0 +1,107 @@
+package com.amazonaws.xray.opentelemetry.tracing.overload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.opentelemetry.tracing.EntitySpan;
+import com.amazonaws.xray.opentelemetry.tracing.RecorderBackedTracer;
+import com.amazonaws.xray.opentelemetry.tracing.TracerOptions;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadata;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadataFactory;
+import com.amazonaws.xray.opentelemetry.tracing.overload.OverloadGovernor.Level;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Tracer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class OverloadGovernorTest {
+
+  private final AtomicLong backlog = new AtomicLong();
+
+  private OverloadGovernor governor(final double reducedSamplingRate) {
+    return OverloadGovernor.builder()
+        .withBacklog(backlog::get, 100)
+        .withEvaluationInterval(1, TimeUnit.HOURS)
+        .withRecoveryIntervals(2)
+        .withReducedSamplingRate(reducedSamplingRate)
+        .build();
+  }
+
+  @Test
+  public void when_pressurePersists_then_theGovernorEscalatesAndRecoversStepByStep() {
+    OverloadGovernor governor = governor(0.1D);
+
+    backlog.set(150);
+    governor.evaluate();
+    assertEquals(Level.DROP_EVENTS, governor.getLevel());
+    governor.evaluate();
+    governor.evaluate();
+    governor.evaluate();
+    assertEquals(Level.REDUCE_SAMPLING, governor.getLevel());
+    assertEquals(3, governor.getEscalationCount());
+
+    // Between the recovery threshold and the limit the level holds
+    backlog.set(80);
+    governor.evaluate();
+    governor.evaluate();
+    assertEquals(Level.REDUCE_SAMPLING, governor.getLevel());
+
+    backlog.set(10);
+    governor.evaluate();
+    assertEquals(Level.REDUCE_SAMPLING, governor.getLevel());
+    governor.evaluate();
+    assertEquals(Level.DROP_ATTRIBUTES, governor.getLevel());
+    for (int i = 0; i < 4; i++) {
+      governor.evaluate();
+    }
+    assertEquals(Level.NORMAL, governor.getLevel());
+    assertEquals(3, governor.getRecoveryCount());
+    assertEquals(1, governor.getEnteredCount(Level.NORMAL));
+    assertEquals(2, governor.getEnteredCount(Level.DROP_EVENTS));
+    assertEquals(1, governor.getEnteredCount(Level.REDUCE_SAMPLING));
+  }
+
+  @Test
+  public void when_overloaded_then_spansShedEventsAttributesAndTraces() {
+    OverloadGovernor governor = governor(0D);
+    AWSXRayRecorder recorder = AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .build();
+    Tracer tracer = RecorderBackedTracer.fromRecorder(recorder,
+        TracerOptions.builder().withOverloadGovernor(governor).build());
+    Span span = tracer.spanBuilder("Test").startSpan();
+
+    backlog.set(150);
+    governor.evaluate();
+    governor.evaluate();
+    assertEquals(Level.DROP_ATTRIBUTES, governor.getLevel());
+    span.addEvent("event");
+    span.setAttribute("tenant", "acme");
+    span.setAttribute("http.method", "GET");
+    span.setAttribute("http.status_code", 200L);
+
+    Entity entity = ((EntitySpan) span).getXrayEntity();
+    EntityMetadata metadata = EntityMetadataFactory.get(entity);
+    assertTrue(metadata.getEvents().isEmpty());
+    assertNull(metadata.getAttribute("tenant"));
+    assertEquals("GET", metadata.getAttribute("http.method"));
+    assertEquals(1, governor.getDroppedEventCount());
+    assertEquals(1, governor.getDroppedAttributeCount());
+
+    governor.evaluate();
+    Span child = tracer.spanBuilder("Child").setParent(span).startSpan();
+    Span shed = tracer.spanBuilder("Shed").setNoParent().startSpan();
+    assertTrue(child.isRecording());
+    assertFalse(shed.isRecording());
+    assertFalse(shed.getContext().getTraceFlags().isSampled());
+    assertTrue(shed.getContext().isValid());
+    assertEquals(1, governor.getUnsampledTraceCount());
+  }
+}
@@ -0,0 +1,116 @@
+package com.amazonaws.xray.opentelemetry.tracing.propagation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.opentelemetry.distributedcontext.DistributedContext;
+import io.opentelemetry.distributedcontext.Entry;
+import io.opentelemetry.distributedcontext.EntryKey;
+import io.opentelemetry.distributedcontext.EntryMetadata;
+import io.opentelemetry.distributedcontext.EntryMetadata.EntryTtl;
+import io.opentelemetry.distributedcontext.EntryValue;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class HttpCorrelationContextTest {
+
+  private static final String HEADER =
+      "tenant=acme%20corp;source=edge, region = eu-west-1,bad key=x,route=b";
+
+  private final HttpCorrelationContext format = HttpCorrelationContext.create();
+
+  @Test
+  public void when_baggageIsOnlyForwarded_then_theRawHeaderIsInjectedWithoutDecoding() {
+    CorrelationContext context = (CorrelationContext) extract(HEADER);
+    DistributedContext unchanged = CorrelationContext.builder().setParent(context).build();
+
+    assertSame(context, unchanged);
+    assertEquals(HEADER, inject(unchanged));
+    assertFalse(context.isDecoded());
+  }
+
+  @Test
+  public void when_anEntryIsRead_then_theHeaderIsDecoded() {
+    DistributedContext context = extract(HEADER);
+
+    assertEquals("acme corp", context.getEntryValue(EntryKey.create("tenant")).asString());
+    assertEquals("eu-west-1", context.getEntryValue(EntryKey.create("region")).asString());
+    assertNull(context.getEntryValue(EntryKey.create("missing")));
+    // The member whose key contains a space is skipped
+    assertEquals(3, context.getEntries().size());
+    assertTrue(((CorrelationContext) context).isDecoded());
+  }
+
+  @Test
+  public void when_entriesChange_then_theContextIsEncodedAgain() {
+    DistributedContext context = CorrelationContext.builder()
+        .setParent(extract(HEADER))
+        .put(EntryKey.create("tenant"), EntryValue.create("acme, inc"),
+            Entry.METADATA_UNLIMITED_PROPAGATION)
+        .put(EntryKey.create("local"), EntryValue.create("x"),
+            EntryMetadata.create(EntryTtl.NO_PROPAGATION))
+        .remove(EntryKey.create("region"))
+        .build();
+
+    assertEquals("tenant=acme%2C%20inc,route=b", inject(context));
+    assertEquals("acme, inc", extract(inject(context))
+        .getEntryValue(EntryKey.create("tenant")).asString());
+  }
+
+  @Test
+  public void when_aValueHasASupplementaryCharacter_then_itIsEncodedAsOneCodePoint() {
+    // Entry values are printable ASCII in this API, so the codec is exercised directly
+    String value = "ok \uD83D\uDE00";
+    StringBuilder encoded = new StringBuilder();
+    HttpCorrelationContext.percentEncode(value, encoded);
+
+    assertEquals("ok%20%F0%9F%98%80", encoded.toString());
+    assertEquals(value, CorrelationContext.percentDecode(encoded.toString()));
+  }
+
+  @Test
+  public void when_baggageExceedsTheLimits_then_itIsDroppedAndCounted() {
+    HttpCorrelationContext limited = HttpCorrelationContext.create(2, 32);
+
+    DistributedContext oversized = limited.extract(
+        Collections.singletonMap(HttpCorrelationContext.CORRELATION_HEADER_NAME,
+            "key=" + new String(new char[64]).replace('\0', 'x')), Map::get);
+    assertTrue(oversized.getEntries().isEmpty());
+
+    DistributedContext truncated = limited.extract(
+        Collections.singletonMap(HttpCorrelationContext.CORRELATION_HEADER_NAME, "a=1,b=2,c=3"),
+        Map::get);
+    assertEquals(2, truncated.getEntries().size());
+
+    DistributedContext built = CorrelationContext.builder()
+        .put(EntryKey.create("first"), EntryValue.create("0123456789"),
+            Entry.METADATA_UNLIMITED_PROPAGATION)
+        .put(EntryKey.create("second"), EntryValue.create("0123456789"),
+            Entry.METADATA_UNLIMITED_PROPAGATION)
+        .put(EntryKey.create("c"), EntryValue.create("3"), Entry.METADATA_UNLIMITED_PROPAGATION)
+        .build();
+    Map<String, String> carrier = new HashMap<>();
+    limited.inject(built, carrier, Map::put);
+
+    assertEquals("first=0123456789,c=3",
+        carrier.get(HttpCorrelationContext.CORRELATION_HEADER_NAME));
+    assertEquals(2, limited.getDroppedCount());
+  }
+
+  private DistributedContext extract(final String header) {
+    return format.extract(
+        Collections.singletonMap(HttpCorrelationContext.CORRELATION_HEADER_NAME, header),
+        Map::get);
+  }
+
+  private String inject(final DistributedContext context) {
+    Map<String, String> carrier = new HashMap<>();
+    format.inject(context, carrier, Map::put);
+    return carrier.get(HttpCorrelationContext.CORRELATION_HEADER_NAME);
+  }
+}
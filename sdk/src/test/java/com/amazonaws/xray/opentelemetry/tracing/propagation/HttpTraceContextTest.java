@@ -0,0 +1,83 @@
+package com.amazonaws.xray.opentelemetry.tracing.propagation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.xray.opentelemetry.tracing.propagation.HttpTraceContext.ExtractionFailure;
+import io.opentelemetry.trace.SpanContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class HttpTraceContextTest {
+
+  private static final String X_RAY_TRACE_HEADER
+      = "Root=1-5759e988-bd862e3fe1be46a994272793;Parent=53995c3f42cd8ad8;Sampled=1";
+  private static final String OT_TRACE_ID = "5759e988bd862e3fe1be46a994272793";
+  private static final String SEGMENT_ID = "53995c3f42cd8ad8";
+
+  private final HttpTraceContext format = new HttpTraceContext();
+
+  @Test
+  public void when_aHeaderIsValid_then_itIsExtracted() {
+    SpanContext context = extract(X_RAY_TRACE_HEADER);
+
+    assertTrue(context.isValid());
+    assertTrue(context.isRemote());
+    assertTrue(context.getTraceFlags().isSampled());
+    assertEquals(OT_TRACE_ID, context.getTraceId().toLowerBase16());
+    assertEquals(SEGMENT_ID, context.getSpanId().toLowerBase16());
+  }
+
+  @Test
+  public void when_fieldsAreReorderedOrSpaced_then_theHeaderIsStillExtracted() {
+    SpanContext context = extract(
+        "Sampled=0; Parent=53995C3F42CD8AD8; Root=1-5759e988-bd862e3fe1be46a994272793;Self=1");
+
+    assertTrue(context.isValid());
+    assertFalse(context.getTraceFlags().isSampled());
+    assertEquals(OT_TRACE_ID, context.getTraceId().toLowerBase16());
+    assertEquals(SEGMENT_ID, context.getSpanId().toLowerBase16());
+  }
+
+  @Test
+  public void when_aContextIsInjected_then_itCanBeExtracted() {
+    SpanContext context = extract(X_RAY_TRACE_HEADER);
+    Map<String, String> carrier = new HashMap<>();
+    format.inject(context, carrier, Map::put);
+
+    assertEquals(context, extract(carrier.get(HttpTraceContext.XRAY_HEADER_NAME)));
+  }
+
+  @Test
+  public void when_headersAreMissingOrMalformed_then_anInvalidContextIsReturnedAndCounted() {
+    assertFalse(format.extract(Collections.<String, String>emptyMap(), Map::get).isValid());
+    assertFalse(extract("Parent=53995c3f42cd8ad8").isValid());
+    assertFalse(extract("Root=1-5759e988-bd862e3fe1be46a99427279;Parent=53995c3f42cd8ad8")
+        .isValid());
+    assertFalse(extract("Root=2-5759e988-bd862e3fe1be46a994272793;Parent=53995c3f42cd8ad8")
+        .isValid());
+    assertFalse(extract("Root=1-00000000-000000000000000000000000;Parent=53995c3f42cd8ad8")
+        .isValid());
+    assertFalse(extract("Root=1-5759e988-bd862e3fe1be46a994272793").isValid());
+    assertFalse(extract("Root=1-5759e988-bd862e3fe1be46a994272793;Parent=53995c3f42cd8adz")
+        .isValid());
+    assertFalse(extract("Root=1-5759e988-bd862e3fe1be46a994272793;Parent=0000000000000000")
+        .isValid());
+    assertFalse(extract("XRoot=1-5759e988-bd862e3fe1be46a994272793;Parent=53995c3f42cd8ad8")
+        .isValid());
+
+    assertEquals(1, format.getExtractionFailureCount(ExtractionFailure.MISSING_HEADER));
+    assertEquals(2, format.getExtractionFailureCount(ExtractionFailure.MISSING_ROOT));
+    assertEquals(3, format.getExtractionFailureCount(ExtractionFailure.MALFORMED_ROOT));
+    assertEquals(1, format.getExtractionFailureCount(ExtractionFailure.MISSING_PARENT));
+    assertEquals(2, format.getExtractionFailureCount(ExtractionFailure.MALFORMED_PARENT));
+  }
+
+  private SpanContext extract(final String header) {
+    return format.extract(
+        Collections.singletonMap(HttpTraceContext.XRAY_HEADER_NAME, header), Map::get);
+  }
+}
@@ -0,0 +1,101 @@
+package com.amazonaws.xray.opentelemetry.tracing.sampling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.opentelemetry.tracing.EntitySpan;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Status;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class TailSamplingEmitterTest {
+
+  @Mock
+  Emitter delegate;
+
+  private AWSXRayRecorder recorderWith(final Emitter emitter) {
+    return AWSXRayRecorderBuilder.standard()
+        .withSamplingStrategy(new AllSamplingStrategy())
+        .withEmitter(emitter)
+        .build();
+  }
+
+  @Test
+  public void when_aTraceHasAnErrorStatus_then_itIsKept() {
+    TailSamplingEmitter emitter = TailSamplingEmitter
+        .create(delegate, TailSamplingPolicies.errorOrFault());
+    AWSXRayRecorder recorder = recorderWith(emitter);
+
+    EntitySpan span = EntitySpan.beginSegment(recorder, "Test Span", 1L, Span.Kind.SERVER);
+    span.setStatus(Status.INTERNAL);
+    span.end();
+
+    verify(delegate).sendSegment(any(Segment.class));
+    assertEquals(1, emitter.getKeptCount());
+    assertEquals(0, emitter.getDroppedCount());
+  }
+
+  @Test
+  public void when_aTraceIsHealthy_then_itIsDropped() {
+    TailSamplingEmitter emitter = TailSamplingEmitter
+        .create(delegate, TailSamplingPolicies.errorOrFault());
+    AWSXRayRecorder recorder = recorderWith(emitter);
+
+    EntitySpan span = EntitySpan.beginSegment(recorder, "Test Span", 1L, Span.Kind.SERVER);
+    span.end();
+
+    verify(delegate, never()).sendSegment(any(Segment.class));
+    assertEquals(1, emitter.getDroppedCount());
+  }
+
+  @Test
+  public void when_anAttributeMatches_then_theTraceIsKept() {
+    TailSamplingEmitter emitter = TailSamplingEmitter
+        .create(delegate, TailSamplingPolicies.anyOf(
+            TailSamplingPolicies.errorOrFault(),
+            TailSamplingPolicies.attributeEquals("tenant", "important")));
+    AWSXRayRecorder recorder = recorderWith(emitter);
+
+    EntitySpan parent = EntitySpan.beginSegment(recorder, "Parent", 1L, Span.Kind.SERVER);
+    EntitySpan child = EntitySpan.beginSubsegment(recorder, "Child", parent, 2L,
+        Span.Kind.INTERNAL);
+    child.setAttribute("tenant", "important");
+    child.end();
+    parent.end();
+
+    verify(delegate).sendSegment(any(Segment.class));
+  }
+
+  @Test
+  public void when_streamedSubsegmentsExceedTheBudget_then_theyAreEvicted() {
+    TailSamplingEmitter emitter = TailSamplingEmitter
+        .create(delegate, TailSamplingPolicies.errorOrFault(),
+            TraceBuffer.ESTIMATED_ENTITY_BYTES, 1, TimeUnit.MINUTES);
+    AWSXRayRecorder recorder = recorderWith(emitter);
+
+    EntitySpan first = EntitySpan.beginSegment(recorder, "First", 1L, Span.Kind.SERVER);
+    EntitySpan second = EntitySpan.beginSegment(recorder, "Second", 1L, Span.Kind.SERVER);
+    Subsegment a = (Subsegment) EntitySpan
+        .beginSubsegment(recorder, "A", first, 2L, Span.Kind.INTERNAL).getXrayEntity();
+    Subsegment b = (Subsegment) EntitySpan
+        .beginSubsegment(recorder, "B", second, 2L, Span.Kind.INTERNAL).getXrayEntity();
+    emitter.sendSubsegment(a);
+    emitter.sendSubsegment(b);
+
+    assertEquals(1, emitter.getEvictedCount());
+    assertEquals(TraceBuffer.ESTIMATED_ENTITY_BYTES, emitter.getBufferedBytes());
+  }
+}
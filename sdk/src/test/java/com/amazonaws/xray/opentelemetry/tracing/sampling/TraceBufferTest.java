@@ -0,0 +1,56 @@
+package com.amazonaws.xray.opentelemetry.tracing.sampling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.SegmentImpl;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.entities.SubsegmentImpl;
+import org.junit.jupiter.api.Test;
+
+public class TraceBufferTest {
+
+  private static final long ENTITY = TraceBuffer.ESTIMATED_ENTITY_BYTES;
+
+  private final AWSXRayRecorder recorder = new AWSXRayRecorder();
+  private final Segment segment = new SegmentImpl(recorder, "buffered");
+
+  @Test
+  public void when_theEldestTraceOutlivesTheTtl_then_itIsEvicted() {
+    TraceBuffer buffer = new TraceBuffer(Long.MAX_VALUE, 100);
+
+    buffer.add("a", subsegment(), 0);
+    buffer.add("b", subsegment(), 50);
+    buffer.add("c", subsegment(), 120);
+
+    assertEquals(2, buffer.size());
+    assertEquals(1, buffer.getEvictedCount());
+    assertTrue(buffer.remove("a", 120).isEmpty());
+    assertEquals(1, buffer.remove("b", 120).size());
+  }
+
+  @Test
+  public void when_aTraceIsRemoved_then_itsBytesNoLongerCountAgainstTheBudget() {
+    TraceBuffer buffer = new TraceBuffer(2 * ENTITY, Long.MAX_VALUE);
+    buffer.add("a", subsegment(), 0);
+    buffer.add("b", subsegment(), 0);
+
+    assertEquals(1, buffer.remove("a", 0).size());
+    assertEquals(ENTITY, buffer.getBytes());
+    buffer.add("c", subsegment(), 0);
+
+    assertEquals(2, buffer.size());
+    assertEquals(2 * ENTITY, buffer.getBytes());
+    assertEquals(0, buffer.getEvictedCount());
+
+    buffer.add("d", subsegment(), 0);
+    assertEquals(1, buffer.getEvictedCount());
+    assertTrue(buffer.remove("b", 0).isEmpty());
+  }
+
+  private Subsegment subsegment() {
+    return new SubsegmentImpl(recorder, "child", segment);
+  }
+}
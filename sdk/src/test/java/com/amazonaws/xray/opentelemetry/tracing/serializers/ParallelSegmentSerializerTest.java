@@ -0,0 +1,88 @@
+package com.amazonaws.xray.opentelemetry.tracing.serializers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.SegmentImpl;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.entities.SubsegmentImpl;
+import com.amazonaws.xray.opentelemetry.tracing.metadata.EntityMetadata;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.trace.Span.Kind;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ParallelSegmentSerializerTest {
+
+  private AWSXRayRecorder recorder;
+  private ForkJoinPool pool;
+
+  @BeforeEach
+  public void setup() {
+    recorder = new AWSXRayRecorder();
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterEach
+  public void cleanup() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void when_theTreeIsSmall_then_theSegmentIsSerializedAsUsual() {
+    Segment segment = new SegmentImpl(recorder, "small");
+    addChildren(segment, segment, 3, 2);
+
+    byte[] document = ParallelSegmentSerializer.create(pool, 100).serialize(segment);
+
+    assertEquals(segment.serialize(), new String(document, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void when_theTreeIsLarge_then_theParallelDocumentMatches() throws Exception {
+    Segment segment = new SegmentImpl(recorder, "large");
+    segment.putAnnotation("tenant", "a");
+    // A wide level of leaves and a few deep subtrees, so that runs are split both ways
+    addChildren(segment, segment, 200, 0);
+    addChildren(segment, segment, 4, 3);
+
+    ParallelSegmentSerializer serializer = ParallelSegmentSerializer.create(pool, 16);
+    ObjectMapper mapper = new ObjectMapper();
+    String expected = segment.serialize();
+    for (int i = 0; i < 3; i++) {
+      // Repeat so that pooled buffers are reused
+      String document = new String(serializer.serialize(segment), StandardCharsets.UTF_8);
+      assertEquals(mapper.readTree(expected), mapper.readTree(document));
+      // A duplicated field would parse to the same tree, so count them as well
+      assertEquals(count(expected, "\"subsegments\""), count(document, "\"subsegments\""));
+    }
+  }
+
+  private static int count(final String document, final String field) {
+    int count = 0;
+    for (int i = document.indexOf(field); i >= 0; i = document.indexOf(field, i + 1)) {
+      count++;
+    }
+    return count;
+  }
+
+  private void addChildren(final Segment segment, final Entity parent, final int width,
+      final int depth) {
+    for (int i = 0; i < width; i++) {
+      Subsegment child = new SubsegmentImpl(recorder, "child-" + depth + "-" + i, segment);
+      child.putMetadata("otel", "span", EntityMetadata.create(Kind.INTERNAL));
+      if (i % 7 == 0) {
+        child.addException(new IllegalStateException("failed " + i));
+      }
+      parent.addSubsegment(child);
+      if (depth > 0) {
+        addChildren(segment, child, width, depth - 1);
+      }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.amazonaws.xray.opentelemetry.tracing.utils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.xray.entities.Segment;
@@ -69,4 +70,21 @@ public class ContextUtilsTest {
     when(segment.getParentId()).thenReturn(SEGMENT_ID);
     assertEquals(context, ContextUtils.entityToSpanContext(segment));
   }
+
+  @Test
+  public void when_anEntityHasAMalformedId_then_anInvalidContextIsReturned() {
+    when(segment.getId()).thenReturn("53995c3f42cd8adz", "53995c", null);
+    assertFalse(ContextUtils.entityToSpanContext(segment).isValid());
+    assertFalse(ContextUtils.entityToSpanContext(segment).isValid());
+    assertFalse(ContextUtils.entityToSpanContext(segment).isValid());
+  }
+
+  @Test
+  public void when_anEntityHasAnAllZeroTraceId_then_anInvalidContextIsReturned() {
+    when(segment.getParentSegment()).thenReturn(segment);
+    when(segment.getTraceId())
+        .thenReturn(TraceID.fromString("1-00000000-000000000000000000000000"));
+    when(segment.getId()).thenReturn(SEGMENT_ID);
+    assertFalse(ContextUtils.entityToSpanContext(segment).isValid());
+  }
 }
@@ -0,0 +1,43 @@
+package com.amazonaws.xray.opentelemetry.tracing.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class IdUtilsTest {
+
+  private static final String X_RAY_TRACE_ID = "1-5759e988-bd862e3fe1be46a994272793";
+  private static final String OT_TRACE_ID = "5759e988bd862e3fe1be46a994272793";
+  private static final int EPOCH = 0x5759e988;
+  private static final int HIGH = 0xbd862e3f;
+  private static final long LOW = 0xe1be46a994272793L;
+
+  @Test
+  public void when_traceIdPartsAreGiven_then_xrayAndOtFormatsMatch() {
+    assertEquals(X_RAY_TRACE_ID, IdUtils.toXrayTraceId(EPOCH, HIGH, LOW));
+    assertEquals(X_RAY_TRACE_ID, IdUtils.toTraceID(EPOCH, HIGH, LOW).toString());
+    assertEquals(OT_TRACE_ID, IdUtils.toOtTraceId(EPOCH, HIGH, LOW).toLowerBase16());
+  }
+
+  @Test
+  public void when_traceIdPartsHaveLeadingZeros_then_theyArePadded() {
+    assertEquals("1-5759e988-000000000000000000000001",
+        IdUtils.toTraceID(EPOCH, 0, 1L).toString());
+    assertEquals("000000000000002a", IdUtils.toHex(42L));
+  }
+
+  @Test
+  public void when_aTraceIdIsGenerated_then_itCarriesTheCurrentEpochSecond() {
+    long before = System.currentTimeMillis() / 1000L;
+    long epoch = IdUtils.newTraceID(IdGenerator.random()).getStartTime();
+    assertEquals(before, epoch, 1);
+  }
+
+  @Test
+  public void when_spanIdsAreGenerated_then_theyAreNonZero() {
+    for (int i = 0; i < 1000; i++) {
+      assertNotEquals(0L, IdGenerator.random().generateSpanId());
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.amazonaws.xray.opentelemetry.tracing.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+public class TimeUtilsTest {
+
+  private static final long EPOCH_NANOS = 1575000000123456789L;
+
+  @Test
+  public void when_theCurrentTimeIsRead_then_itMatchesTheClock() {
+    long before = Instant.now().toEpochMilli();
+    long nanos = TimeUtils.currentEpochNanos();
+    long after = Instant.now().toEpochMilli();
+
+    assertTrue(nanos / 1000000L >= before);
+    assertTrue(nanos / 1000000L <= after);
+  }
+
+  @Test
+  public void when_nanosAreConverted_then_theClosestDoubleIsReturned() {
+    assertEquals(1575000000.123456789D, TimeUtils.toXrayTimestamp(EPOCH_NANOS));
+    assertEquals(Double.valueOf(1575000000.123456789D),
+        TimeUtils.nanoTimeToXrayTimestamp(Long.valueOf(EPOCH_NANOS)));
+  }
+
+  @Test
+  public void when_aTimestampRoundTrips_then_itKeepsMicrosecondPrecision() {
+    long roundTripped = TimeUtils
+        .xrayTimestampToNanoTime(TimeUtils.toXrayTimestamp(EPOCH_NANOS));
+    assertEquals(EPOCH_NANOS, roundTripped, 1000);
+  }
+}